@@ -0,0 +1,107 @@
+package com.example.family;
+
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TCP portundaki ikili (binary), uzunluk önekli istemci protokolü.
+ * - Bağlantının ilk byte'ı SIHIRLI_BYTE ise bağlantı ikili moda geçer, değilse
+ * satır protokolü devam eder (metin komutları ASCII harfle başlar)
+ * - İstek:  [opcode:u8][istekNo:int32][anahtar:int32][uzunluk:int32][deger:bytes]
+ * - Yanıt:  [durum:u8][istekNo:int32][uzunluk:int32][govde:bytes]
+ * - Yanıtlar istek sırasıyla değil tamamlandıkça yazılır; istemci istekNo ile eşler
+ * (aynı anahtarın komutları yine sırayla çalışır)
+ * - Değer newline içerebilir, taranmaz; tek bir diziye okunur ve kopyalanmadan
+ * replikasyona / diske verilir
+ * - Tamsayılar big-endian
+ */
+final class BinaryProtocol {
+
+    static final int SIHIRLI_BYTE = 0xB7;
+
+    static final byte SET = 1;
+    static final byte GET = 2;
+
+    static final byte DURUM_OK = 0;
+    static final byte DURUM_YOK = 1; // GET: anahtar bulunamadı
+    static final byte DURUM_HATA = 2; // Gövde UTF-8 hata mesajı
+
+    static final int ISTEK_BASLIK_BOYUTU = 13;
+    static final int YANIT_BASLIK_BOYUTU = 9;
+    static final int MAX_DEGER_BOYUTU = 16 * 1024 * 1024;
+
+    /**
+     * Ayrıştırılmış bir istek frame'i. Değer dizisi bu isteğe aittir.
+     */
+    static final class Frame {
+        final byte opcode;
+        final int istekNo;
+        final int anahtar;
+        final byte[] deger;
+
+        Frame(byte opcode, int istekNo, int anahtar, byte[] deger) {
+            this.opcode = opcode;
+            this.istekNo = istekNo;
+            this.anahtar = anahtar;
+            this.deger = deger;
+        }
+    }
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Başlığı okunmuş (position 0, limit ISTEK_BASLIK_BOYUTU) tampondan değer
+     * dizisi ayrılmış ama henüz doldurulmamış bir frame oluşturur
+     */
+    static Frame baslikCoz(ByteBuffer baslik) throws IOException {
+        byte opcode = baslik.get();
+        int istekNo = baslik.getInt();
+        int anahtar = baslik.getInt();
+        int uzunluk = baslik.getInt();
+        if (uzunluk < 0 || uzunluk > MAX_DEGER_BOYUTU) {
+            throw new IOException("Gecersiz deger uzunlugu: " + uzunluk);
+        }
+        return new Frame(opcode, istekNo, anahtar, new byte[uzunluk]);
+    }
+
+    /**
+     * Bloklayan okuyucudan bir frame okur; frame sınırında bağlantı kapandıysa null
+     */
+    static Frame frameOku(LineReader okuyucu) throws IOException {
+        if (okuyucu.bak() < 0) {
+            return null;
+        }
+        byte[] baslik = new byte[ISTEK_BASLIK_BOYUTU];
+        okuyucu.tamOku(baslik);
+        Frame frame = baslikCoz(ByteBuffer.wrap(baslik));
+        okuyucu.tamOku(frame.deger);
+        return frame;
+    }
+
+    static byte[] yanit(byte durum, int istekNo) {
+        return baslikliDizi(durum, istekNo, 0);
+    }
+
+    static byte[] yanit(byte durum, int istekNo, ByteString govde) {
+        byte[] yanit = baslikliDizi(durum, istekNo, govde.size());
+        govde.copyTo(yanit, YANIT_BASLIK_BOYUTU);
+        return yanit;
+    }
+
+    static byte[] hataYaniti(int istekNo, String mesaj) {
+        byte[] govde = String.valueOf(mesaj).getBytes(StandardCharsets.UTF_8);
+        byte[] yanit = baslikliDizi(DURUM_HATA, istekNo, govde.length);
+        System.arraycopy(govde, 0, yanit, YANIT_BASLIK_BOYUTU, govde.length);
+        return yanit;
+    }
+
+    private static byte[] baslikliDizi(byte durum, int istekNo, int uzunluk) {
+        byte[] yanit = new byte[YANIT_BASLIK_BOYUTU + uzunluk];
+        ByteBuffer.wrap(yanit).put(durum).putInt(istekNo).putInt(uzunluk);
+        return yanit;
+    }
+}
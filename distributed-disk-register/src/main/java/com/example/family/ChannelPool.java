@@ -0,0 +1,74 @@
+package com.example.family;
+
+import family.FamilyServiceGrpc;
+import family.NodeInfo;
+import family.StorageServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Küme üyelerine uzun ömürlü gRPC kanal havuzu.
+ * - Her üye (NodeInfo) için tek bir HTTP/2 kanalı açılır, tüm çağrılar bunun
+ * üzerinde multiplex edilir (her SET/GET'te yeni TCP bağlantısı kurulmaz)
+ * - Keepalive ile ölü bağlantılar fark edilir; kopan kanal gRPC'nin kendi
+ * üstel geri çekilmesi (exponential backoff) ile yeniden bağlanır
+ * - NodeRegistry bir üyeyi çıkardığında kanalı da kapatılır
+ */
+public class ChannelPool {
+
+    // Sunucular (NodeMain) bu aralıktaki ping'lere izin verir, yoksa GOAWAY too_many_pings gelir
+    static final long KEEPALIVE_SANIYE = 30;
+    private static final long KEEPALIVE_ZAMAN_ASIMI_SANIYE = 10;
+    // gRPC varsayılanı 4 MB; ikili protokolün büyük değerleri (16 MB'a kadar) tek mesajda taşınır
+    public static final int MAX_MESAJ_BOYUTU = 32 * 1024 * 1024;
+
+    private final ConcurrentHashMap<NodeInfo, ManagedChannel> kanallar = new ConcurrentHashMap<>();
+
+    public ManagedChannel kanal(NodeInfo uye) {
+        return kanallar.computeIfAbsent(uye, u -> ManagedChannelBuilder
+                .forAddress(u.getHost(), u.getPort())
+                .usePlaintext()
+                .keepAliveTime(KEEPALIVE_SANIYE, TimeUnit.SECONDS)
+                .keepAliveTimeout(KEEPALIVE_ZAMAN_ASIMI_SANIYE, TimeUnit.SECONDS)
+                .keepAliveWithoutCalls(true)
+                .maxInboundMessageSize(MAX_MESAJ_BOYUTU)
+                .build());
+    }
+
+    public FamilyServiceGrpc.FamilyServiceBlockingStub blockingStub(NodeInfo uye) {
+        return FamilyServiceGrpc.newBlockingStub(kanal(uye));
+    }
+
+    public FamilyServiceGrpc.FamilyServiceFutureStub futureStub(NodeInfo uye) {
+        return FamilyServiceGrpc.newFutureStub(kanal(uye));
+    }
+
+    public FamilyServiceGrpc.FamilyServiceStub asyncStub(NodeInfo uye) {
+        return FamilyServiceGrpc.newStub(kanal(uye));
+    }
+
+    public StorageServiceGrpc.StorageServiceFutureStub storageFutureStub(NodeInfo uye) {
+        return StorageServiceGrpc.newFutureStub(kanal(uye));
+    }
+
+    public StorageServiceGrpc.StorageServiceStub storageAsyncStub(NodeInfo uye) {
+        return StorageServiceGrpc.newStub(kanal(uye));
+    }
+
+    /**
+     * Üyenin kanalını havuzdan çıkarır ve kapatır
+     */
+    public void kapat(NodeInfo uye) {
+        ManagedChannel kanal = kanallar.remove(uye);
+        if (kanal != null) {
+            kanal.shutdownNow();
+        }
+    }
+
+    public int boyut() {
+        return kanallar.size();
+    }
+}
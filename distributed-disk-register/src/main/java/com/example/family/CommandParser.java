@@ -0,0 +1,159 @@
+package com.example.family;
+
+/**
+ * Satır protokolü için byte seviyesinde, nesne üretmeyen ayrıştırıcı.
+ * - Satır soketten gelen byte dizisi üzerinde [bas, son) aralığıyla çalışılır;
+ * String'e çevirme, split, toUpperCase yoktur
+ * - Komut adı büyük/küçük harf duyarsız, harf harf karşılaştırılır
+ * - int anahtar yerinde ayrıştırılır; geçersizse exception yerine GECERSIZ_ANAHTAR döner
+ * - Değer, satır dizisindeki başlangıç/bitiş indeksleriyle taşınır (kopya yok)
+ */
+final class CommandParser {
+
+    static final int BILINMEYEN = 0;
+    static final int SET = 1;
+    static final int GET = 2;
+    static final int MSET = 3;
+    static final int MGET = 4;
+    static final int DEL = 5;
+    static final int EXISTS = 6;
+    static final int PING = 7;
+    static final int INFO = 8;
+
+    static final long GECERSIZ_ANAHTAR = Long.MIN_VALUE;
+
+    private CommandParser() {
+    }
+
+    /**
+     * [bas, son) aralığındaki komut adının türü
+     */
+    static int komutTuru(byte[] satir, int bas, int son) {
+        int uzunluk = son - bas;
+        if (uzunluk == 3) {
+            if (harf(satir[bas + 1], 'e') && harf(satir[bas + 2], 't')) {
+                if (harf(satir[bas], 's')) {
+                    return SET;
+                }
+                if (harf(satir[bas], 'g')) {
+                    return GET;
+                }
+            }
+            if (kelime(satir, bas, "del")) {
+                return DEL;
+            }
+        } else if (uzunluk == 4) {
+            if (harf(satir[bas], 'm') && harf(satir[bas + 2], 'e') && harf(satir[bas + 3], 't')) {
+                if (harf(satir[bas + 1], 's')) {
+                    return MSET;
+                }
+                if (harf(satir[bas + 1], 'g')) {
+                    return MGET;
+                }
+            }
+            if (kelime(satir, bas, "ping")) {
+                return PING;
+            }
+            if (kelime(satir, bas, "info")) {
+                return INFO;
+            }
+        } else if (uzunluk == 6 && kelime(satir, bas, "exists")) {
+            return EXISTS;
+        }
+        return BILINMEYEN;
+    }
+
+    /**
+     * bas'tan itibaren ilk boşluğun indeksi; boşluk yoksa son
+     */
+    static int alanSonu(byte[] satir, int bas, int son) {
+        for (int i = bas; i < son; i++) {
+            if (satir[i] == ' ') {
+                return i;
+            }
+        }
+        return son;
+    }
+
+    /**
+     * [bas, son) aralığını Integer.parseInt kurallarıyla (isteğe bağlı +/-,
+     * sadece ASCII rakam, taşma yok) ayrıştırır
+     *
+     * @return anahtar ya da GECERSIZ_ANAHTAR
+     */
+    static long intAyristir(byte[] satir, int bas, int son) {
+        if (bas >= son) {
+            return GECERSIZ_ANAHTAR;
+        }
+        boolean negatif = satir[bas] == '-';
+        int i = (negatif || satir[bas] == '+') ? bas + 1 : bas;
+        if (i >= son) {
+            return GECERSIZ_ANAHTAR;
+        }
+        while (i < son - 1 && satir[i] == '0') {
+            i++; // Baştaki sıfırlar (ör. redis-benchmark'ın __rand_int__ "000000012345")
+        }
+        if (son - i > 10) {
+            return GECERSIZ_ANAHTAR;
+        }
+        long deger = 0;
+        for (; i < son; i++) {
+            int rakam = satir[i] - '0';
+            if (rakam < 0 || rakam > 9) {
+                return GECERSIZ_ANAHTAR;
+            }
+            deger = deger * 10 + rakam;
+        }
+        if (negatif) {
+            deger = -deger;
+        }
+        return deger < Integer.MIN_VALUE || deger > Integer.MAX_VALUE ? GECERSIZ_ANAHTAR : deger;
+    }
+
+    /**
+     * Baştaki ve sondaki boşluk/kontrol byte'ları (String.trim gibi, <= ' ')
+     * atıldıktan sonraki başlangıç indeksi
+     */
+    static int kirpBas(byte[] satir, int bas, int son) {
+        while (bas < son && (satir[bas] & 0xFF) <= ' ') {
+            bas++;
+        }
+        return bas;
+    }
+
+    /**
+     * Sondaki boşluk/kontrol byte'ları atıldıktan sonraki bitiş indeksi
+     */
+    static int kirpSon(byte[] satir, int bas, int son) {
+        while (son > bas && (satir[son - 1] & 0xFF) <= ' ') {
+            son--;
+        }
+        return son;
+    }
+
+    /**
+     * Birden çok anahtar alan komut mu (şerit yerine tüm şeritlerin bariyeri)
+     */
+    static boolean cokAnahtarli(int tur) {
+        return tur == MSET || tur == MGET || tur == DEL || tur == EXISTS;
+    }
+
+    /**
+     * bas'tan itibaren kucukKelime'nin harfleri var mı (uzunluk çağıranca kontrol edilir)
+     */
+    private static boolean kelime(byte[] satir, int bas, String kucukKelime) {
+        for (int i = 0; i < kucukKelime.length(); i++) {
+            if (!harf(satir[bas + i], kucukKelime.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ASCII harfi büyük/küçük harf duyarsız karşılaştırır (kucukHarf küçük olmalı)
+     */
+    private static boolean harf(byte b, char kucukHarf) {
+        return (b | 0x20) == kucukHarf;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.family;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tek bir bağlantının komut hattı (pipelining).
+ * - Komutlar anahtarlarına göre şeritlere (lane) dağıtılır; aynı anahtarın
+ * komutları aynı şeritte geliş sırasıyla çalışır, farklı şeritler paralel çalışır
+ * - Çok anahtarlı komutlar (MSET/MGET/DEL/EXISTS) tüm şeritlerin bariyeridir: öncekilerin
+ * hepsinden sonra çalışır, sonrakiler de onu bekler
+ * - Şerit, bir önceki işin future'ına zincirlenerek seri hale getirilir: ek
+ * thread ya da kuyruk yoktur
+ * - Yanıtların istek sırasıyla yazılması ve pencere (en fazla kaç komut
+ * uçuşta) çağıranın sorumluluğundadır
+ * - Thread-safe değildir: bir bağlantının komutları tek bir thread'den (ya da
+ * aynı kilit altında) verilmelidir
+ */
+class CommandPipeline {
+
+    static final int SERIT_SAYISI = 16;
+
+    private final Executor yurutucu;
+    private final Function<byte[], byte[]> komutIsleyici;
+    private final CompletableFuture<?>[] seritSonlari = new CompletableFuture<?>[SERIT_SAYISI];
+
+    CommandPipeline(Executor yurutucu, Function<byte[], byte[]> komutIsleyici) {
+        this.yurutucu = yurutucu;
+        this.komutIsleyici = komutIsleyici;
+        for (int i = 0; i < SERIT_SAYISI; i++) {
+            seritSonlari[i] = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Komutu şeridindeki son işten sonra çalışacak şekilde sıraya koyar.
+     * Dönen future her zaman "\n" ile biten bir yanıt satırıyla tamamlanır (hata da "ERROR ..." olur).
+     */
+    CompletableFuture<byte[]> calistir(byte[] komut) {
+        return calistir(seritIndeksi(komut), () -> komutIsleyici.apply(komut),
+                hata -> ("ERROR " + hataMesaji(hata) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hazır ayrıştırılmış bir işi (ör. ikili protokol frame'i) verilen şeritte
+     * sıraya koyar; serit -1 ise tüm şeritlerin bariyeri olur. İş çalıştırılamazsa
+     * (ör. havuz dolu) yanıt hataYaniti ile üretilir.
+     */
+    CompletableFuture<byte[]> calistir(int serit, Supplier<byte[]> is, Function<Throwable, byte[]> hataYaniti) {
+        CompletableFuture<?> onceki = serit < 0 ? CompletableFuture.allOf(seritSonlari) : seritSonlari[serit];
+        CompletableFuture<byte[]> sonuc = onceki
+                .handleAsync((deger, hata) -> is.get(), yurutucu)
+                .exceptionally(hataYaniti);
+        if (serit < 0) {
+            java.util.Arrays.fill(seritSonlari, sonuc);
+        } else {
+            seritSonlari[serit] = sonuc;
+        }
+        return sonuc;
+    }
+
+    static String hataMesaji(Throwable hata) {
+        Throwable sebep = hata instanceof CompletionException && hata.getCause() != null ? hata.getCause() : hata;
+        return sebep instanceof RejectedExecutionException ? "Server busy" : sebep.getMessage();
+    }
+
+    /**
+     * Komutun ikinci alanı (anahtar) üzerinden şerit seçer. Anahtarsız ya da
+     * sayı olmayan komutlar 0. şeride düşer, çok anahtarlı komutlar -1 (tüm şeritler).
+     */
+    static int seritIndeksi(byte[] komut) {
+        int bas = CommandParser.alanSonu(komut, 0, komut.length);
+        if (bas >= komut.length) {
+            return 0;
+        }
+        int tur = CommandParser.komutTuru(komut, 0, bas);
+        if (CommandParser.cokAnahtarli(tur)) {
+            return -1;
+        }
+        long anahtar = CommandParser.intAyristir(komut, bas + 1, CommandParser.alanSonu(komut, bas + 1, komut.length));
+        if (anahtar == CommandParser.GECERSIZ_ANAHTAR) {
+            return 0;
+        }
+        return anahtarSeridi((int) anahtar);
+    }
+
+    static int anahtarSeridi(int anahtar) {
+        int h = anahtar * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (SERIT_SAYISI - 1);
+    }
+}
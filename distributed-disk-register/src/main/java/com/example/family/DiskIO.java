@@ -1,193 +1,386 @@
-package com.example.family;
-
-import java.io.*;
-import java.nio.*;
-import java.nio.channels.*;
-import java.nio.file.*;
-
-/**
- * Farklı disk I/O stratejilerini uygulayan sınıf.
- * - CLASSIC: BufferedWriter (varsayılan, hızlı ama buffer'lı)
- * - UNBUFFERED: FileOutputStream (doğrudan yazma, her byte anında diske)
- * - MEMORY_MAPPED: MappedByteBuffer (zero-copy, en hızlı büyük veriler için)
- */
-public class DiskIO {
-
-    public enum Mode {
-        CLASSIC, // BufferedWriter - varsayılan Java I/O
-        UNBUFFERED, // FileOutputStream - direct write
-        MEMORY_MAPPED // MappedByteBuffer - zero-copy
-    }
-
-    private final Mode mode;
-    private final String veriDizini;
-
-    public DiskIO(Mode mode, String veriDizini) {
-        this.mode = mode;
-        this.veriDizini = veriDizini;
-
-        File klasor = new File(veriDizini);
-        if (!klasor.exists()) {
-            klasor.mkdirs();
-        }
-    }
-
-    public String getModeName() {
-        return mode.name();
-    }
-
-    /**
-     * Veriyi diske yazar - seçili moda göre farklı strateji kullanır
-     */
-    public long write(int anahtar, String deger) throws IOException {
-        File dosya = new File(veriDizini, anahtar + ".msg");
-        byte[] veri = deger.getBytes("UTF-8");
-
-        long baslangic = System.nanoTime();
-
-        switch (mode) {
-            case CLASSIC:
-                writeClassic(dosya, veri);
-                break;
-            case UNBUFFERED:
-                writeUnbuffered(dosya, veri);
-                break;
-            case MEMORY_MAPPED:
-                writeMemoryMapped(dosya, veri);
-                break;
-        }
-
-        long bitis = System.nanoTime();
-        return (bitis - baslangic) / 1000; // microseconds
-    }
-
-    /**
-     * CLASSIC: BufferedWriter kullanarak yazma
-     * - Veriyi önce buffer'a yazar, dolu olunca diske flush eder
-     * - Küçük yazmalarda verimli, büyük batch işlemlerde iyi
-     */
-    private void writeClassic(File dosya, byte[] veri) throws IOException {
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(dosya))) {
-            bos.write(veri);
-            bos.flush();
-        }
-    }
-
-    /**
-     * UNBUFFERED: Doğrudan FileOutputStream ile yazma
-     * - Her byte anında diske yazılır
-     * - Veri güvenliği yüksek ama daha yavaş
-     * - sync() ile diske zorla yazma
-     */
-    private void writeUnbuffered(File dosya, byte[] veri) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(dosya)) {
-            fos.write(veri);
-            fos.getFD().sync(); // Veriyi anında diske yaz
-        }
-    }
-
-    /**
-     * MEMORY_MAPPED: Zero-copy yazma
-     * - Dosyayı doğrudan belleğe map'ler
-     * - Kernel buffer'ı atlar, en hızlı yöntem
-     * - Büyük dosyalar için ideal
-     */
-    private void writeMemoryMapped(File dosya, byte[] veri) throws IOException {
-        try (RandomAccessFile raf = new RandomAccessFile(dosya, "rw");
-                FileChannel kanal = raf.getChannel()) {
-
-            MappedByteBuffer buffer = kanal.map(
-                    FileChannel.MapMode.READ_WRITE,
-                    0,
-                    veri.length);
-            buffer.put(veri);
-            buffer.force(); // Değişiklikleri diske yaz
-        }
-    }
-
-    /**
-     * Diskten veri okur
-     */
-    public String read(int anahtar) throws IOException {
-        File dosya = new File(veriDizini, anahtar + ".msg");
-        if (!dosya.exists()) {
-            return null;
-        }
-
-        switch (mode) {
-            case CLASSIC:
-                return readClassic(dosya);
-            case UNBUFFERED:
-                return readUnbuffered(dosya);
-            case MEMORY_MAPPED:
-                return readMemoryMapped(dosya);
-            default:
-                return readClassic(dosya);
-        }
-    }
-
-    private String readClassic(File dosya) throws IOException {
-        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(dosya))) {
-            return new String(bis.readAllBytes(), "UTF-8");
-        }
-    }
-
-    private String readUnbuffered(File dosya) throws IOException {
-        try (FileInputStream fis = new FileInputStream(dosya)) {
-            return new String(fis.readAllBytes(), "UTF-8");
-        }
-    }
-
-    private String readMemoryMapped(File dosya) throws IOException {
-        try (RandomAccessFile raf = new RandomAccessFile(dosya, "r");
-                FileChannel kanal = raf.getChannel()) {
-
-            MappedByteBuffer buffer = kanal.map(
-                    FileChannel.MapMode.READ_ONLY,
-                    0,
-                    kanal.size());
-            byte[] veri = new byte[(int) kanal.size()];
-            buffer.get(veri);
-            return new String(veri, "UTF-8");
-        }
-    }
-
-    /**
-     * Dosya var mı kontrol et
-     */
-    public boolean exists(int anahtar) {
-        return new File(veriDizini, anahtar + ".msg").exists();
-    }
-
-    /**
-     * Diskteki toplam dosya sayısını döndürür
-     */
-    public int getFileCount() {
-        File klasor = new File(veriDizini);
-        File[] dosyalar = klasor.listFiles((dir, name) -> name.endsWith(".msg"));
-        return dosyalar != null ? dosyalar.length : 0;
-    }
-
-    /**
-     * Diskteki toplam dosya boyutunu byte cinsinden döndürür
-     */
-    public long getTotalSize() {
-        File klasor = new File(veriDizini);
-        File[] dosyalar = klasor.listFiles((dir, name) -> name.endsWith(".msg"));
-        if (dosyalar == null)
-            return 0;
-
-        long toplam = 0;
-        for (File dosya : dosyalar) {
-            toplam += dosya.length();
-        }
-        return toplam;
-    }
-
-    /**
-     * Veri dizinini döndürür
-     */
-    public String getDataDirectory() {
-        return veriDizini;
-    }
-}
+package com.example.family;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Farklı disk I/O stratejilerini uygulayan sınıf.
+ * - CLASSIC: BufferedWriter (varsayılan, hızlı ama buffer'lı)
+ * - UNBUFFERED: FileOutputStream (doğrudan yazma, her byte anında diske)
+ * - MEMORY_MAPPED: MappedByteBuffer (zero-copy, en hızlı büyük veriler için)
+ * - LOG_SEGMENT: Append-only segment dosyaları (sıralı yazma, tek positioned read)
+ * - GROUP_COMMIT: LOG_SEGMENT + grup commit (eşzamanlı yazmalar tek fsync paylaşır)
+ */
+public class DiskIO {
+
+    public enum Mode {
+        CLASSIC, // BufferedWriter - varsayılan Java I/O
+        UNBUFFERED, // FileOutputStream - direct write
+        MEMORY_MAPPED, // MappedByteBuffer - zero-copy
+        LOG_SEGMENT, // SegmentStore - append-only log
+        GROUP_COMMIT // SegmentStore + GroupCommitWriter - dayanıklı, toplu fsync
+    }
+
+    public static final int VARSAYILAN_GRUP_BOYUTU = 256;
+    public static final long VARSAYILAN_GRUP_BEKLEME_MIKRO = 500;
+
+    private final Mode mode;
+    private final String veriDizini;
+    private final SegmentStore segmentStore; // LOG_SEGMENT ve GROUP_COMMIT modlarında
+    private final GroupCommitWriter grupYazici; // Sadece GROUP_COMMIT modunda
+    private final KeyIndex dosyaIndeksi; // Dosya modlarında (.msg) kalıcı anahtar indeksi
+
+    public DiskIO(Mode mode, String veriDizini) throws IOException {
+        this(mode, veriDizini, VARSAYILAN_GRUP_BOYUTU, VARSAYILAN_GRUP_BEKLEME_MIKRO);
+    }
+
+    /**
+     * @param maxGrupBoyutu   GROUP_COMMIT: tek fsync'e giren en fazla kayıt
+     * @param maxBeklemeMikro GROUP_COMMIT: grup dolmasa da en fazla bekleme süresi
+     */
+    public DiskIO(Mode mode, String veriDizini, int maxGrupBoyutu, long maxBeklemeMikro) throws IOException {
+        this.mode = mode;
+        this.veriDizini = veriDizini;
+
+        File klasor = new File(veriDizini);
+        if (!klasor.exists()) {
+            klasor.mkdirs();
+        }
+
+        this.segmentStore = segmentModu()
+                ? new SegmentStore(klasor, SegmentStore.VARSAYILAN_SEGMENT_BOYUTU)
+                : null;
+        this.grupYazici = mode == Mode.GROUP_COMMIT
+                ? new GroupCommitWriter(segmentStore, maxGrupBoyutu, maxBeklemeMikro)
+                : null;
+        this.dosyaIndeksi = segmentModu() ? null : dosyaIndeksiniYukle(klasor, mode);
+    }
+
+    /**
+     * Dosya modlarında indeksi checkpoint + günlükten yükler. İndeks hiç yoksa
+     * (eski veri dizini) .msg dosyaları bir kez paralel taranır ve checkpoint alınır.
+     * Veriyi fsync'leyen modlarda (UNBUFFERED, MEMORY_MAPPED) indeks günlüğü de fsync'lenir.
+     */
+    private static KeyIndex dosyaIndeksiniYukle(File klasor, Mode mode) throws IOException {
+        KeyIndex indeks = new KeyIndex(klasor, true, mode == Mode.UNBUFFERED || mode == Mode.MEMORY_MAPPED);
+        indeks.yukle();
+
+        if (indeks.yenidenKurulmali()) {
+            long baslangic = System.nanoTime();
+            try (Stream<Path> yollar = Files.list(klasor.toPath())) {
+                yollar.parallel()
+                        .filter(yol -> yol.getFileName().toString().endsWith(".msg"))
+                        .forEach(yol -> {
+                            String ad = yol.getFileName().toString();
+                            try {
+                                int anahtar = Integer.parseInt(ad.substring(0, ad.length() - ".msg".length()));
+                                indeks.guncelle(anahtar, new KeyIndex.Konum(-1, 0, (int) Files.size(yol), 0));
+                            } catch (NumberFormatException | IOException ignored) {
+                                // .msg olmayan ya da tarama sırasında silinen dosya
+                            }
+                        });
+            }
+            if (indeks.kayitSayisi() > 0) {
+                indeks.checkpoint(-1);
+                System.out.printf("Indeks yeniden kuruldu: %d kayit, %d ms%n",
+                        indeks.kayitSayisi(), (System.nanoTime() - baslangic) / 1_000_000);
+            }
+        }
+        return indeks;
+    }
+
+    private boolean segmentModu() {
+        return mode == Mode.LOG_SEGMENT || mode == Mode.GROUP_COMMIT;
+    }
+
+    public String getModeName() {
+        return mode.name();
+    }
+
+    /**
+     * Veriyi diske yazar - seçili moda göre farklı strateji kullanır
+     */
+    public long write(int anahtar, String deger) throws IOException {
+        return write(anahtar, deger.getBytes("UTF-8"), 0);
+    }
+
+    /**
+     * Ham byte değeri sürümüyle birlikte diske yazar (String dönüşümü yok)
+     *
+     * @return yazma süresi (mikrosaniye)
+     */
+    public long write(int anahtar, byte[] veri, long surum) throws IOException {
+        return write(anahtar, ByteBuffer.wrap(veri), surum);
+    }
+
+    /**
+     * Değeri tamponun position..limit aralığından yazar (tampon tüketilmez).
+     * Değer ara bir byte dizisine kopyalanmaz: segment modlarında büyük değerler
+     * doğrudan dosyaya yazılır.
+     *
+     * @return yazma süresi (mikrosaniye)
+     */
+    public long write(int anahtar, ByteBuffer veri, long surum) throws IOException {
+        File dosya = new File(veriDizini, anahtar + ".msg");
+
+        long baslangic = System.nanoTime();
+
+        switch (mode) {
+            case LOG_SEGMENT:
+                segmentStore.ekle(anahtar, veri, surum);
+                break;
+            case GROUP_COMMIT:
+                grupYazici.write(anahtar, veri, surum);
+                break;
+            case CLASSIC:
+                writeClassic(dosya, veri);
+                break;
+            case UNBUFFERED:
+                writeUnbuffered(dosya, veri);
+                break;
+            case MEMORY_MAPPED:
+                writeMemoryMapped(dosya, veri);
+                break;
+        }
+        if (dosyaIndeksi != null) {
+            dosyaIndeksi.kaydet(anahtar, veri.remaining(), surum);
+        }
+
+        long bitis = System.nanoTime();
+        return (bitis - baslangic) / 1000; // microseconds
+    }
+
+    /**
+     * Kaydı siler. Segment modlarında silme kaydı (tombstone) eklenir,
+     * dosya modlarında .msg dosyası silinip indeks günlüğüne işlenir.
+     * Silme sürümü kayıt yoksa da tutulur (bkz. getDeletedVersion): DEL,
+     * kendinden önceki bir SET'in replikasyonundan önce ulaşmış olabilir.
+     *
+     * @return kayıt vardıysa true
+     */
+    public boolean delete(int anahtar, long surum) throws IOException {
+        boolean vardi = exists(anahtar);
+        if (segmentModu()) {
+            segmentStore.sil(anahtar, surum, mode == Mode.GROUP_COMMIT);
+            return vardi;
+        }
+        if (vardi) {
+            Files.deleteIfExists(new File(veriDizini, anahtar + ".msg").toPath());
+        }
+        dosyaIndeksi.kaydet(anahtar, KeyIndex.SILINDI, surum);
+        return vardi;
+    }
+
+    /**
+     * Birden çok kaydı sırayla yazar. Segment modlarında tüm kayıtlar tek
+     * seferde eklenir ve tek fsync paylaşır; dosya modlarında tek tek yazılır.
+     *
+     * @return yazma süresi (mikrosaniye)
+     */
+    public long writeBatch(int[] anahtarlar, ByteBuffer[] degerler, long[] surumler, int adet) throws IOException {
+        if (!segmentModu()) {
+            long toplam = 0;
+            for (int i = 0; i < adet; i++) {
+                toplam += write(anahtarlar[i], degerler[i], surumler[i]);
+            }
+            return toplam;
+        }
+
+        long baslangic = System.nanoTime();
+        segmentStore.topluEkle(anahtarlar, degerler, surumler, adet);
+        return (System.nanoTime() - baslangic) / 1000;
+    }
+
+    /**
+     * CLASSIC: BufferedWriter kullanarak yazma
+     * - Veriyi önce buffer'a yazar, dolu olunca diske flush eder
+     * - Küçük yazmalarda verimli, büyük batch işlemlerde iyi
+     */
+    private void writeClassic(File dosya, ByteBuffer veri) throws IOException {
+        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(dosya))) {
+            akisaYaz(bos, veri);
+            bos.flush();
+        }
+    }
+
+    /**
+     * UNBUFFERED: Doğrudan FileOutputStream ile yazma
+     * - Her byte anında diske yazılır
+     * - Veri güvenliği yüksek ama daha yavaş
+     * - sync() ile diske zorla yazma
+     */
+    private void writeUnbuffered(File dosya, ByteBuffer veri) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(dosya)) {
+            akisaYaz(fos, veri);
+            fos.getFD().sync(); // Veriyi anında diske yaz
+        }
+    }
+
+    /**
+     * MEMORY_MAPPED: Zero-copy yazma
+     * - Dosyayı doğrudan belleğe map'ler
+     * - Kernel buffer'ı atlar, en hızlı yöntem
+     * - Büyük dosyalar için ideal
+     */
+    private void writeMemoryMapped(File dosya, ByteBuffer veri) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(dosya, "rw");
+                FileChannel kanal = raf.getChannel()) {
+
+            MappedByteBuffer buffer = kanal.map(
+                    FileChannel.MapMode.READ_WRITE,
+                    0,
+                    veri.remaining());
+            buffer.put(veri.duplicate());
+            buffer.force(); // Değişiklikleri diske yaz
+        }
+    }
+
+    /**
+     * Tamponu akışa yazar; dizi destekliyse kopyasız, değilse (read-only/direct) tek kopya ile
+     */
+    private static void akisaYaz(OutputStream cikis, ByteBuffer veri) throws IOException {
+        if (veri.hasArray()) {
+            cikis.write(veri.array(), veri.arrayOffset() + veri.position(), veri.remaining());
+        } else {
+            byte[] kopya = new byte[veri.remaining()];
+            veri.duplicate().get(kopya);
+            cikis.write(kopya);
+        }
+    }
+
+    /**
+     * Diskten veri okur
+     */
+    public String read(int anahtar) throws IOException {
+        byte[] veri = readBytes(anahtar);
+        return veri != null ? new String(veri, "UTF-8") : null;
+    }
+
+    /**
+     * Diskten ham byte değeri okur, kayıt yoksa null
+     */
+    public byte[] readBytes(int anahtar) throws IOException {
+        if (segmentModu()) {
+            return segmentStore.oku(anahtar);
+        }
+
+        // İndekste olmayan anahtar için dosya sistemine hiç gidilmez
+        if (!dosyaIndeksi.icerir(anahtar)) {
+            return null;
+        }
+        File dosya = new File(veriDizini, anahtar + ".msg");
+        if (!dosya.exists()) {
+            return null;
+        }
+
+        switch (mode) {
+            case CLASSIC:
+                return readClassic(dosya);
+            case UNBUFFERED:
+                return readUnbuffered(dosya);
+            case MEMORY_MAPPED:
+                return readMemoryMapped(dosya);
+            default:
+                return readClassic(dosya);
+        }
+    }
+
+    private byte[] readClassic(File dosya) throws IOException {
+        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(dosya))) {
+            return bis.readAllBytes();
+        }
+    }
+
+    private byte[] readUnbuffered(File dosya) throws IOException {
+        try (FileInputStream fis = new FileInputStream(dosya)) {
+            return fis.readAllBytes();
+        }
+    }
+
+    private byte[] readMemoryMapped(File dosya) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(dosya, "r");
+                FileChannel kanal = raf.getChannel()) {
+
+            MappedByteBuffer buffer = kanal.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    0,
+                    kanal.size());
+            byte[] veri = new byte[(int) kanal.size()];
+            buffer.get(veri);
+            return veri;
+        }
+    }
+
+    /**
+     * Kaydın sürümünü döndürür, kayıt yoksa -1 - indeksten, O(1)
+     */
+    public long getVersion(int anahtar) {
+        if (segmentModu()) {
+            return segmentStore.surum(anahtar);
+        }
+        KeyIndex.Konum konum = dosyaIndeksi.get(anahtar);
+        return konum != null ? konum.surum : -1;
+    }
+
+    /**
+     * Anahtarın son silme sürümü, silinmemişse (ya da sonra yeniden yazıldıysa) -1.
+     * Bu sürümden eski yazmalar uygulanmamalıdır.
+     */
+    public long getDeletedVersion(int anahtar) {
+        if (segmentModu()) {
+            return segmentStore.silmeSurumu(anahtar);
+        }
+        return dosyaIndeksi.silmeSurumu(anahtar);
+    }
+
+    /**
+     * Dosya var mı kontrol et
+     */
+    public boolean exists(int anahtar) {
+        if (segmentModu()) {
+            return segmentStore.icerir(anahtar);
+        }
+        return dosyaIndeksi.icerir(anahtar);
+    }
+
+    /**
+     * Diskteki toplam dosya (kayıt) sayısını döndürür - indeks sayacından, O(1)
+     */
+    public int getFileCount() {
+        if (segmentModu()) {
+            return segmentStore.kayitSayisi();
+        }
+        return dosyaIndeksi.kayitSayisi();
+    }
+
+    /**
+     * Diskteki toplam veri boyutunu byte cinsinden döndürür - indeks sayacından, O(1)
+     */
+    public long getTotalSize() {
+        if (segmentModu()) {
+            return segmentStore.toplamBayt();
+        }
+        return dosyaIndeksi.toplamBayt();
+    }
+
+    /**
+     * Diskteki kayıtların (anahtar, konum/uzunluk/sürüm) gezicisi - indeksten, dosya
+     * açılmaz. Zayıf tutarlıdır: eşzamanlı yazmalar görülebilir ya da görülmeyebilir,
+     * gezici uzun süre (ör. akış boyunca) tutulabilir.
+     */
+    Iterator<Map.Entry<Integer, KeyIndex.Konum>> keyIterator() {
+        return (segmentModu() ? segmentStore.indeks() : dosyaIndeksi).iterator();
+    }
+
+    /**
+     * Veri dizinini döndürür
+     */
+    public String getDataDirectory() {
+        return veriDizini;
+    }
+}
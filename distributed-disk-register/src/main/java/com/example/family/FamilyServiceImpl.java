@@ -1,32 +1,84 @@
 package com.example.family;
 
+import family.ClusterView;
 import family.Empty;
 import family.FamilyServiceGrpc;
 import family.FamilyView;
+import family.KeyChunk;
+import family.ListKeysRequest;
+import family.KeyPlacement;
+import family.LocateRequest;
+import family.LocateResponse;
 import family.NodeInfo;
 import family.ChatMessage;
+import family.PutRequest;
+import family.PutResponse;
+import family.RouteStatus;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
 
     private final NodeRegistry kayitci;
     private final NodeInfo kendim;
     private final DiskIO diskIO;
-    private final ConcurrentHashMap<Integer, String> bellek;
+    private final ValueCache bellek;
+    private final ClientRouter yonlendirici;
+    private static final int VARSAYILAN_ANAHTAR_PARCASI = 8192; // ListKeys: parça başına anahtar
+    private static final int MAX_ANAHTAR_PARCASI = 65536;
     private static final DateTimeFormatter ZAMAN_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
 
+    /**
+     * Akıllı istemci RPC'lerinin (Put, Locate) leader'daki karşılığı - NodeMain sağlar
+     */
+    interface ClientRouter {
+        boolean liderMiyim();
+
+        /**
+         * Bilinen leader (leader'da kendisi)
+         */
+        NodeInfo lider();
+
+        /**
+         * Hash halkasının sanal düğüm sayısı, halka yerleşimi kapalıysa 0
+         */
+        int sanalDugumSayisi();
+
+        int replikaSayisi();
+
+        /**
+         * Değeri leader'ın SET yoluyla replike eder
+         *
+         * @return değeri onaylayan replikalar
+         * @throws IOException replikasyon başarısızsa (mesaj istemciye döner)
+         */
+        List<NodeInfo> yaz(int anahtar, ByteString deger) throws IOException;
+
+        /**
+         * Anahtarın bilinen replikaları, bilinmiyorsa boş liste
+         */
+        List<NodeInfo> konumlar(int anahtar);
+    }
+
     public FamilyServiceImpl(NodeRegistry kayitci, NodeInfo kendim, DiskIO diskIO,
-            ConcurrentHashMap<Integer, String> bellek) {
+            ValueCache bellek, ClientRouter yonlendirici) {
         this.kayitci = kayitci;
         this.kendim = kendim;
         this.diskIO = diskIO;
         this.bellek = bellek;
+        this.yonlendirici = yonlendirici;
         this.kayitci.add(kendim);
     }
 
@@ -67,7 +119,7 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
                     String deger = parcalar[2];
 
                     // Belleğe kaydet
-                    bellek.put(anahtar, deger);
+                    bellek.put(anahtar, ByteString.copyFromUtf8(deger));
 
                     // Diske kaydet
                     long writeTimeUs = diskIO.write(anahtar, deger);
@@ -105,12 +157,13 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
     @Override
     public void getValue(family.KeyRequest istek, StreamObserver<family.ValueResponse> cevapGozlemci) {
         int anahtar = istek.getKey();
-        String deger = bellek.get(anahtar);
+        ByteString deger = bellek.get(anahtar);
 
         if (deger == null) {
             try {
-                deger = diskIO.read(anahtar);
-                if (deger != null) {
+                byte[] veri = diskIO.readBytes(anahtar);
+                if (veri != null) {
+                    deger = UnsafeByteOperations.unsafeWrap(veri); // Dizi başka yerde tutulmaz
                     bellek.put(anahtar, deger);
                 }
             } catch (Exception e) {
@@ -120,7 +173,7 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
 
         family.ValueResponse yanit = family.ValueResponse.newBuilder()
                 .setKey(anahtar)
-                .setValue(deger != null ? deger : "")
+                .setValue(deger != null ? deger.toStringUtf8() : "") // ValueResponse metin alanıdır
                 .setFound(deger != null)
                 .build();
 
@@ -129,7 +182,86 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
     }
 
     /**
-     * Depolama bilgisi döner - leader'ın yük dengeleme yapabilmesi için
+     * Düğümün envanteri: istenen hash aralığındaki anahtarlar boyut ve sürümleriyle,
+     * pageSize'lık parçalar halinde.
+     * - Depolama indeksinden okunur, veri dosyası açılmaz
+     * - Akış kontrollüdür: istemci okudukça (onReady) yeni parça üretilir, tüm
+     * envanter sunucu belleğinde birikmez
+     * - Zayıf tutarlıdır: akış sırasında yazılan/silinen anahtarlar görülebilir
+     * ya da görülmeyebilir
+     */
+    @Override
+    public void listKeys(ListKeysRequest istek, StreamObserver<KeyChunk> cevapGozlemci) {
+        ServerCallStreamObserver<KeyChunk> akis = (ServerCallStreamObserver<KeyChunk>) cevapGozlemci;
+        int parcaBoyutu = istek.getPageSize() > 0
+                ? Math.min(istek.getPageSize(), MAX_ANAHTAR_PARCASI)
+                : VARSAYILAN_ANAHTAR_PARCASI;
+        long bas = istek.getHashStart();
+        long son = istek.getHashEnd();
+        Iterator<Map.Entry<Integer, KeyIndex.Konum>> gezici = diskIO.keyIterator();
+        boolean[] bitti = {false};
+
+        // onReady handler'ı gRPC tarafından seri çağrılır, aynı anda iki kez çalışmaz
+        Runnable gonder = () -> {
+            while (!bitti[0] && akis.isReady()) {
+                KeyChunk parca = parcaOlustur(gezici, bas, son, parcaBoyutu);
+                if (parca.getKeysCount() > 0) {
+                    akis.onNext(parca);
+                }
+                if (!gezici.hasNext()) {
+                    bitti[0] = true;
+                    akis.onCompleted();
+                }
+            }
+        };
+        akis.setOnCancelHandler(() -> bitti[0] = true);
+        akis.setOnReadyHandler(gonder);
+    }
+
+    /**
+     * Geziciden aralıktaki en fazla adet kaydı okur; sürümler parçanın en küçük
+     * sürümüne göre fark olarak yazılır (varint'te kısa kodlanır)
+     */
+    private static KeyChunk parcaOlustur(Iterator<Map.Entry<Integer, KeyIndex.Konum>> gezici,
+            long bas, long son, int adet) {
+        int[] anahtarlar = new int[adet];
+        int[] boyutlar = new int[adet];
+        long[] surumler = new long[adet];
+        int n = 0;
+        long enKucukSurum = Long.MAX_VALUE;
+        while (n < adet && gezici.hasNext()) {
+            Map.Entry<Integer, KeyIndex.Konum> giris = gezici.next();
+            int anahtar = giris.getKey();
+            if (!aralikta(HashRing.anahtarHash(anahtar), bas, son)) {
+                continue;
+            }
+            KeyIndex.Konum konum = giris.getValue();
+            anahtarlar[n] = anahtar;
+            boyutlar[n] = konum.uzunluk;
+            surumler[n] = konum.surum;
+            enKucukSurum = Math.min(enKucukSurum, konum.surum);
+            n++;
+        }
+        KeyChunk.Builder parca = KeyChunk.newBuilder().setBaseVersion(n > 0 ? enKucukSurum : 0);
+        for (int i = 0; i < n; i++) {
+            parca.addKeys(anahtarlar[i]).addSizes(boyutlar[i]).addVersionDeltas(surumler[i] - enKucukSurum);
+        }
+        return parca.build();
+    }
+
+    /**
+     * [bas, son) halka aralığında mı; son < bas ise başa sarar, bas == son tüm halka
+     */
+    static boolean aralikta(long hash, long bas, long son) {
+        if (bas == son) {
+            return true;
+        }
+        return bas < son ? hash >= bas && hash < son : hash >= bas || hash < son;
+    }
+
+    /**
+     * Depolama bilgisi döner - leader'ın yük dengeleme yapabilmesi için.
+     * Değerler DiskIO'nun artımlı sayaçlarından gelir, dosya sistemi taranmaz.
      */
     @Override
     public void getStorageInfo(Empty istek, StreamObserver<family.StorageInfo> cevapGozlemci) {
@@ -146,4 +278,53 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
         cevapGozlemci.onNext(bilgi);
         cevapGozlemci.onCompleted();
     }
+
+    @Override
+    public void getClusterView(Empty istek, StreamObserver<ClusterView> cevapGozlemci) {
+        cevapGozlemci.onNext(ClusterView.newBuilder()
+                .setLeader(yonlendirici.lider())
+                .addAllMembers(kayitci.snapshot())
+                .setVirtualNodes(yonlendirici.sanalDugumSayisi())
+                .setReplicas(yonlendirici.replikaSayisi())
+                .build());
+        cevapGozlemci.onCompleted();
+    }
+
+    /**
+     * Anahtarların replika konumları - sadece leader bilir, follower NOT_LEADER döner
+     */
+    @Override
+    public void locate(LocateRequest istek, StreamObserver<LocateResponse> cevapGozlemci) {
+        LocateResponse.Builder yanit = LocateResponse.newBuilder().setLeader(yonlendirici.lider());
+        if (!yonlendirici.liderMiyim()) {
+            yanit.setStatus(RouteStatus.NOT_LEADER);
+        } else {
+            for (int anahtar : istek.getKeysList()) {
+                yanit.addPlacements(KeyPlacement.newBuilder()
+                        .setKey(anahtar)
+                        .addAllReplicas(yonlendirici.konumlar(anahtar)));
+            }
+        }
+        cevapGozlemci.onNext(yanit.build());
+        cevapGozlemci.onCompleted();
+    }
+
+    /**
+     * İstemci yazması - leader'da SET gibi replike edilir, follower NOT_LEADER döner
+     */
+    @Override
+    public void put(PutRequest istek, StreamObserver<PutResponse> cevapGozlemci) {
+        PutResponse.Builder yanit = PutResponse.newBuilder().setLeader(yonlendirici.lider());
+        if (!yonlendirici.liderMiyim()) {
+            yanit.setStatus(RouteStatus.NOT_LEADER);
+        } else {
+            try {
+                yanit.addAllReplicas(yonlendirici.yaz(istek.getKey(), istek.getValue()));
+            } catch (IOException e) {
+                yanit.setStatus(RouteStatus.ERROR).setError(String.valueOf(e.getMessage()));
+            }
+        }
+        cevapGozlemci.onNext(yanit.build());
+        cevapGozlemci.onCompleted();
+    }
 }
@@ -0,0 +1,124 @@
+package com.example.family;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grup commit yazıcısı (GROUP_COMMIT modu).
+ * - Eşzamanlı write() çağrıları kayıtlarını kuyruğa bırakır
+ * - Tek bir flusher thread kuyruktan bir grup toplar, segment'e ekler ve tek fsync yapar
+ * - Her çağıran, kendi kaydının bulunduğu grup diske kalıcı yazılınca geri döner
+ * - maxGrupBoyutu / maxBekleme ile gecikme ve throughput arasında denge kurulur
+ */
+class GroupCommitWriter {
+
+    private static final class Istek {
+        final int anahtar;
+        final ByteBuffer deger;
+        final long surum;
+        final CompletableFuture<Void> sonuc = new CompletableFuture<>();
+
+        Istek(int anahtar, ByteBuffer deger, long surum) {
+            this.anahtar = anahtar;
+            this.deger = deger;
+            this.surum = surum;
+        }
+    }
+
+    private final SegmentStore store;
+    private final int maxGrupBoyutu;
+    private final long maxBeklemeNanos;
+    private final LinkedBlockingQueue<Istek> kuyruk = new LinkedBlockingQueue<>();
+
+    GroupCommitWriter(SegmentStore store, int maxGrupBoyutu, long maxBeklemeMikro) {
+        this.store = store;
+        this.maxGrupBoyutu = Math.max(1, maxGrupBoyutu);
+        this.maxBeklemeNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxBeklemeMikro));
+
+        Thread flusher = new Thread(this::flusherDongusu, "GroupCommitFlusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Kaydı kuyruğa bırakır ve grubu kalıcı olarak yazılana kadar bekler
+     */
+    void write(int anahtar, ByteBuffer deger, long surum) throws IOException {
+        Istek istek = new Istek(anahtar, deger, surum);
+        kuyruk.add(istek);
+        try {
+            istek.sonuc.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Grup commit beklenirken kesildi", e);
+        } catch (ExecutionException e) {
+            Throwable sebep = e.getCause();
+            throw sebep instanceof IOException ? (IOException) sebep : new IOException(sebep);
+        }
+    }
+
+    private void flusherDongusu() {
+        List<Istek> grup = new ArrayList<>(maxGrupBoyutu);
+        int[] anahtarlar = new int[maxGrupBoyutu];
+        ByteBuffer[] degerler = new ByteBuffer[maxGrupBoyutu];
+        long[] surumler = new long[maxGrupBoyutu];
+
+        while (true) {
+            try {
+                grupTopla(grup);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            for (int i = 0; i < grup.size(); i++) {
+                anahtarlar[i] = grup.get(i).anahtar;
+                degerler[i] = grup.get(i).deger;
+                surumler[i] = grup.get(i).surum;
+            }
+
+            try {
+                store.topluEkle(anahtarlar, degerler, surumler, grup.size());
+                for (Istek istek : grup) {
+                    istek.sonuc.complete(null);
+                }
+            } catch (Throwable t) {
+                for (Istek istek : grup) {
+                    istek.sonuc.completeExceptionally(t);
+                }
+            }
+
+            grup.clear();
+            Arrays.fill(degerler, null);
+        }
+    }
+
+    /**
+     * İlk kaydı bloklayarak bekler, sonra grup dolana ya da bekleme süresi
+     * dolana kadar yeni kayıtları toplar
+     */
+    private void grupTopla(List<Istek> grup) throws InterruptedException {
+        grup.add(kuyruk.take());
+        kuyruk.drainTo(grup, maxGrupBoyutu - grup.size());
+
+        long sonZaman = System.nanoTime() + maxBeklemeNanos;
+        while (grup.size() < maxGrupBoyutu) {
+            long kalan = sonZaman - System.nanoTime();
+            if (kalan <= 0) {
+                break;
+            }
+            Istek sonraki = kuyruk.poll(kalan, TimeUnit.NANOSECONDS);
+            if (sonraki == null) {
+                break;
+            }
+            grup.add(sonraki);
+            kuyruk.drainTo(grup, maxGrupBoyutu - grup.size());
+        }
+    }
+}
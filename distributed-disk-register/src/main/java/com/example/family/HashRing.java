@@ -0,0 +1,123 @@
+package com.example.family;
+
+import family.NodeInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sanal düğümlü tutarlı hash halkası (consistent hashing).
+ * - Her üye halkaya sanalDugumSayisi kadar noktayla yerleşir; anahtarın
+ * replikaları, anahtarın hash'inden saat yönünde ilerlerken rastlanan ilk
+ * farklı üyelerdir
+ * - Anahtar başına metadata tutulmaz: aynı üye listesi ve sanal düğüm sayısıyla
+ * her düğüm ve istemci aynı yerleşimi O(log n) ile hesaplar
+ * - Hash'ler JVM'den bağımsızdır (String.hashCode değil, FNV-1a + murmur3 fmix64)
+ * - Üye eklenip çıkınca sadece o üyenin komşu aralıklarındaki anahtarlar taşınır
+ * - Değişmezdir (immutable); üyelik değişince yenisi kurulur
+ */
+public final class HashRing {
+
+    public static final int VARSAYILAN_SANAL_DUGUM = 128;
+
+    private final long[] noktalar; // Sıralı
+    private final NodeInfo[] sahipler; // noktalar[i]'nin üyesi
+    private final int uyeSayisi;
+
+    public HashRing(Collection<NodeInfo> uyeler, int sanalDugumSayisi) {
+        int adet = uyeler.size() * sanalDugumSayisi;
+        long[] hamNoktalar = new long[adet];
+        NodeInfo[] hamSahipler = new NodeInfo[adet];
+        int i = 0;
+        for (NodeInfo uye : uyeler) {
+            for (int v = 0; v < sanalDugumSayisi; v++) {
+                hamNoktalar[i] = noktaHash(uye, v);
+                hamSahipler[i] = uye;
+                i++;
+            }
+        }
+
+        // Noktaları sahipleriyle birlikte sırala
+        Integer[] sira = new Integer[adet];
+        for (int k = 0; k < adet; k++) {
+            sira[k] = k;
+        }
+        Arrays.sort(sira, (a, b) -> Long.compare(hamNoktalar[a], hamNoktalar[b]));
+        this.noktalar = new long[adet];
+        this.sahipler = new NodeInfo[adet];
+        for (int k = 0; k < adet; k++) {
+            noktalar[k] = hamNoktalar[sira[k]];
+            sahipler[k] = hamSahipler[sira[k]];
+        }
+        this.uyeSayisi = uyeler.size();
+    }
+
+    public boolean isEmpty() {
+        return uyeSayisi == 0;
+    }
+
+    /**
+     * Anahtarın en fazla adet farklı üyeden oluşan replika listesi; ilk eleman
+     * birincil replikadır
+     */
+    public List<NodeInfo> replicas(int anahtar, int adet) {
+        int hedef = Math.min(adet, uyeSayisi);
+        List<NodeInfo> replikalar = new ArrayList<>(hedef);
+        if (hedef == 0) {
+            return replikalar;
+        }
+        int i = baslangicIndeksi(anahtarHash(anahtar));
+        while (replikalar.size() < hedef) {
+            NodeInfo sahip = sahipler[i];
+            if (!replikalar.contains(sahip)) {
+                replikalar.add(sahip);
+            }
+            i = i + 1 == noktalar.length ? 0 : i + 1;
+        }
+        return replikalar;
+    }
+
+    /**
+     * Anahtarın birincil replikası, halka boşsa null
+     */
+    public NodeInfo primary(int anahtar) {
+        return uyeSayisi == 0 ? null : sahipler[baslangicIndeksi(anahtarHash(anahtar))];
+    }
+
+    /**
+     * hash'ten büyük ya da eşit ilk noktanın indeksi (sonda başa sarar)
+     */
+    private int baslangicIndeksi(long hash) {
+        int i = Arrays.binarySearch(noktalar, hash);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return i == noktalar.length ? 0 : i;
+    }
+
+    static long anahtarHash(int anahtar) {
+        return fmix64(anahtar);
+    }
+
+    private static long noktaHash(NodeInfo uye, int sanalIndeks) {
+        byte[] ad = (uye.getHost() + ":" + uye.getPort() + "#" + sanalIndeks).getBytes(StandardCharsets.UTF_8);
+        long h = 0xcbf29ce484222325L;
+        for (byte b : ad) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return fmix64(h);
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.family;
+
+import java.util.Arrays;
+
+/**
+ * int -> int primitive hash map (open addressing, linear probing).
+ * - Anahtar ve değerler boxing yapılmadan düz int dizilerinde tutulur
+ * - Silmede backward-shift yapılır, tombstone birikmez
+ * - 0 anahtarı boş hücre işareti olduğu için ayrı alanda saklanır
+ * - Thread-safe değildir, senkronizasyon çağıranın sorumluluğundadır
+ */
+class IntIntHashMap {
+
+    static final int YOK = Integer.MIN_VALUE; // get() bulunamayan anahtar için bunu döner
+
+    private static final int BOS = 0;
+    private static final float DOLULUK_ORANI = 0.6f;
+
+    private int[] anahtarlar;
+    private int[] degerler;
+    private int maske;
+    private int boyut;
+    private int buyumeSiniri;
+
+    private boolean sifirVar;
+    private int sifirDegeri;
+
+    IntIntHashMap(int baslangicKapasitesi) {
+        int kapasite = Integer.highestOneBit(Math.max(4, (int) (baslangicKapasitesi / DOLULUK_ORANI)) - 1) << 1;
+        tablolariAyir(kapasite);
+    }
+
+    private void tablolariAyir(int kapasite) {
+        anahtarlar = new int[kapasite];
+        degerler = new int[kapasite];
+        maske = kapasite - 1;
+        buyumeSiniri = (int) (kapasite * DOLULUK_ORANI);
+    }
+
+    int get(int anahtar) {
+        if (anahtar == BOS) {
+            return sifirVar ? sifirDegeri : YOK;
+        }
+        int i = hucre(anahtar);
+        while (true) {
+            int k = anahtarlar[i];
+            if (k == anahtar) {
+                return degerler[i];
+            }
+            if (k == BOS) {
+                return YOK;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    boolean containsKey(int anahtar) {
+        return get(anahtar) != YOK;
+    }
+
+    /**
+     * @return önceki değer, yoksa YOK
+     */
+    int put(int anahtar, int deger) {
+        if (anahtar == BOS) {
+            int onceki = sifirVar ? sifirDegeri : YOK;
+            if (!sifirVar) {
+                boyut++;
+            }
+            sifirVar = true;
+            sifirDegeri = deger;
+            return onceki;
+        }
+        int i = hucre(anahtar);
+        while (true) {
+            int k = anahtarlar[i];
+            if (k == anahtar) {
+                int onceki = degerler[i];
+                degerler[i] = deger;
+                return onceki;
+            }
+            if (k == BOS) {
+                anahtarlar[i] = anahtar;
+                degerler[i] = deger;
+                if (++boyut > buyumeSiniri) {
+                    buyut();
+                }
+                return YOK;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    /**
+     * @return silinen değer, yoksa YOK
+     */
+    int remove(int anahtar) {
+        if (anahtar == BOS) {
+            if (!sifirVar) {
+                return YOK;
+            }
+            sifirVar = false;
+            boyut--;
+            return sifirDegeri;
+        }
+        int i = hucre(anahtar);
+        while (true) {
+            int k = anahtarlar[i];
+            if (k == BOS) {
+                return YOK;
+            }
+            if (k == anahtar) {
+                int onceki = degerler[i];
+                geriKaydir(i);
+                boyut--;
+                return onceki;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    /**
+     * Silinen hücreden sonraki zinciri geri kaydırır (tombstone'suz silme)
+     */
+    private void geriKaydir(int bosluk) {
+        int i = bosluk;
+        while (true) {
+            i = (i + 1) & maske;
+            int k = anahtarlar[i];
+            if (k == BOS) {
+                break;
+            }
+            int ideal = hucre(k);
+            // k, boşluk ile i arasında ideal konumuna sahip değilse boşluğa taşınabilir
+            if (((i - ideal) & maske) >= ((i - bosluk) & maske)) {
+                anahtarlar[bosluk] = k;
+                degerler[bosluk] = degerler[i];
+                bosluk = i;
+            }
+        }
+        anahtarlar[bosluk] = BOS;
+    }
+
+    int size() {
+        return boyut;
+    }
+
+    void clear() {
+        Arrays.fill(anahtarlar, BOS);
+        sifirVar = false;
+        boyut = 0;
+    }
+
+    /**
+     * Tablonun heap üzerindeki yaklaşık boyutu (byte)
+     */
+    long bellekBoyutu() {
+        return 2L * 4 * anahtarlar.length;
+    }
+
+    interface Ziyaretci {
+        void ziyaret(int anahtar, int deger);
+    }
+
+    void forEach(Ziyaretci ziyaretci) {
+        if (sifirVar) {
+            ziyaretci.ziyaret(BOS, sifirDegeri);
+        }
+        for (int i = 0; i < anahtarlar.length; i++) {
+            if (anahtarlar[i] != BOS) {
+                ziyaretci.ziyaret(anahtarlar[i], degerler[i]);
+            }
+        }
+    }
+
+    private void buyut() {
+        int[] eskiAnahtarlar = anahtarlar;
+        int[] eskiDegerler = degerler;
+        tablolariAyir(eskiAnahtarlar.length << 1);
+        boyut = sifirVar ? 1 : 0;
+        for (int i = 0; i < eskiAnahtarlar.length; i++) {
+            if (eskiAnahtarlar[i] != BOS) {
+                put(eskiAnahtarlar[i], eskiDegerler[i]);
+            }
+        }
+    }
+
+    private int hucre(int anahtar) {
+        int h = anahtar * 0x9E3779B9; // Fibonacci hashing
+        return (h ^ (h >>> 16)) & maske;
+    }
+}
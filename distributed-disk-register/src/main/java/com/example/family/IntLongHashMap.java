@@ -0,0 +1,187 @@
+package com.example.family;
+
+import java.util.Arrays;
+
+/**
+ * int -> long primitive hash map (open addressing, linear probing).
+ * - IntIntHashMap ile aynı düzen; değerler long (ör. sürüm) olduğunda kullanılır
+ * - 0 anahtarı boş hücre işareti olduğu için ayrı alanda saklanır
+ * - Thread-safe değildir, senkronizasyon çağıranın sorumluluğundadır
+ */
+class IntLongHashMap {
+
+    static final long YOK = Long.MIN_VALUE; // get() bulunamayan anahtar için bunu döner
+
+    private static final int BOS = 0;
+    private static final float DOLULUK_ORANI = 0.6f;
+
+    private int[] anahtarlar;
+    private long[] degerler;
+    private int maske;
+    private int boyut;
+    private int buyumeSiniri;
+
+    private boolean sifirVar;
+    private long sifirDegeri;
+
+    IntLongHashMap(int baslangicKapasitesi) {
+        int kapasite = Integer.highestOneBit(Math.max(4, (int) (baslangicKapasitesi / DOLULUK_ORANI)) - 1) << 1;
+        tablolariAyir(kapasite);
+    }
+
+    private void tablolariAyir(int kapasite) {
+        anahtarlar = new int[kapasite];
+        degerler = new long[kapasite];
+        maske = kapasite - 1;
+        buyumeSiniri = (int) (kapasite * DOLULUK_ORANI);
+    }
+
+    long get(int anahtar) {
+        if (anahtar == BOS) {
+            return sifirVar ? sifirDegeri : YOK;
+        }
+        int i = hucre(anahtar);
+        while (true) {
+            int k = anahtarlar[i];
+            if (k == anahtar) {
+                return degerler[i];
+            }
+            if (k == BOS) {
+                return YOK;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    boolean containsKey(int anahtar) {
+        return get(anahtar) != YOK;
+    }
+
+    /**
+     * @return önceki değer, yoksa YOK
+     */
+    long put(int anahtar, long deger) {
+        if (anahtar == BOS) {
+            long onceki = sifirVar ? sifirDegeri : YOK;
+            if (!sifirVar) {
+                boyut++;
+            }
+            sifirVar = true;
+            sifirDegeri = deger;
+            return onceki;
+        }
+        int i = hucre(anahtar);
+        while (true) {
+            int k = anahtarlar[i];
+            if (k == anahtar) {
+                long onceki = degerler[i];
+                degerler[i] = deger;
+                return onceki;
+            }
+            if (k == BOS) {
+                anahtarlar[i] = anahtar;
+                degerler[i] = deger;
+                if (++boyut > buyumeSiniri) {
+                    buyut();
+                }
+                return YOK;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    /**
+     * @return silinen değer, yoksa YOK
+     */
+    long remove(int anahtar) {
+        if (anahtar == BOS) {
+            if (!sifirVar) {
+                return YOK;
+            }
+            sifirVar = false;
+            boyut--;
+            return sifirDegeri;
+        }
+        int i = hucre(anahtar);
+        while (true) {
+            int k = anahtarlar[i];
+            if (k == BOS) {
+                return YOK;
+            }
+            if (k == anahtar) {
+                long onceki = degerler[i];
+                geriKaydir(i);
+                boyut--;
+                return onceki;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    private void geriKaydir(int bosluk) {
+        int i = bosluk;
+        while (true) {
+            i = (i + 1) & maske;
+            int k = anahtarlar[i];
+            if (k == BOS) {
+                break;
+            }
+            int ideal = hucre(k);
+            if (((i - ideal) & maske) >= ((i - bosluk) & maske)) {
+                anahtarlar[bosluk] = k;
+                degerler[bosluk] = degerler[i];
+                bosluk = i;
+            }
+        }
+        anahtarlar[bosluk] = BOS;
+    }
+
+    int size() {
+        return boyut;
+    }
+
+    void clear() {
+        Arrays.fill(anahtarlar, BOS);
+        sifirVar = false;
+        boyut = 0;
+    }
+
+    /**
+     * Tablonun heap üzerindeki yaklaşık boyutu (byte)
+     */
+    long bellekBoyutu() {
+        return (4L + 8) * anahtarlar.length;
+    }
+
+    interface Ziyaretci {
+        void ziyaret(int anahtar, long deger);
+    }
+
+    void forEach(Ziyaretci ziyaretci) {
+        if (sifirVar) {
+            ziyaretci.ziyaret(BOS, sifirDegeri);
+        }
+        for (int i = 0; i < anahtarlar.length; i++) {
+            if (anahtarlar[i] != BOS) {
+                ziyaretci.ziyaret(anahtarlar[i], degerler[i]);
+            }
+        }
+    }
+
+    private void buyut() {
+        int[] eskiAnahtarlar = anahtarlar;
+        long[] eskiDegerler = degerler;
+        tablolariAyir(eskiAnahtarlar.length << 1);
+        boyut = sifirVar ? 1 : 0;
+        for (int i = 0; i < eskiAnahtarlar.length; i++) {
+            if (eskiAnahtarlar[i] != BOS) {
+                put(eskiAnahtarlar[i], eskiDegerler[i]);
+            }
+        }
+    }
+
+    private int hucre(int anahtar) {
+        int h = anahtar * 0x9E3779B9; // Fibonacci hashing
+        return (h ^ (h >>> 16)) & maske;
+    }
+}
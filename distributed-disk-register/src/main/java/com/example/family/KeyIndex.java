@@ -0,0 +1,341 @@
+package com.example.family;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Diskte kalıcı anahtar indeksi (checkpoint'li log).
+ * - index.snap: indeksin tamamının anlık görüntüsü (checkpoint)
+ * - index.log: son checkpoint'ten sonraki değişikliklerin günlüğü (sadece dosya modlarında)
+ * - Her kaydın uzunluğu ve sürümü (version) indekste tutulur
+ * - Kayıt sayısı ve toplam byte O(1) sayaçlarla tutulur, dizin taraması gerekmez
+ * - senkron açıksa (fsync'li dosya modları) her günlük kaydı da fsync'lenir:
+ * işletim sistemi çökmesinde diske inmiş bir .msg dosyasının indeks kaydı kaybolmaz
+ * - Silinen anahtarın silme sürümü (tombstone) de tutulur: geç gelen daha eski bir
+ * yazma anahtarı diriltemez. Checkpoint'e uzunluk SILINDI olan giriş olarak yazılır,
+ * PlacementCatalog.MEZAR_OMRU_US'ten eskileri checkpoint'te atılır
+ *
+ * Segment modlarında günlük tutulmaz: checkpoint bir segment sınırında alınır
+ * ve açılışta sadece o sınırdan sonraki segmentler yeniden okunur.
+ */
+class KeyIndex {
+
+    private static final String SNAPSHOT_DOSYASI = "index.snap";
+    private static final String GUNLUK_DOSYASI = "index.log";
+    private static final int SNAPSHOT_SIHIRLI_SAYI = 0x4B494432; // "KID2"
+    private static final int SNAPSHOT_GIRIS_BOYUTU = 28; // anahtar + segment + offset + uzunluk + sürüm
+    private static final int GUNLUK_KAYIT_BOYUTU = 16; // anahtar + uzunluk + sürüm
+    static final int CHECKPOINT_ARALIGI = 1_000_000; // Bu kadar günlük kaydından sonra checkpoint
+    static final int SILINDI = -1; // Günlükte/segmentte uzunluk yerine: anahtar silindi (tombstone)
+
+    /**
+     * Bir kaydın diskteki yeri ve sürümü. Dosya modlarında segment = -1, offset = 0.
+     */
+    static final class Konum {
+        final int segment;
+        final long offset;
+        final int uzunluk;
+        final long surum;
+
+        Konum(int segment, long offset, int uzunluk, long surum) {
+            this.segment = segment;
+            this.offset = offset;
+            this.uzunluk = uzunluk;
+            this.surum = surum;
+        }
+    }
+
+    private final File klasor;
+    private final boolean gunlukTut;
+    private final boolean senkron;
+    private final ConcurrentHashMap<Integer, Konum> indeks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> silmeSurumleri = new ConcurrentHashMap<>();
+    // Her yazmada güncellenen sayaçlar: çok thread'li yazmada çekişme olmasın diye LongAdder
+    private final LongAdder kayitSayisi = new LongAdder();
+    private final LongAdder toplamBayt = new LongAdder();
+
+    private DataOutputStream gunluk;
+    private FileOutputStream gunlukAkisi; // fsync için gunluk'un altındaki dosya
+    private int gunlukKayitSayisi;
+    private boolean yenidenKurulmali;
+    // Günlük kaydı + fsync (senkron) ve checkpoint döndürmesi bu kilit altında. synchronized
+    // değil: fsync'i bekleyen virtual thread carrier'ını bırakır
+    private final ReentrantLock kilit = new ReentrantLock();
+
+    KeyIndex(File klasor, boolean gunlukTut) {
+        this(klasor, gunlukTut, false);
+    }
+
+    KeyIndex(File klasor, boolean gunlukTut, boolean senkron) {
+        this.klasor = klasor;
+        this.gunlukTut = gunlukTut;
+        this.senkron = senkron;
+    }
+
+    /**
+     * Checkpoint'i ve (varsa) günlüğü yükler. Checkpoint bozuksa indeks boş
+     * bırakılır ve yenidenKurulmali() true döner.
+     *
+     * @return checkpoint'in alındığı segment sınırı, checkpoint yoksa -1
+     */
+    int yukle() throws IOException {
+        kilit.lock();
+        try {
+            return yukleKilitli();
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    private int yukleKilitli() throws IOException {
+        int sinir = -1;
+        boolean gecerli = true;
+        File snapshot = new File(klasor, SNAPSHOT_DOSYASI);
+        File gunlukDosyasi = new File(klasor, GUNLUK_DOSYASI);
+        yenidenKurulmali = !snapshot.exists() && gunlukDosyasi.length() == 0;
+
+        if (snapshot.exists()) {
+            try {
+                sinir = snapshotOku(snapshot);
+            } catch (IOException e) {
+                System.err.println("Indeks checkpoint okunamadi, yeniden kurulacak: " + e.getMessage());
+                temizle();
+                gecerli = false;
+                yenidenKurulmali = true;
+            }
+        }
+
+        if (gunlukTut) {
+            // Bozuk checkpoint'e göre tutulmuş günlük anlamsızdır, sıfırdan başlanır
+            long gecerliSon = gecerli ? gunlukOku(gunlukDosyasi) : 0;
+            if (gecerliSon < gunlukDosyasi.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(gunlukDosyasi, "rw")) {
+                    raf.setLength(gecerliSon);
+                }
+            }
+            gunlukAc(true);
+        }
+        return sinir;
+    }
+
+    private void gunlukAc(boolean ekle) throws IOException {
+        gunlukAkisi = new FileOutputStream(new File(klasor, GUNLUK_DOSYASI), ekle);
+        gunluk = new DataOutputStream(new BufferedOutputStream(gunlukAkisi));
+    }
+
+    /**
+     * Ne geçerli bir checkpoint ne de günlük varsa true: indeks veri dosyalarından
+     * bir kez kurulmalıdır (eski sürümden yükseltme veya bozuk checkpoint)
+     */
+    boolean yenidenKurulmali() {
+        return yenidenKurulmali;
+    }
+
+    private void temizle() {
+        kilit.lock();
+        try {
+            indeks.clear();
+            silmeSurumleri.clear();
+            kayitSayisi.reset();
+            toplamBayt.reset();
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    Konum get(int anahtar) {
+        return indeks.get(anahtar);
+    }
+
+    /**
+     * Anahtarın bilinen son silme sürümü, silinmemişse (ya da yeniden yazıldıysa) -1
+     */
+    long silmeSurumu(int anahtar) {
+        Long surum = silmeSurumleri.get(anahtar);
+        return surum != null ? surum : -1;
+    }
+
+    boolean icerir(int anahtar) {
+        return indeks.containsKey(anahtar);
+    }
+
+    int kayitSayisi() {
+        return kayitSayisi.intValue();
+    }
+
+    long toplamBayt() {
+        return toplamBayt.sum();
+    }
+
+    void forEach(BiConsumer<Integer, Konum> islem) {
+        indeks.forEach(islem);
+    }
+
+    Iterator<Map.Entry<Integer, Konum>> iterator() {
+        return indeks.entrySet().iterator();
+    }
+
+    /**
+     * Segment modları için: sadece bellekteki indeksi ve sayaçları günceller.
+     * Üzerine yazmada sayaçlara sadece boyut farkı eklenir.
+     */
+    void guncelle(int anahtar, Konum yeni) {
+        if (!silmeSurumleri.isEmpty()) {
+            silmeSurumleri.remove(anahtar);
+        }
+        Konum eski = indeks.put(anahtar, yeni);
+        if (eski == null) {
+            kayitSayisi.increment();
+            toplamBayt.add(yeni.uzunluk);
+        } else {
+            toplamBayt.add(yeni.uzunluk - eski.uzunluk);
+        }
+    }
+
+    /**
+     * Anahtarı bellekteki indeksten çıkarır, sayaçları düşürür ve silme sürümünü tutar
+     * (anahtar indekste olmasa da)
+     */
+    void sil(int anahtar, long surum) {
+        silmeSurumleri.merge(anahtar, surum, Math::max);
+        Konum eski = indeks.remove(anahtar);
+        if (eski != null) {
+            kayitSayisi.decrement();
+            toplamBayt.add(-eski.uzunluk);
+        }
+    }
+
+    /**
+     * Artık diskte olmayan bir kaydı gösteren girdiyi çıkarır; silme sürümü tutulmaz
+     */
+    void dusur(int anahtar) {
+        Konum eski = indeks.remove(anahtar);
+        if (eski != null) {
+            kayitSayisi.decrement();
+            toplamBayt.add(-eski.uzunluk);
+        }
+    }
+
+    /**
+     * Dosya modları için: indeksi günceller ve değişikliği günlüğe ekler.
+     * uzunluk SILINDI ise anahtar indeksten çıkarılır.
+     */
+    void kaydet(int anahtar, int uzunluk, long surum) throws IOException {
+        kilit.lock();
+        try {
+            gunluk.writeInt(anahtar);
+            gunluk.writeInt(uzunluk);
+            gunluk.writeLong(surum);
+            gunluk.flush();
+            if (senkron) {
+                gunlukAkisi.getFD().sync();
+            }
+            gunlukUygula(anahtar, uzunluk, surum);
+
+            if (++gunlukKayitSayisi >= CHECKPOINT_ARALIGI) {
+                checkpoint(-1);
+                gunluk.close();
+                gunlukAc(false);
+                gunlukKayitSayisi = 0;
+            }
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    /**
+     * İndeksin anlık görüntüsünü atomik olarak (tmp + rename) yazar.
+     * Eşzamanlı güncellemeler görüntüye girebilir; açılışta sınırdan sonrası
+     * zaten yeniden oynatıldığı için sonuç yine doğrudur.
+     */
+    void checkpoint(int segmentSiniri) throws IOException {
+        File tmp = new File(klasor, SNAPSHOT_DOSYASI + ".tmp");
+        long mezarSiniri = System.currentTimeMillis() * 1000 - PlacementCatalog.MEZAR_OMRU_US; // Sürümler mikrosaniyedir
+        int adet = 0;
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+                DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            dos.writeInt(SNAPSHOT_SIHIRLI_SAYI);
+            dos.writeInt(segmentSiniri);
+            for (Map.Entry<Integer, Konum> giris : indeks.entrySet()) {
+                Konum konum = giris.getValue();
+                dos.writeInt(giris.getKey());
+                dos.writeInt(konum.segment);
+                dos.writeLong(konum.offset);
+                dos.writeInt(konum.uzunluk);
+                dos.writeLong(konum.surum);
+                adet++;
+            }
+            for (Map.Entry<Integer, Long> giris : silmeSurumleri.entrySet()) {
+                if (giris.getValue() < mezarSiniri) {
+                    silmeSurumleri.remove(giris.getKey(), giris.getValue());
+                    continue;
+                }
+                dos.writeInt(giris.getKey());
+                dos.writeInt(-1);
+                dos.writeLong(0);
+                dos.writeInt(SILINDI);
+                dos.writeLong(giris.getValue());
+                adet++;
+            }
+            dos.writeInt(adet); // Kayıt sayısı sonda: tam yazılmamış dosya ayırt edilir
+            dos.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), new File(klasor, SNAPSHOT_DOSYASI).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private int snapshotOku(File snapshot) throws IOException {
+        long girisSayisi = (snapshot.length() - 12) / SNAPSHOT_GIRIS_BOYUTU;
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(snapshot), 1 << 16))) {
+            if (dis.readInt() != SNAPSHOT_SIHIRLI_SAYI) {
+                throw new IOException("Gecersiz indeks dosyasi: " + snapshot);
+            }
+            int sinir = dis.readInt();
+            for (long i = 0; i < girisSayisi; i++) {
+                int anahtar = dis.readInt();
+                Konum konum = new Konum(dis.readInt(), dis.readLong(), dis.readInt(), dis.readLong());
+                if (konum.uzunluk == SILINDI) {
+                    sil(anahtar, konum.surum);
+                } else {
+                    guncelle(anahtar, konum);
+                }
+            }
+            if (dis.readInt() != girisSayisi) {
+                throw new IOException("Eksik indeks dosyasi: " + snapshot);
+            }
+            return sinir;
+        }
+    }
+
+    private long gunlukOku(File gunlukDosyasi) throws IOException {
+        if (!gunlukDosyasi.exists()) {
+            return 0;
+        }
+        long tamKayit = gunlukDosyasi.length() / GUNLUK_KAYIT_BOYUTU;
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(gunlukDosyasi), 1 << 16))) {
+            for (long i = 0; i < tamKayit; i++) {
+                int anahtar = dis.readInt();
+                gunlukUygula(anahtar, dis.readInt(), dis.readLong());
+            }
+        }
+        gunlukKayitSayisi = (int) tamKayit;
+        return tamKayit * GUNLUK_KAYIT_BOYUTU;
+    }
+
+    private void gunlukUygula(int anahtar, int uzunluk, long surum) {
+        if (uzunluk == SILINDI) {
+            sil(anahtar, surum);
+        } else {
+            guncelle(anahtar, new Konum(-1, 0, uzunluk, surum));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.family;
+
+import java.util.Arrays;
+
+/**
+ * Son N gecikme örneği üzerinden yüzdelik (p95 vb.) hesaplayan basit izleyici.
+ * Yüzdelik her örnekte değil, belirli aralıklarla yeniden hesaplanır.
+ */
+class LatencyTracker {
+
+    private static final int PENCERE = 1024;
+    private static final int YENIDEN_HESAPLAMA_ARALIGI = 64;
+
+    private final long[] ornekler = new long[PENCERE];
+    private final double yuzdelik;
+    private final long varsayilanMikro;
+    private int sonraki;
+    private int adet;
+    private volatile long sonYuzdelikMikro;
+
+    LatencyTracker(double yuzdelik, long varsayilanMikro) {
+        this.yuzdelik = yuzdelik;
+        this.varsayilanMikro = varsayilanMikro;
+        this.sonYuzdelikMikro = varsayilanMikro;
+    }
+
+    synchronized void kaydet(long mikro) {
+        ornekler[sonraki] = mikro;
+        sonraki = (sonraki + 1) % PENCERE;
+        if (adet < PENCERE) {
+            adet++;
+        }
+        if (sonraki % YENIDEN_HESAPLAMA_ARALIGI == 0) {
+            long[] kopya = Arrays.copyOf(ornekler, adet);
+            Arrays.sort(kopya);
+            sonYuzdelikMikro = kopya[Math.min(adet - 1, (int) (adet * yuzdelik))];
+        }
+    }
+
+    /**
+     * Yeterli örnek yoksa varsayılan değeri döner
+     */
+    long yuzdelikMikro() {
+        return sonYuzdelikMikro;
+    }
+
+    long varsayilanMikro() {
+        return varsayilanMikro;
+    }
+}
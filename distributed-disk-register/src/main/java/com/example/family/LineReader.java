@@ -0,0 +1,118 @@
+package com.example.family;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Bloklayan soketten "\n" ile biten satırları byte dizisi olarak okur
+ * (BufferedReader + String yerine).
+ * - Satır okuma tamponunda tamamsa tek bir kopya ile döner
+ * - Tampon sınırına denk gelen satırlar bir birikim dizisinde birleştirilir
+ * - Dönen satır kırpılmıştır ("\r" ve baştaki/sondaki boşluklar atılır)
+ * - İkili protokol için aynı tampon üzerinden byte bakma ve tam okuma sağlar
+ */
+class LineReader {
+
+    private static final int TAMPON_BOYUTU = 8 * 1024;
+    private static final int MAX_SATIR_BOYUTU = 16 * 1024 * 1024;
+
+    private final InputStream giris;
+    private final byte[] tampon = new byte[TAMPON_BOYUTU];
+    private int konum;
+    private int dolu;
+    private byte[] birikim = new byte[0];
+    private int birikimUzunluk;
+
+    LineReader(InputStream giris) {
+        this.giris = giris;
+    }
+
+    /**
+     * Bir sonraki satır; bağlantı kapandıysa null (son satırda "\n" yoksa o da döner)
+     */
+    byte[] satirOku() throws IOException {
+        birikimUzunluk = 0;
+        while (true) {
+            if (konum == dolu) {
+                int okunan = giris.read(tampon);
+                if (okunan < 0) {
+                    return birikimUzunluk > 0 ? kirp(birikim, 0, birikimUzunluk) : null;
+                }
+                konum = 0;
+                dolu = okunan;
+            }
+
+            int bas = konum;
+            while (konum < dolu && tampon[konum] != '\n') {
+                konum++;
+            }
+            if (konum < dolu) {
+                int son = konum++;
+                if (birikimUzunluk == 0) {
+                    return kirp(tampon, bas, son);
+                }
+                biriktir(bas, son);
+                return kirp(birikim, 0, birikimUzunluk);
+            }
+            biriktir(bas, konum);
+        }
+    }
+
+    /**
+     * Bir sonraki byte'ı tüketmeden döner; bağlantı kapandıysa -1
+     */
+    int bak() throws IOException {
+        if (konum == dolu) {
+            int okunan = giris.read(tampon);
+            if (okunan < 0) {
+                return -1;
+            }
+            konum = 0;
+            dolu = okunan;
+        }
+        return tampon[konum] & 0xFF;
+    }
+
+    void atla() throws IOException {
+        if (bak() < 0) {
+            throw new EOFException();
+        }
+        konum++;
+    }
+
+    /**
+     * hedef dizisini tamamen doldurur. Tamponda olan kısım kopyalanır, kalan
+     * (büyük değerler) doğrudan hedefe okunur.
+     */
+    void tamOku(byte[] hedef) throws IOException {
+        int alinan = Math.min(dolu - konum, hedef.length);
+        System.arraycopy(tampon, konum, hedef, 0, alinan);
+        konum += alinan;
+        while (alinan < hedef.length) {
+            int okunan = giris.read(hedef, alinan, hedef.length - alinan);
+            if (okunan < 0) {
+                throw new EOFException("Frame ortasinda baglanti kapandi");
+            }
+            alinan += okunan;
+        }
+    }
+
+    private void biriktir(int bas, int son) throws IOException {
+        int uzunluk = son - bas;
+        if (birikimUzunluk + uzunluk > MAX_SATIR_BOYUTU) {
+            throw new IOException("Satir cok uzun");
+        }
+        if (birikimUzunluk + uzunluk > birikim.length) {
+            birikim = Arrays.copyOf(birikim, Math.max(birikimUzunluk + uzunluk, birikim.length * 2));
+        }
+        System.arraycopy(tampon, bas, birikim, birikimUzunluk, uzunluk);
+        birikimUzunluk += uzunluk;
+    }
+
+    private static byte[] kirp(byte[] dizi, int bas, int son) {
+        int kirpikBas = CommandParser.kirpBas(dizi, bas, son);
+        return Arrays.copyOfRange(dizi, kirpikBas, CommandParser.kirpSon(dizi, kirpikBas, son));
+    }
+}
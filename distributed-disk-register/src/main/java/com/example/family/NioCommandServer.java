@@ -0,0 +1,517 @@
+package com.example.family;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Tek event-loop thread'li, NIO Selector tabanlı satır protokolü sunucusu.
+ * - Bağlantı başına thread yoktur: tüm soketler tek Selector ile okunur/yazılır
+ * - Okuma için event-loop'a ait tek bir direct buffer kullanılır; bağlantı başına
+ * sadece yarım kalan satır için (gerekirse) küçük bir dizi tutulur
+ * - Satırlar ("\n" ile biten) sınırlı bir worker havuzunda işlenir. Bir bağlantıda
+ * pencere kadar komut aynı anda uçuşta olabilir (pipelining, bkz. CommandPipeline):
+ * aynı anahtarın komutları sırayla çalışır, yanıtlar her zaman istek sırasıyla yazılır
+ * - Bir bağlantıda çok fazla bekleyen satır birikirse o soket okunmaz (backpressure)
+ * - Bağlantının ilk byte'ı BinaryProtocol.SIHIRLI_BYTE ise bağlantı ikili frame
+ * protokolüne geçer: frame'ler aynı komut hattında çalışır, yanıtlar tamamlandıkça
+ * (istek numarasıyla) yazılır. Büyük değerler ortak tampona uğramadan doğrudan
+ * frame'in değer dizisine okunur.
+ * - İlk byte '*' ise bağlantı Redis RESP2 protokolüne geçer (bkz. RespProtocol):
+ * komutlar aynı hatta çalışır, yanıtlar satır protokolündeki gibi istek sırasıyla yazılır
+ */
+public class NioCommandServer {
+
+    private static final int OKUMA_BUFFER_BOYUTU = 64 * 1024;
+    private static final int MAX_SATIR_BOYUTU = 16 * 1024 * 1024;
+    private static final int MAX_BEKLEYEN_SATIR = 1024; // Bağlantı başına
+    private static final int IS_KUYRUGU_KAPASITESI = 10_000;
+
+    private static final int PROTOKOL_BILINMIYOR = 0; // İlk byte henüz gelmedi
+    private static final int PROTOKOL_METIN = 1;
+    private static final int PROTOKOL_IKILI = 2;
+    private static final int PROTOKOL_RESP = 3;
+
+    private final int port;
+    private final Function<byte[], byte[]> komutIsleyici;
+    private final Function<BinaryProtocol.Frame, byte[]> ikiliIsleyici;
+    private final Function<byte[][], byte[]> respIsleyici;
+    private final int pencere;
+    private final ThreadPoolExecutor isciler;
+    private final Selector secici;
+    private final ByteBuffer okumaBuffer = ByteBuffer.allocateDirect(OKUMA_BUFFER_BOYUTU);
+    private final byte[] kopyaDizisi = new byte[OKUMA_BUFFER_BOYUTU];
+    // Worker'lar yanıt ürettiğinde ilgili bağlantının interest set'i event-loop'ta güncellenir
+    private final ConcurrentLinkedQueue<Baglanti> guncellenecekler = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger acikBaglanti = new AtomicInteger();
+
+    /**
+     * Bir istemci bağlantısının durumu. Alanlar aksi belirtilmedikçe event-loop'a aittir.
+     */
+    private final class Baglanti {
+        final SocketChannel kanal;
+        final SelectionKey anahtar;
+        final String adres;
+
+        int protokol = PROTOKOL_BILINMIYOR;
+        byte[] yarimSatir = new byte[0]; // Önceki okumadan kalan, "\n" görülmemiş kısım (RESP: yarım komut)
+        int yarimUzunluk;
+        ByteBuffer ikiliBaslik; // İkili mod: yarım okunmuş frame başlığı
+        BinaryProtocol.Frame okunanFrame; // İkili mod: değeri henüz tamamlanmamış frame
+        int degerKonum;
+
+        // Aşağıdakiler worker'larla paylaşılır, "this" ile korunur
+        final CommandPipeline hat = new CommandPipeline(isciler, komutIsleyici);
+        final ArrayDeque<byte[]> bekleyenSatirlar = new ArrayDeque<>(); // Pencere dolu, henüz başlatılmadı
+        final ArrayDeque<BinaryProtocol.Frame> bekleyenFrameler = new ArrayDeque<>(); // İkili mod karşılığı
+        final ArrayDeque<byte[][]> bekleyenRespKomutlari = new ArrayDeque<>(); // RESP modu karşılığı
+        final ArrayDeque<CompletableFuture<byte[]>> ucustakiler = new ArrayDeque<>(); // İstek sırasıyla
+        final ArrayDeque<ByteBuffer> yanitlar = new ArrayDeque<>();
+        boolean kapanacak;
+
+        Baglanti(SocketChannel kanal, SelectionKey anahtar) {
+            this.kanal = kanal;
+            this.anahtar = anahtar;
+            this.adres = String.valueOf(kanal.socket().getRemoteSocketAddress());
+        }
+
+        int bekleyenSayisi() {
+            return bekleyenSatirlar.size() + bekleyenFrameler.size() + bekleyenRespKomutlari.size();
+        }
+    }
+
+    /**
+     * @param isciSayisi    komutları çalıştıran worker thread sayısı
+     * @param pencere       bağlantı başına aynı anda çalışabilecek en fazla komut (1 = pipelining yok)
+     * @param komutIsleyici kırpılmış bir satırı (byte) alıp "\n" ile biten yanıt satırını döner
+     * @param ikiliIsleyici ikili protokol frame'ini alıp yanıt frame'ini döner
+     * @param respIsleyici  RESP komutunun argümanlarını alıp RESP yanıtını döner
+     */
+    public NioCommandServer(int port, int isciSayisi, int pencere, Function<byte[], byte[]> komutIsleyici,
+                            Function<BinaryProtocol.Frame, byte[]> ikiliIsleyici,
+                            Function<byte[][], byte[]> respIsleyici) throws IOException {
+        this.port = port;
+        this.pencere = Math.max(1, pencere);
+        this.komutIsleyici = komutIsleyici;
+        this.ikiliIsleyici = ikiliIsleyici;
+        this.respIsleyici = respIsleyici;
+        AtomicInteger sayac = new AtomicInteger();
+        this.isciler = new ThreadPoolExecutor(isciSayisi, isciSayisi, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(IS_KUYRUGU_KAPASITESI), r -> {
+                    Thread t = new Thread(r, "TcpIsci-" + sayac.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.secici = Selector.open();
+    }
+
+    /**
+     * Portu dinlemeye başlar ve event-loop thread'ini çalıştırır
+     */
+    public void baslat() throws IOException {
+        ServerSocketChannel dinleyici = ServerSocketChannel.open();
+        dinleyici.bind(new InetSocketAddress(port));
+        dinleyici.configureBlocking(false);
+        dinleyici.register(secici, SelectionKey.OP_ACCEPT);
+
+        Thread dongu = new Thread(() -> {
+            try {
+                olayDongusu(dinleyici);
+            } catch (IOException e) {
+                System.err.println("TCP event-loop hatasi: " + e.getMessage());
+            }
+        }, "TcpEventLoop");
+        dongu.start();
+    }
+
+    public int acikBaglantiSayisi() {
+        return acikBaglanti.get();
+    }
+
+    private void olayDongusu(ServerSocketChannel dinleyici) throws IOException {
+        while (true) {
+            secici.select();
+
+            Baglanti guncellenecek;
+            while ((guncellenecek = guncellenecekler.poll()) != null) {
+                ilgiGuncelle(guncellenecek);
+            }
+
+            Iterator<SelectionKey> it = secici.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey anahtar = it.next();
+                it.remove();
+                if (!anahtar.isValid()) {
+                    continue;
+                }
+                try {
+                    if (anahtar.isAcceptable()) {
+                        kabulEt(dinleyici);
+                    } else {
+                        Baglanti baglanti = (Baglanti) anahtar.attachment();
+                        if (anahtar.isReadable()) {
+                            oku(baglanti);
+                        }
+                        if (anahtar.isValid() && anahtar.isWritable()) {
+                            yaz(baglanti);
+                        }
+                    }
+                } catch (IOException e) {
+                    Object ek = anahtar.attachment();
+                    if (ek instanceof Baglanti) {
+                        kapat((Baglanti) ek); // Bağlantı koptu - sessizce devam
+                    }
+                }
+            }
+        }
+    }
+
+    private void kabulEt(ServerSocketChannel dinleyici) throws IOException {
+        SocketChannel kanal;
+        while ((kanal = dinleyici.accept()) != null) {
+            kanal.configureBlocking(false);
+            kanal.socket().setTcpNoDelay(true);
+            SelectionKey anahtar = kanal.register(secici, SelectionKey.OP_READ);
+            Baglanti baglanti = new Baglanti(kanal, anahtar);
+            anahtar.attach(baglanti);
+            acikBaglanti.incrementAndGet();
+            System.out.println("[BAGLANTI] " + baglanti.adres);
+        }
+    }
+
+    /**
+     * Soketten okur, tamamlanan satırları bağlantının kuyruğuna ekler
+     */
+    private void oku(Baglanti baglanti) throws IOException {
+        if (baglanti.okunanFrame != null
+                && baglanti.okunanFrame.deger.length - baglanti.degerKonum >= OKUMA_BUFFER_BOYUTU) {
+            buyukDegerOku(baglanti);
+            return;
+        }
+
+        okumaBuffer.clear();
+        int okunan = baglanti.kanal.read(okumaBuffer);
+        if (okunan < 0) {
+            kapat(baglanti);
+            return;
+        }
+        if (okunan == 0) {
+            return;
+        }
+        okumaBuffer.flip();
+        okumaBuffer.get(kopyaDizisi, 0, okunan);
+
+        int satirBasi = 0;
+        if (baglanti.protokol == PROTOKOL_BILINMIYOR) {
+            if ((kopyaDizisi[0] & 0xFF) == BinaryProtocol.SIHIRLI_BYTE) {
+                baglanti.protokol = PROTOKOL_IKILI;
+                baglanti.ikiliBaslik = ByteBuffer.allocate(BinaryProtocol.ISTEK_BASLIK_BOYUTU);
+                satirBasi = 1;
+            } else if (kopyaDizisi[0] == RespProtocol.DIZI_ISARETI) {
+                baglanti.protokol = PROTOKOL_RESP;
+            } else {
+                baglanti.protokol = PROTOKOL_METIN;
+            }
+        }
+        if (baglanti.protokol == PROTOKOL_IKILI) {
+            frameleriAyristir(baglanti, satirBasi, okunan);
+            isiBaslat(baglanti);
+            return;
+        }
+        if (baglanti.protokol == PROTOKOL_RESP) {
+            respAyristir(baglanti, okunan);
+            isiBaslat(baglanti);
+            return;
+        }
+
+        for (int i = 0; i < okunan; i++) {
+            if (kopyaDizisi[i] == '\n') {
+                satirEkle(baglanti, satirCoz(baglanti, satirBasi, i));
+                satirBasi = i + 1;
+            }
+        }
+
+        // "\n" görülmeyen kuyruk bir sonraki okumaya saklanır
+        yarimaEkle(baglanti, satirBasi, okunan, MAX_SATIR_BOYUTU);
+
+        isiBaslat(baglanti);
+    }
+
+    /**
+     * kopyaDizisi[bas, son) aralığını bağlantının yarım kalan kısmına ekler
+     */
+    private void yarimaEkle(Baglanti baglanti, int bas, int son, int maxBoyut) throws IOException {
+        int kalan = son - bas;
+        if (kalan <= 0) {
+            return;
+        }
+        if (baglanti.yarimUzunluk + kalan > maxBoyut) {
+            throw new IOException("Komut cok uzun: " + baglanti.adres);
+        }
+        if (baglanti.yarimUzunluk + kalan > baglanti.yarimSatir.length) {
+            baglanti.yarimSatir = Arrays.copyOf(baglanti.yarimSatir,
+                    Math.max(baglanti.yarimUzunluk + kalan, baglanti.yarimSatir.length * 2));
+        }
+        System.arraycopy(kopyaDizisi, bas, baglanti.yarimSatir, baglanti.yarimUzunluk, kalan);
+        baglanti.yarimUzunluk += kalan;
+    }
+
+    /**
+     * kopyaDizisi[0, son) aralığındaki tamamlanan RESP komutlarını bekleyen
+     * kuyruğuna ekler. Yarım komut yoksa doğrudan ortak diziden ayrıştırılır,
+     * sadece tamamlanmayan kuyruk bağlantıya kopyalanır.
+     */
+    private void respAyristir(Baglanti baglanti, int son) throws IOException {
+        byte[] kaynak = kopyaDizisi;
+        int sinir = son;
+        if (baglanti.yarimUzunluk > 0) {
+            yarimaEkle(baglanti, 0, son, RespProtocol.MAX_KOMUT_BOYUTU);
+            kaynak = baglanti.yarimSatir;
+            sinir = baglanti.yarimUzunluk;
+        }
+
+        int[] konum = {0};
+        byte[][] komut;
+        while ((komut = RespProtocol.komutOku(kaynak, konum, sinir)) != null) {
+            synchronized (baglanti) {
+                baglanti.bekleyenRespKomutlari.add(komut);
+                bekleyenSinirla(baglanti);
+            }
+        }
+
+        if (kaynak == kopyaDizisi) {
+            yarimaEkle(baglanti, konum[0], son, RespProtocol.MAX_KOMUT_BOYUTU);
+        } else {
+            int kalan = sinir - konum[0];
+            System.arraycopy(baglanti.yarimSatir, konum[0], baglanti.yarimSatir, 0, kalan);
+            baglanti.yarimUzunluk = kalan;
+            if (kalan == 0 && baglanti.yarimSatir.length > OKUMA_BUFFER_BOYUTU) {
+                baglanti.yarimSatir = new byte[0]; // Büyük komutun dizisi tutulmasın
+            }
+        }
+    }
+
+    /**
+     * Yarım satır + kopyaDizisi[bas, son) birleşimini kırpıp ("\r" ve boşluklar
+     * atılır) komuta ait tek bir diziye kopyalar. Çözme (String) yapılmaz; dizi
+     * komut bitene kadar değişmez, değer dilimleri doğrudan ondan taşınır.
+     */
+    private byte[] satirCoz(Baglanti baglanti, int bas, int son) {
+        if (baglanti.yarimUzunluk == 0) {
+            int kirpikBas = CommandParser.kirpBas(kopyaDizisi, bas, son);
+            return Arrays.copyOfRange(kopyaDizisi, kirpikBas, CommandParser.kirpSon(kopyaDizisi, kirpikBas, son));
+        }
+        byte[] tam = Arrays.copyOf(baglanti.yarimSatir, baglanti.yarimUzunluk + son - bas);
+        System.arraycopy(kopyaDizisi, bas, tam, baglanti.yarimUzunluk, son - bas);
+        baglanti.yarimUzunluk = 0;
+        if (baglanti.yarimSatir.length > OKUMA_BUFFER_BOYUTU) {
+            baglanti.yarimSatir = new byte[0]; // Büyük satırın dizisi tutulmasın
+        }
+        int kirpikBas = CommandParser.kirpBas(tam, 0, tam.length);
+        int kirpikSon = CommandParser.kirpSon(tam, kirpikBas, tam.length);
+        return kirpikBas == 0 && kirpikSon == tam.length ? tam : Arrays.copyOfRange(tam, kirpikBas, kirpikSon);
+    }
+
+    /**
+     * kopyaDizisi[bas, son) aralığındaki byte'larla yarım frame'i ilerletir;
+     * tamamlanan frame'ler bekleyen kuyruğuna eklenir
+     */
+    private void frameleriAyristir(Baglanti baglanti, int bas, int son) throws IOException {
+        while (bas < son) {
+            if (baglanti.okunanFrame == null) {
+                int alinan = Math.min(baglanti.ikiliBaslik.remaining(), son - bas);
+                baglanti.ikiliBaslik.put(kopyaDizisi, bas, alinan);
+                bas += alinan;
+                if (baglanti.ikiliBaslik.hasRemaining()) {
+                    return;
+                }
+                baglanti.ikiliBaslik.flip();
+                baglanti.okunanFrame = BinaryProtocol.baslikCoz(baglanti.ikiliBaslik);
+                baglanti.ikiliBaslik.clear();
+                baglanti.degerKonum = 0;
+            }
+
+            byte[] deger = baglanti.okunanFrame.deger;
+            int alinan = Math.min(deger.length - baglanti.degerKonum, son - bas);
+            System.arraycopy(kopyaDizisi, bas, deger, baglanti.degerKonum, alinan);
+            bas += alinan;
+            baglanti.degerKonum += alinan;
+            if (baglanti.degerKonum == deger.length) {
+                frameEkle(baglanti);
+            }
+        }
+    }
+
+    /**
+     * Değerin kalanı tampondan büyükse soket doğrudan değer dizisine okunur
+     */
+    private void buyukDegerOku(Baglanti baglanti) throws IOException {
+        byte[] deger = baglanti.okunanFrame.deger;
+        int okunan = baglanti.kanal.read(
+                ByteBuffer.wrap(deger, baglanti.degerKonum, deger.length - baglanti.degerKonum));
+        if (okunan < 0) {
+            kapat(baglanti);
+            return;
+        }
+        baglanti.degerKonum += okunan;
+        if (baglanti.degerKonum == deger.length) {
+            frameEkle(baglanti);
+            isiBaslat(baglanti);
+        }
+    }
+
+    private void frameEkle(Baglanti baglanti) {
+        BinaryProtocol.Frame frame = baglanti.okunanFrame;
+        baglanti.okunanFrame = null;
+        synchronized (baglanti) {
+            baglanti.bekleyenFrameler.add(frame);
+            bekleyenSinirla(baglanti);
+        }
+    }
+
+    private void satirEkle(Baglanti baglanti, byte[] satir) {
+        if (satir.length == 0) {
+            return;
+        }
+        synchronized (baglanti) {
+            baglanti.bekleyenSatirlar.add(satir);
+            bekleyenSinirla(baglanti);
+        }
+    }
+
+    /**
+     * Bağlantının kilidi altında çağrılır
+     */
+    private void bekleyenSinirla(Baglanti baglanti) {
+        if (baglanti.bekleyenSayisi() >= MAX_BEKLEYEN_SATIR) {
+            // Worker'lar yetişemiyor - kuyruk boşalana kadar soketi okuma
+            baglanti.anahtar.interestOps(baglanti.anahtar.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Pencerede yer oldukça bekleyen satırları komut hattına verir
+     */
+    private void isiBaslat(Baglanti baglanti) {
+        List<CompletableFuture<byte[]>> baslatilanlar = new ArrayList<>();
+        synchronized (baglanti) {
+            while (!baglanti.kapanacak && baglanti.ucustakiler.size() < pencere
+                    && baglanti.bekleyenSayisi() > 0) {
+                CompletableFuture<byte[]> sonuc;
+                if (!baglanti.bekleyenSatirlar.isEmpty()) {
+                    sonuc = baglanti.hat.calistir(baglanti.bekleyenSatirlar.poll());
+                } else if (!baglanti.bekleyenRespKomutlari.isEmpty()) {
+                    byte[][] komut = baglanti.bekleyenRespKomutlari.poll();
+                    sonuc = baglanti.hat.calistir(RespProtocol.seritIndeksi(komut),
+                            () -> respIsleyici.apply(komut),
+                            hata -> RespProtocol.hata(CommandPipeline.hataMesaji(hata)));
+                } else {
+                    BinaryProtocol.Frame frame = baglanti.bekleyenFrameler.poll();
+                    sonuc = baglanti.hat.calistir(CommandPipeline.anahtarSeridi(frame.anahtar),
+                            () -> ikiliIsleyici.apply(frame),
+                            hata -> BinaryProtocol.hataYaniti(frame.istekNo, CommandPipeline.hataMesaji(hata)));
+                }
+                baglanti.ucustakiler.add(sonuc);
+                baslatilanlar.add(sonuc);
+            }
+        }
+        // Kilit dışında: hemen tamamlanmış future'ın geri çağrısı burada çalışabilir
+        for (CompletableFuture<byte[]> sonuc : baslatilanlar) {
+            sonuc.whenComplete((yanit, hata) -> tamamlandi(baglanti, sonuc));
+        }
+    }
+
+    /**
+     * Baştan itibaren tamamlanmış komutların yanıtlarını (istek sırasıyla) yazma
+     * kuyruğuna taşır ve açılan pencereye yeni satır verir. İkili modda yanıt
+     * sıra beklemeden yazılır. Event-loop uyandırılır, OP_WRITE ve gerekirse
+     * OP_READ orada açılır.
+     */
+    private void tamamlandi(Baglanti baglanti, CompletableFuture<byte[]> sonuc) {
+        boolean yazilacakVar = false;
+        synchronized (baglanti) {
+            if (baglanti.protokol == PROTOKOL_IKILI) {
+                if (baglanti.ucustakiler.remove(sonuc)) {
+                    baglanti.yanitlar.add(ByteBuffer.wrap(sonuc.join()));
+                    yazilacakVar = true;
+                }
+            }
+            while (!baglanti.ucustakiler.isEmpty() && baglanti.ucustakiler.peek().isDone()) {
+                baglanti.yanitlar.add(ByteBuffer.wrap(baglanti.ucustakiler.poll().join()));
+                yazilacakVar = true;
+            }
+        }
+        if (!yazilacakVar) {
+            return; // Öndeki komut henüz bitmedi, sıra bozulmasın
+        }
+        isiBaslat(baglanti);
+        guncellenecekler.add(baglanti);
+        secici.wakeup();
+    }
+
+    private void ilgiGuncelle(Baglanti baglanti) {
+        if (!baglanti.anahtar.isValid()) {
+            return;
+        }
+        synchronized (baglanti) {
+            int ilgi = SelectionKey.OP_READ;
+            if (baglanti.bekleyenSayisi() >= MAX_BEKLEYEN_SATIR) {
+                ilgi = 0;
+            }
+            if (!baglanti.yanitlar.isEmpty()) {
+                ilgi |= SelectionKey.OP_WRITE;
+            }
+            baglanti.anahtar.interestOps(ilgi);
+        }
+    }
+
+    private void yaz(Baglanti baglanti) throws IOException {
+        synchronized (baglanti) {
+            while (!baglanti.yanitlar.isEmpty()) {
+                ByteBuffer yanit = baglanti.yanitlar.peek();
+                baglanti.kanal.write(yanit);
+                if (yanit.hasRemaining()) {
+                    return; // Soket tamponu dolu - OP_WRITE açık kalır
+                }
+                baglanti.yanitlar.poll();
+            }
+        }
+        ilgiGuncelle(baglanti);
+    }
+
+    private void kapat(Baglanti baglanti) {
+        synchronized (baglanti) {
+            if (baglanti.kapanacak) {
+                return;
+            }
+            baglanti.kapanacak = true;
+            baglanti.bekleyenSatirlar.clear();
+            baglanti.bekleyenFrameler.clear();
+            baglanti.bekleyenRespKomutlari.clear();
+            baglanti.ucustakiler.clear();
+            baglanti.yanitlar.clear();
+        }
+        baglanti.anahtar.cancel();
+        try {
+            baglanti.kanal.close();
+        } catch (IOException ignored) {
+        }
+        acikBaglanti.decrementAndGet();
+    }
+}
@@ -5,18 +5,31 @@ import family.FamilyServiceGrpc;
 import family.FamilyView;
 import family.NodeInfo;
 import family.ChatMessage;
+import family.DeleteRequest;
+import family.KeyChunk;
 import family.KeyRequest;
-import family.ValueResponse;
-
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import family.ListKeysRequest;
+import family.MultiGetRequest;
+import family.MultiGetResponse;
+import family.MultiStoreRequest;
+import family.MultiStoreResponse;
+import family.RetrieveResponse;
+import family.StoreAck;
+import family.StoredMessage;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import java.io.IOException;
 import java.net.ServerSocket;
@@ -29,8 +42,20 @@ import java.util.Enumeration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class NodeMain {
@@ -41,6 +66,7 @@ public class NodeMain {
     private static final int UDP_KESIF_PORT = 5554;
     private static String YEREL_ADRES = "127.0.0.1"; // Dinamik olarak belirlenecek
     private static String LIDER_ADRES = null; // Keşfedilecek
+    private static final byte[] OK_YANITI = "OK\n".getBytes(StandardCharsets.US_ASCII);
     private static final DateTimeFormatter ZAMAN_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     // Performans istatistikleri
@@ -50,26 +76,89 @@ public class NodeMain {
     private static final AtomicLong toplamOkumaSuresi = new AtomicLong(0);
     private static final AtomicLong basariliReplikasyon = new AtomicLong(0);
 
-    // Paylaşılan bellek ve disk I/O
-    private static ConcurrentHashMap<Integer, String> bellek = new ConcurrentHashMap<>();
+    // Paylaşılan bellek (byte bütçeli önbellek) ve disk I/O
+    private static final long VARSAYILAN_CACHE_BAYT = 64L * 1024 * 1024;
+    private static ValueCache bellek;
     private static DiskIO diskIO;
+    private static StorageServiceImpl depolamaServisi; // Follower'da yerel SET/MSET/DEL de sürüm kontrolünden geçer
     private static int tolerance = 1; // Kaç düğüme replike edilecek
+    // Yerleşim: tutarlı hash halkası (varsayılan) ya da yazma anında en az dolu üyeler
+    private static boolean halkaYerlesimi = true;
+    private static int sanalDugumSayisi = HashRing.VARSAYILAN_SANAL_DUGUM;
+    private static volatile HashRing halka = new HashRing(List.of(), 0);
+    private static volatile long halkaSurumu = -1; // halka'nın kurulduğu NodeRegistry sürümü
+    private static NodeInfo liderUye; // Leader'da kendisi, follower'da keşfedilen leader
+    private static int writeQuorum = 0; // Kaç replika onayında istemciye OK dönülür (0 = hepsi)
+    private static final int QUORUM_YETERSIZ = -1; // Replikasyon sonucu: hedef sayısı quorum'dan az
+    private static final long REPLIKASYON_ZAMAN_ASIMI_MS = 5000;
+
+    // Leader için: her SET'e verilen artan sürüm (mikrosaniye zamanı tabanlı,
+    // leader yeniden başlasa da önceki sürümlerin gerisine düşmez)
+    private static final AtomicLong sonSurum = new AtomicLong(0);
+
+    // Leader için: --replication=stream ise her follower'a tek uzun ömürlü akış
+    private static boolean akisliReplikasyon = false;
+    private static final ConcurrentHashMap<NodeInfo, ReplicationStream> replikasyonAkislari = new ConcurrentHashMap<>();
+
+    // TCP ön yüzü: varsayılan NIO event-loop + sınırlı worker havuzu,
+    // --tcp=blocking ile bağlantı başına thread (eski davranış)
+    private static final int VARSAYILAN_TCP_ISCI_SAYISI = 64;
+    private static boolean bloklayanTcp = false;
+    private static int tcpIsciSayisi = VARSAYILAN_TCP_ISCI_SAYISI;
+    private static NioCommandServer tcpSunucusu;
+    private static ExecutorService tcpYurutucu; // Bloklayan ön yüzde komutları çalıştırır
+
+    // Bağlantı başına aynı anda çalışabilecek en fazla komut (pipelining, 1 = kapalı)
+    private static final int VARSAYILAN_PIPELINE_PENCERESI = 128;
+    private static int pipelinePenceresi = VARSAYILAN_PIPELINE_PENCERESI;
+
+    // --threads=virtual: TCP bağlantıları ve gRPC çağrıları virtual thread'lerde
+    // çalışır (bloklayan DiskIO ve stub'lar thread havuzu boyutlandırmadan ölçeklenir)
+    private static boolean virtualThreadler = false;
+
+    // Dağıtık GET: replika gecikmelerinin p95'i hedge gecikmesi olarak kullanılır
+    private static final long OKUMA_ZAMAN_ASIMI_MS = 2000;
+    private static final LatencyTracker getGecikmeleri = new LatencyTracker(0.95, 10_000);
+    private static final ScheduledExecutorService hedgeZamanlayici = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "GetHedge");
+        t.setDaemon(true);
+        return t;
+    });
     private static volatile boolean liderMiyim = false;
 
     // Leader için: hangi veri hangi üyelerde tutulduğunun takibi
-    // Anahtar: mesaj ID, Değer: üye listesi (host:port formatında)
-    private static ConcurrentHashMap<Integer, List<String>> veriKonumlari = new ConcurrentHashMap<>();
+    // Anahtar: mesaj ID, Değer: üye kimliklerinin bitmask'i (bkz. PlacementCatalog)
+    // Leader'da diske günlüklenir, yeniden başlayınca geri yüklenir
+    private static PlacementCatalog veriKonumlari;
+    private static final long KATALOG_BOSALTMA_ARALIGI_MS = 1000;
+    private static final int UZLASTIRMA_PARTISI = 256; // Bayat kopya silmede aynı anda bekleyen çağrı
+    private static final long ENVANTER_ZAMAN_ASIMI_MS = 120_000;
+
+    private static ReReplicator yenidenReplikator; // Leader'da, çıkan follower'ın anahtarlarını tamamlar
+    private static long onarimBantGenisligi = ReReplicator.VARSAYILAN_BANT_GENISLIGI;
+    private static int onarimEszamanliligi = ReReplicator.VARSAYILAN_ESZAMANLILIK;
+    private static Rebalancer dengeleyici; // Leader'da, katılan follower'a payını taşır (--rebalance=off ise null)
+    private static boolean dengelemeAcik = true;
+    private static long dengelemeBantGenisligi = Rebalancer.VARSAYILAN_BANT_GENISLIGI;
 
     // Leader için: follower'ların boyut cache'i (yük dengeleme için)
     // Anahtar: host:port, Değer: toplam byte boyutu
     private static ConcurrentHashMap<String, Long> followerBoyutlari = new ConcurrentHashMap<>();
 
+    // Üyelere uzun ömürlü gRPC kanalları (her çağrıda yeni kanal açılmaz)
+    private static final ChannelPool kanalHavuzu = new ChannelPool();
+    private static final long SAGLIK_KONTROLU_ZAMAN_ASIMI_MS = 2000;
+
     public static void main(String[] args) throws Exception {
         // Gerçek ağ IP adresini bul
         YEREL_ADRES = yerelIPBul();
 
         // Komut satırı argümanlarını işle
         DiskIO.Mode ioMode = DiskIO.Mode.CLASSIC;
+        int grupBoyutu = DiskIO.VARSAYILAN_GRUP_BOYUTU;
+        long grupBeklemeMikro = DiskIO.VARSAYILAN_GRUP_BEKLEME_MIKRO;
+        long cacheBayt = VARSAYILAN_CACHE_BAYT;
+        String cacheTuru = "slru";
         for (String arg : args) {
             if (arg.startsWith("--mode=")) {
                 String modStr = arg.substring("--mode=".length()).toUpperCase();
@@ -77,14 +166,53 @@ public class NodeMain {
                     ioMode = DiskIO.Mode.valueOf(modStr);
                 } catch (IllegalArgumentException e) {
                     System.err.println("Gecersiz mod: " + modStr);
-                    System.err.println("Gecerli modlar: CLASSIC, UNBUFFERED, MEMORY_MAPPED");
+                    System.err.println("Gecerli modlar: CLASSIC, UNBUFFERED, MEMORY_MAPPED, LOG_SEGMENT, GROUP_COMMIT");
                 }
             } else if (arg.startsWith("--tolerance=")) {
                 tolerance = Integer.parseInt(arg.substring("--tolerance=".length()));
+            } else if (arg.startsWith("--write-quorum=")) {
+                String deger = arg.substring("--write-quorum=".length());
+                writeQuorum = deger.equalsIgnoreCase("all") ? 0 : Integer.parseInt(deger);
             } else if (arg.startsWith("--leader=")) {
                 LIDER_ADRES = arg.substring("--leader=".length());
+            } else if (arg.startsWith("--commit-batch=")) {
+                grupBoyutu = Integer.parseInt(arg.substring("--commit-batch=".length()));
+            } else if (arg.startsWith("--commit-linger-us=")) {
+                grupBeklemeMikro = Long.parseLong(arg.substring("--commit-linger-us=".length()));
+            } else if (arg.startsWith("--cache-bytes=")) {
+                cacheBayt = Long.parseLong(arg.substring("--cache-bytes=".length()));
+            } else if (arg.startsWith("--cache=")) {
+                cacheTuru = arg.substring("--cache=".length()).toLowerCase();
+            } else if (arg.startsWith("--tcp=")) {
+                bloklayanTcp = arg.substring("--tcp=".length()).equalsIgnoreCase("blocking");
+            } else if (arg.startsWith("--threads=")) {
+                virtualThreadler = arg.substring("--threads=".length()).equalsIgnoreCase("virtual");
+            } else if (arg.startsWith("--pipeline-window=")) {
+                pipelinePenceresi = Math.max(1, Integer.parseInt(arg.substring("--pipeline-window=".length())));
+            } else if (arg.startsWith("--tcp-workers=")) {
+                tcpIsciSayisi = Integer.parseInt(arg.substring("--tcp-workers=".length()));
+            } else if (arg.startsWith("--placement=")) {
+                halkaYerlesimi = !arg.substring("--placement=".length()).equalsIgnoreCase("least-loaded");
+            } else if (arg.startsWith("--vnodes=")) {
+                sanalDugumSayisi = Math.max(1, Integer.parseInt(arg.substring("--vnodes=".length())));
+            } else if (arg.startsWith("--repair-bandwidth=")) {
+                onarimBantGenisligi = Long.parseLong(arg.substring("--repair-bandwidth=".length()));
+            } else if (arg.startsWith("--repair-concurrency=")) {
+                onarimEszamanliligi = Math.max(1, Integer.parseInt(arg.substring("--repair-concurrency=".length())));
+            } else if (arg.startsWith("--rebalance=")) {
+                dengelemeAcik = !arg.substring("--rebalance=".length()).equalsIgnoreCase("off");
+            } else if (arg.startsWith("--rebalance-bandwidth=")) {
+                dengelemeBantGenisligi = Long.parseLong(arg.substring("--rebalance-bandwidth=".length()));
+            } else if (arg.startsWith("--replication=")) {
+                akisliReplikasyon = arg.substring("--replication=".length()).equalsIgnoreCase("stream");
             }
         }
+        if (writeQuorum > tolerance) {
+            // Bir SET en fazla tolerance replikaya yazılır: bu quorum hiçbir zaman sağlanamaz
+            System.err.printf("Gecersiz --write-quorum=%d: tolerance (%d) degerinden buyuk olamaz%n",
+                    writeQuorum, tolerance);
+            return;
+        }
 
         System.out.println("==========================================");
         System.out.println("  DISTRIBUTED SYSTEM - COOL VERSION v3.0");
@@ -113,26 +241,66 @@ public class NodeMain {
 
         // Her düğüm kendi veri dizinine yazar
         String veriDizini = "data_" + YEREL_ADRES.replace(".", "_") + "_" + port;
-        diskIO = new DiskIO(ioMode, veriDizini);
+        diskIO = new DiskIO(ioMode, veriDizini, grupBoyutu, grupBeklemeMikro);
+        veriKonumlari = new PlacementCatalog(new File(veriDizini));
+        if (liderMiyim) {
+            // İstemci komutları kabul edilmeden önce: yeni yazmalar geri yüklenenin üzerine gelir
+            long katalogBaslangic = System.nanoTime();
+            int katalogAnahtari = veriKonumlari.yukle();
+            System.out.printf("Placement catalog: %d keys loaded in %d ms%n",
+                    katalogAnahtari, (System.nanoTime() - katalogBaslangic) / 1_000_000);
+        }
+        bellek = cacheTuru.equals("offheap")
+                ? new OffHeapValueStore(cacheBayt)
+                : new SegmentedLruCache(cacheBayt);
 
         NodeInfo kendim = NodeInfo.newBuilder()
                 .setHost(YEREL_ADRES)
                 .setPort(port)
                 .build();
+        liderUye = liderMiyim
+                ? kendim
+                : NodeInfo.newBuilder().setHost(LIDER_ADRES).setPort(BASLANGIC_PORT).build();
 
         NodeRegistry kayitci = new NodeRegistry();
-        FamilyServiceImpl servis = new FamilyServiceImpl(kayitci, kendim, diskIO, bellek);
+        kayitci.cikisDinleyicisiEkle(uye -> {
+            ReplicationStream akis = replikasyonAkislari.remove(uye);
+            if (akis != null) {
+                akis.kapat();
+            }
+            kanalHavuzu.kapat(uye);
+        });
+        FamilyServiceImpl servis = new FamilyServiceImpl(kayitci, kendim, diskIO, bellek,
+                istemciYonlendiricisi(kayitci, kendim));
+        depolamaServisi = new StorageServiceImpl(diskIO, bellek);
 
-        Server sunucu = ServerBuilder
+        ServerBuilder<?> sunucuKurucu = ServerBuilder
                 .forPort(port)
+                .maxInboundMessageSize(ChannelPool.MAX_MESAJ_BOYUTU)
+                // Varsayılan (5 dk) ChannelPool'un 30 sn'lik, çağrısız ping'lerini reddeder
+                .permitKeepAliveTime(ChannelPool.KEEPALIVE_SANIYE, TimeUnit.SECONDS)
+                .permitKeepAliveWithoutCalls(true)
                 .addService(servis)
-                .build()
-                .start();
+                .addService(depolamaServisi);
+        if (virtualThreadler) {
+            sunucuKurucu.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        Server sunucu = sunucuKurucu.build().start();
 
         System.out.printf("Node: %s:%d%n", YEREL_ADRES, port);
         System.out.printf("I/O Mode: %s%n", diskIO.getModeName());
         System.out.printf("Tolerance: %d (data copied to %d nodes)%n", tolerance, tolerance + 1);
+        System.out.printf("Write Quorum: %s%n", writeQuorum > 0 ? String.valueOf(writeQuorum) : "all");
+        System.out.printf("Replication: %s%n", akisliReplikasyon ? "STREAM" : "UNARY");
+        System.out.printf("Placement: %s%n",
+                halkaYerlesimi ? "RING (" + sanalDugumSayisi + " vnodes)" : "LEAST-LOADED");
+        System.out.printf("Re-replication: %s, %d workers%n",
+                onarimBantGenisligi > 0 ? formatSize(onarimBantGenisligi) + "/s" : "unlimited", onarimEszamanliligi);
+        System.out.printf("Rebalance: %s%n", dengelemeAcik
+                ? (dengelemeBantGenisligi > 0 ? formatSize(dengelemeBantGenisligi) + "/s" : "unlimited") : "OFF");
+        System.out.printf("Threads: %s%n", virtualThreadler ? "VIRTUAL" : "PLATFORM");
         System.out.printf("Data Directory: %s%n", veriDizini);
+        System.out.printf("Cache: %s, budget %s%n", bellek.getClass().getSimpleName(), formatSize(cacheBayt));
         System.out.println("Started: " + LocalDateTime.now().format(ZAMAN_FORMAT));
 
         // TCP dinleyiciyi her node'da başlat (hem leader hem follower)
@@ -140,6 +308,14 @@ public class NodeMain {
 
         if (liderMiyim) {
             System.out.println("Role: LEADER");
+            katalogBakiminiBaslat(kayitci);
+            if (dengelemeAcik) {
+                dengeleyici = new Rebalancer(veriKonumlari, kanalHavuzu, () -> canliFollowerMaskesi(kayitci, kendim),
+                        halkaYerlesimi ? anahtar -> halkaMaskesi(kayitci, anahtar) : null,
+                        tolerance, dengelemeBantGenisligi, REPLIKASYON_ZAMAN_ASIMI_MS, new File(veriDizini));
+            }
+            katalogUzlastirmasiniBaslat(kayitci, kendim);
+            yenidenReplikasyonuBaslat(kayitci, kendim);
             liderDuyurusunuBaslat(); // UDP broadcast başlat
             istatistikYazicisiniBaslat(kayitci, kendim);
             boyutCacheGuncelleyicisiniBaslat(kayitci, kendim); // Yük dengeleme için
@@ -349,36 +525,58 @@ public class NodeMain {
      * Follower olarak lidere bağlan
      */
     private static void lidereBaglan(String liderIP, NodeRegistry kayitci, NodeInfo kendim) {
-        ManagedChannel kanal = null;
         try {
-            kanal = ManagedChannelBuilder
-                    .forAddress(liderIP, BASLANGIC_PORT)
-                    .usePlaintext()
+            NodeInfo lider = NodeInfo.newBuilder()
+                    .setHost(liderIP)
+                    .setPort(BASLANGIC_PORT)
                     .build();
 
-            FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(kanal);
-
-            FamilyView gorunum = stub.join(kendim);
+            FamilyView gorunum = kanalHavuzu.blockingStub(lider).join(kendim);
             kayitci.addAll(gorunum.getMembersList());
 
             System.out.printf("Aileye katilindi: %d uye%n", kayitci.snapshot().size());
 
         } catch (Exception e) {
             System.err.println("Lidere baglanti hatasi: " + e.getMessage());
-        } finally {
-            if (kanal != null)
-                kanal.shutdownNow();
         }
     }
 
+    /**
+     * TCP ön yüzünü başlatır. --threads=virtual ise her bağlantı kendi virtual
+     * thread'inde bloklayan okuma ile işlenir (event-loop'a gerek kalmaz).
+     */
     private static void tcpDinleyicisiniBaslat(NodeRegistry kayitci, NodeInfo kendim) {
+        if (!bloklayanTcp && !virtualThreadler) {
+            try {
+                tcpSunucusu = new NioCommandServer(TCP_DINLEME_PORT, tcpIsciSayisi, pipelinePenceresi,
+                        komut -> komutuIsle(komut, kayitci, kendim),
+                        frame -> ikiliKomutuIsle(frame, kayitci, kendim),
+                        komut -> respKomutuIsle(komut, kayitci, kendim));
+                tcpSunucusu.baslat();
+                System.out.printf("TCP Listening: %s:%d (NIO, %d workers, pipeline window %d)%n",
+                        kendim.getHost(), TCP_DINLEME_PORT, tcpIsciSayisi, pipelinePenceresi);
+            } catch (IOException e) {
+                System.err.println("TCP dinleyici hatasi: " + e.getMessage());
+            }
+            return;
+        }
+
+        tcpYurutucu = virtualThreadler
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(tcpIsciSayisi);
+
         new Thread(() -> {
             try (ServerSocket dinleyici = new ServerSocket(TCP_DINLEME_PORT)) {
-                System.out.printf("TCP Listening: %s:%d%n", kendim.getHost(), TCP_DINLEME_PORT);
+                System.out.printf("TCP Listening: %s:%d (%s thread per connection, pipeline window %d)%n",
+                        kendim.getHost(), TCP_DINLEME_PORT, virtualThreadler ? "virtual" : "platform",
+                        pipelinePenceresi);
 
+                Thread.Builder baglantiThreadi = virtualThreadler
+                        ? Thread.ofVirtual().name("tcp-", 0)
+                        : Thread.ofPlatform().name("tcp-", 0);
                 while (true) {
                     Socket istemci = dinleyici.accept();
-                    new Thread(() -> istemciBaglantisiniIsle(istemci, kayitci, kendim)).start();
+                    baglantiThreadi.start(() -> istemciBaglantisiniIsle(istemci, kayitci, kendim));
                 }
 
             } catch (IOException e) {
@@ -387,24 +585,92 @@ public class NodeMain {
         }, "TcpDinleyici").start();
     }
 
+    /**
+     * Bağlantıyı bloklayan okuma ile işler. Okuyan thread satırları beklemeden
+     * komut hattına verir (en fazla pipelinePenceresi kadar uçuşta), ayrı bir
+     * yazıcı thread yanıtları istek sırasıyla yazar; kuyruk boşalınca flush eder.
+     */
     private static void istemciBaglantisiniIsle(Socket istemci, NodeRegistry kayitci, NodeInfo kendim) {
         String istemciAdresi = istemci.getRemoteSocketAddress().toString();
         System.out.println("[BAGLANTI] " + istemciAdresi);
 
-        try (BufferedReader okuyucu = new BufferedReader(new InputStreamReader(istemci.getInputStream()));
-                PrintWriter yazici = new PrintWriter(istemci.getOutputStream(), true)) {
+        try (BufferedOutputStream yazici = new BufferedOutputStream(istemci.getOutputStream())) {
+            LineReader okuyucu = new LineReader(istemci.getInputStream());
+            CommandPipeline hat = new CommandPipeline(tcpYurutucu, komut -> komutuIsle(komut, kayitci, kendim));
+            Semaphore pencere = new Semaphore(pipelinePenceresi);
+            BlockingQueue<CompletableFuture<byte[]>> sirali = new LinkedBlockingQueue<>();
+            CompletableFuture<byte[]> bitis = new CompletableFuture<>();
 
-            String satir;
-            while ((satir = okuyucu.readLine()) != null) {
-                String komut = satir.trim();
-                if (komut.isEmpty())
-                    continue;
+            Runnable yaziciDongusu = () -> {
+                boolean koptu = false;
+                try {
+                    CompletableFuture<byte[]> sonuc;
+                    while ((sonuc = sirali.take()) != bitis) {
+                        byte[] yanit = sonuc.join();
+                        pencere.release();
+                        if (koptu) {
+                            continue; // Okuyucu kapanana kadar yanıtlar atılır
+                        }
+                        try {
+                            yazici.write(yanit);
+                            if (sirali.isEmpty()) {
+                                yazici.flush();
+                            }
+                        } catch (IOException e) {
+                            koptu = true;
+                        }
+                    }
+                    if (!koptu) {
+                        yazici.flush();
+                    }
+                } catch (IOException ignored) {
+                    // Bağlantı koptu
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            Thread yaziciThreadi = virtualThreadler
+                    ? Thread.ofVirtual().start(yaziciDongusu)
+                    : Thread.ofPlatform().daemon().start(yaziciDongusu);
 
-                String yanit = komutuIsle(komut, kayitci, kendim);
-                yazici.println(yanit);
+            try {
+                int ilkByte = okuyucu.bak();
+                if (ilkByte == BinaryProtocol.SIHIRLI_BYTE) {
+                    // İkili protokol: bu ön yüzde yanıtlar istek sırasıyla yazılır
+                    okuyucu.atla();
+                    BinaryProtocol.Frame frame;
+                    while ((frame = BinaryProtocol.frameOku(okuyucu)) != null) {
+                        BinaryProtocol.Frame istek = frame;
+                        pencere.acquire();
+                        sirali.add(hat.calistir(CommandPipeline.anahtarSeridi(istek.anahtar),
+                                () -> ikiliKomutuIsle(istek, kayitci, kendim),
+                                hata -> BinaryProtocol.hataYaniti(istek.istekNo, CommandPipeline.hataMesaji(hata))));
+                    }
+                } else if (ilkByte == RespProtocol.DIZI_ISARETI) {
+                    byte[][] komut;
+                    while ((komut = RespProtocol.komutOku(okuyucu)) != null) {
+                        byte[][] istek = komut;
+                        pencere.acquire();
+                        sirali.add(hat.calistir(RespProtocol.seritIndeksi(istek),
+                                () -> respKomutuIsle(istek, kayitci, kendim),
+                                hata -> RespProtocol.hata(CommandPipeline.hataMesaji(hata))));
+                    }
+                } else {
+                    byte[] satir;
+                    while ((satir = okuyucu.satirOku()) != null) {
+                        if (satir.length == 0)
+                            continue;
+
+                        pencere.acquire();
+                        sirali.add(hat.calistir(satir));
+                    }
+                }
+            } finally {
+                sirali.add(bitis);
+                yaziciThreadi.join();
             }
 
-        } catch (IOException e) {
+        } catch (IOException | InterruptedException e) {
             // Bağlantı koptu - sessizce devam
         } finally {
             try {
@@ -414,231 +680,1184 @@ public class NodeMain {
         }
     }
 
-    private static String komutuIsle(String komut, NodeRegistry kayitci, NodeInfo kendim) {
-        String[] parcalar = komut.split(" ", 3);
-
-        if (parcalar.length < 2) {
-            return "ERROR Invalid command format";
+    /**
+     * Bir komut satırını (kırpılmış, sonunda "\n" olmadan) işler ve "\n" ile biten
+     * yanıt satırını döner. Komut adı ve anahtar CommandParser ile satır dizisi
+     * üzerinde ayrıştırılır; SET değeri String'e çevrilmeden dilim olarak taşınır.
+     */
+    private static byte[] komutuIsle(byte[] satir, NodeRegistry kayitci, NodeInfo kendim) {
+        int son = satir.length;
+        int islemSonu = CommandParser.alanSonu(satir, 0, son);
+        if (islemSonu >= son) {
+            return yanitSatiri("ERROR Invalid command format");
         }
-
-        String islem = parcalar[0].toUpperCase();
+        int tur = CommandParser.komutTuru(satir, 0, islemSonu);
 
         try {
-            int anahtar = Integer.parseInt(parcalar[1]);
+            if (tur == CommandParser.MSET || tur == CommandParser.MGET) {
+                String govde = new String(satir, islemSonu + 1, son - islemSonu - 1, StandardCharsets.UTF_8);
+                return yanitSatiri(tur == CommandParser.MSET
+                        ? msetIsle(govde, kayitci, kendim)
+                        : mgetIsle(govde, kayitci, kendim));
+            }
+            if (tur == CommandParser.DEL || tur == CommandParser.EXISTS) {
+                int[] anahtarlar = anahtarlariAyristir(satir, islemSonu + 1, son);
+                if (anahtarlar == null) {
+                    return yanitSatiri("ERROR Invalid key format");
+                }
+                return yanitSatiri("OK " + (tur == CommandParser.DEL
+                        ? delUygula(anahtarlar, kayitci, kendim)
+                        : existsUygula(anahtarlar, kayitci, kendim)));
+            }
+
+            int anahtarSonu = CommandParser.alanSonu(satir, islemSonu + 1, son);
+            long ayrisan = CommandParser.intAyristir(satir, islemSonu + 1, anahtarSonu);
+            if (ayrisan == CommandParser.GECERSIZ_ANAHTAR) {
+                return yanitSatiri("ERROR Invalid key format");
+            }
+            int anahtar = (int) ayrisan;
 
-            if (islem.equals("SET")) {
-                if (parcalar.length < 3) {
-                    return "ERROR SET requires key and value";
+            if (tur == CommandParser.SET) {
+                if (anahtarSonu >= son) {
+                    return yanitSatiri("ERROR SET requires key and value");
                 }
-                String deger = parcalar[2];
+                String hata = setIsle(satir, anahtarSonu + 1, son, anahtar, kayitci, kendim);
+                return hata == null ? OK_YANITI : yanitSatiri("ERROR " + hata);
+            } else if (tur == CommandParser.GET) {
+                ByteString deger = getIsle(anahtar, kayitci, kendim);
+                if (deger == null) {
+                    return OK_YANITI;
+                }
+                // "OK " + değer + "\n" tek dizide
+                byte[] yanit = new byte[deger.size() + 4];
+                System.arraycopy(OK_YANITI, 0, yanit, 0, 2);
+                yanit[2] = ' ';
+                deger.copyTo(yanit, 3);
+                yanit[yanit.length - 1] = '\n';
+                return yanit;
+            } else {
+                String islem = new String(satir, 0, islemSonu, StandardCharsets.UTF_8).toUpperCase();
+                return yanitSatiri("ERROR Unknown command: " + islem);
+            }
 
-                if (liderMiyim) {
-                    // LEADER: Sadece follower'lara replike et, kendisi dosya tutmaz
-                    toplamSetSayisi.incrementAndGet();
-                    System.out.printf("[SET] %d (%d B) -> follower'lara replike ediliyor%n",
-                            anahtar, deger.length());
+        } catch (NumberFormatException e) {
+            return yanitSatiri("ERROR Invalid key format");
+        } catch (Exception e) {
+            return yanitSatiri("ERROR " + e.getMessage());
+        }
+    }
 
-                    int replikeSayisi = replikasyonYap(kayitci, kendim, anahtar, deger);
-                    basariliReplikasyon.addAndGet(replikeSayisi);
+    /**
+     * satir[bas, son) aralığındaki boşlukla ayrılmış anahtarlar; biri geçersizse null
+     */
+    private static int[] anahtarlariAyristir(byte[] satir, int bas, int son) {
+        List<Integer> anahtarlar = new ArrayList<>();
+        while (bas < son) {
+            int alanSonu = CommandParser.alanSonu(satir, bas, son);
+            if (alanSonu > bas) {
+                long anahtar = CommandParser.intAyristir(satir, bas, alanSonu);
+                if (anahtar == CommandParser.GECERSIZ_ANAHTAR) {
+                    return null;
+                }
+                anahtarlar.add((int) anahtar);
+            }
+            bas = alanSonu + 1;
+        }
+        return anahtarlar.stream().mapToInt(Integer::intValue).toArray();
+    }
 
-                    if (replikeSayisi == 0) {
-                        return "ERROR No available followers for replication";
+    /**
+     * RESP komutunu (argüman dizisi) satır protokolüyle aynı motorla işler ve
+     * RESP yanıtını döner (bkz. RespProtocol). Desteklenen komutlar: SET, GET,
+     * MSET, MGET, DEL, EXISTS, PING, INFO; CONFIG ve COMMAND istemcilerin
+     * açılış sorguları için boş dizi döner.
+     */
+    private static byte[] respKomutuIsle(byte[][] argumanlar, NodeRegistry kayitci, NodeInfo kendim) {
+        int tur = CommandParser.komutTuru(argumanlar[0], 0, argumanlar[0].length);
+        int adet = argumanlar.length;
+        try {
+            switch (tur) {
+                case CommandParser.PING:
+                    return adet > 1 ? RespProtocol.bulk(UnsafeByteOperations.unsafeWrap(argumanlar[1])) : RespProtocol.PONG;
+                case CommandParser.SET: {
+                    if (adet != 3) {
+                        return argumanHatasi(argumanlar[0]);
                     }
-                } else {
-                    // FOLLOWER: Yerel belleğe ve diske kaydet
-                    bellek.put(anahtar, deger);
+                    long anahtar = CommandParser.intAyristir(argumanlar[1], 0, argumanlar[1].length);
+                    if (anahtar == CommandParser.GECERSIZ_ANAHTAR) {
+                        return RespProtocol.hata("key is not an int32 integer");
+                    }
+                    String hata = setIsle(argumanlar[2], 0, argumanlar[2].length, (int) anahtar, kayitci, kendim);
+                    return hata == null ? RespProtocol.OK : RespProtocol.hata(hata);
+                }
+                case CommandParser.GET: {
+                    if (adet != 2) {
+                        return argumanHatasi(argumanlar[0]);
+                    }
+                    long anahtar = CommandParser.intAyristir(argumanlar[1], 0, argumanlar[1].length);
+                    if (anahtar == CommandParser.GECERSIZ_ANAHTAR) {
+                        return RespProtocol.hata("key is not an int32 integer");
+                    }
+                    return RespProtocol.bulk(getIsle((int) anahtar, kayitci, kendim));
+                }
+                case CommandParser.MSET: {
+                    if (adet < 3 || adet % 2 == 0) {
+                        return argumanHatasi(argumanlar[0]);
+                    }
+                    int[] anahtarlar = respAnahtarlari(argumanlar, 1, 2);
+                    if (anahtarlar == null) {
+                        return RespProtocol.hata("key is not an int32 integer");
+                    }
+                    ByteString[] degerler = new ByteString[anahtarlar.length];
+                    for (int i = 0; i < degerler.length; i++) {
+                        degerler[i] = UnsafeByteOperations.unsafeWrap(argumanlar[2 + 2 * i]);
+                    }
+                    String hata = msetUygula(anahtarlar, degerler, kayitci, kendim);
+                    return hata == null ? RespProtocol.OK : RespProtocol.hata(hata);
+                }
+                case CommandParser.MGET:
+                case CommandParser.DEL:
+                case CommandParser.EXISTS: {
+                    if (adet < 2) {
+                        return argumanHatasi(argumanlar[0]);
+                    }
+                    int[] anahtarlar = respAnahtarlari(argumanlar, 1, 1);
+                    if (anahtarlar == null) {
+                        return RespProtocol.hata("key is not an int32 integer");
+                    }
+                    if (tur == CommandParser.MGET) {
+                        return RespProtocol.dizi(mgetUygula(anahtarlar, kayitci, kendim));
+                    }
+                    return RespProtocol.tamsayi(tur == CommandParser.DEL
+                            ? delUygula(anahtarlar, kayitci, kendim)
+                            : existsUygula(anahtarlar, kayitci, kendim));
+                }
+                case CommandParser.INFO:
+                    return RespProtocol.bulk(ByteString.copyFromUtf8(bilgiMetni(kayitci)));
+                default:
+                    String ad = komutAdi(argumanlar[0]);
+                    if (ad.equals("config") || ad.equals("command")) {
+                        return RespProtocol.BOS_DIZI;
+                    }
+                    return RespProtocol.hata("unknown command '" + ad + "'");
+            }
+        } catch (Exception e) {
+            return RespProtocol.hata(e.getMessage());
+        }
+    }
+
+    private static byte[] argumanHatasi(byte[] komut) {
+        return RespProtocol.hata("wrong number of arguments for '" + komutAdi(komut) + "' command");
+    }
+
+    private static String komutAdi(byte[] komut) {
+        return new String(komut, StandardCharsets.UTF_8).toLowerCase();
+    }
+
+    /**
+     * argumanlar[bas], argumanlar[bas + adim], ... anahtarları; biri int32 değilse null
+     */
+    private static int[] respAnahtarlari(byte[][] argumanlar, int bas, int adim) {
+        int[] anahtarlar = new int[(argumanlar.length - bas + adim - 1) / adim];
+        for (int i = 0; i < anahtarlar.length; i++) {
+            byte[] arguman = argumanlar[bas + i * adim];
+            long anahtar = CommandParser.intAyristir(arguman, 0, arguman.length);
+            if (anahtar == CommandParser.GECERSIZ_ANAHTAR) {
+                return null;
+            }
+            anahtarlar[i] = (int) anahtar;
+        }
+        return anahtarlar;
+    }
 
-                    long yazmaSuresi = diskIO.write(anahtar, deger);
-                    toplamYazmaSuresi.addAndGet(yazmaSuresi);
-                    toplamSetSayisi.incrementAndGet();
+    /**
+     * RESP INFO gövdesi: Redis'teki gibi "alan:deger" satırları
+     */
+    private static String bilgiMetni(NodeRegistry kayitci) {
+        StringBuilder bilgi = new StringBuilder("# Server\r\n");
+        bilgi.append("role:").append(liderMiyim ? "master" : "slave").append("\r\n");
+        bilgi.append("io_mode:").append(diskIO.getModeName()).append("\r\n");
+        bilgi.append("tolerance:").append(tolerance).append("\r\n");
+        bilgi.append("cluster_members:").append(kayitci.snapshot().size()).append("\r\n");
+        bilgi.append("# Stats\r\n");
+        bilgi.append("total_set_commands:").append(toplamSetSayisi.get()).append("\r\n");
+        bilgi.append("total_get_commands:").append(toplamGetSayisi.get()).append("\r\n");
+        bilgi.append("successful_replications:").append(basariliReplikasyon.get()).append("\r\n");
+        bilgi.append("# Keyspace\r\n");
+        bilgi.append("keys:").append(liderMiyim ? veriKonumlari.size() : diskIO.getFileCount()).append("\r\n");
+        bilgi.append("used_disk_bytes:").append(diskIO.getTotalSize()).append("\r\n");
+        return bilgi.toString();
+    }
+
+    /**
+     * İkili protokol frame'ini satır protokolüyle aynı SET/GET motoruyla işler
+     * ve yanıt frame'ini döner (bkz. BinaryProtocol)
+     */
+    private static byte[] ikiliKomutuIsle(BinaryProtocol.Frame frame, NodeRegistry kayitci, NodeInfo kendim) {
+        try {
+            if (frame.opcode == BinaryProtocol.SET) {
+                String hata = setIsle(frame.deger, 0, frame.deger.length, frame.anahtar, kayitci, kendim);
+                return hata == null
+                        ? BinaryProtocol.yanit(BinaryProtocol.DURUM_OK, frame.istekNo)
+                        : BinaryProtocol.hataYaniti(frame.istekNo, hata);
+            } else if (frame.opcode == BinaryProtocol.GET) {
+                ByteString deger = getIsle(frame.anahtar, kayitci, kendim);
+                return deger == null
+                        ? BinaryProtocol.yanit(BinaryProtocol.DURUM_YOK, frame.istekNo)
+                        : BinaryProtocol.yanit(BinaryProtocol.DURUM_OK, frame.istekNo, deger);
+            }
+            return BinaryProtocol.hataYaniti(frame.istekNo, "Unknown opcode: " + frame.opcode);
+        } catch (Exception e) {
+            return BinaryProtocol.hataYaniti(frame.istekNo, e.getMessage());
+        }
+    }
+
+    /**
+     * SET: değer satir[degerBas, degerSon) aralığıdır. Dizi bu komuta aittir ve
+     * değişmez; değer kopyalanmadan replikasyona ya da diske verilir.
+     *
+     * @return hata mesajı, başarılıysa null
+     */
+    private static String setIsle(byte[] satir, int degerBas, int degerSon, int anahtar,
+                                  NodeRegistry kayitci, NodeInfo kendim) throws IOException {
+        int uzunluk = degerSon - degerBas;
+
+        if (liderMiyim) {
+            return liderSetIsle(anahtar, UnsafeByteOperations.unsafeWrap(satir, degerBas, uzunluk), kayitci, kendim);
+        }
+
+        // FOLLOWER: Replike yazmalarla aynı sürüm kontrolüyle diske kaydedilir; düğümdeki
+        // daha yeni sürümün üzerine yazılmaz. Önbellekteki eski değeri surumluYaz atar.
+        long yazmaSuresi = depolamaServisi.surumluYaz(anahtar,
+                UnsafeByteOperations.unsafeWrap(satir, degerBas, uzunluk), yeniSurum());
+        if (yazmaSuresi == StorageServiceImpl.UYGULANMADI) {
+            return "Newer version v" + Math.max(diskIO.getVersion(anahtar), diskIO.getDeletedVersion(anahtar))
+                    + " already stored";
+        }
+        toplamYazmaSuresi.addAndGet(yazmaSuresi);
+        toplamSetSayisi.incrementAndGet();
 
-                    System.out.printf("[SET] %d (%d B) disk: %d us%n",
-                            anahtar, deger.length(), yazmaSuresi);
+        System.out.printf("[SET] %d (%d B) disk: %d us%n", anahtar, uzunluk, yazmaSuresi);
+        return null;
+    }
+
+    /**
+     * LEADER SET: sadece follower'lara replike eder, kendisi dosya tutmaz
+     *
+     * @return hata mesajı, başarılıysa null
+     */
+    private static String liderSetIsle(int anahtar, ByteString deger, NodeRegistry kayitci, NodeInfo kendim) {
+        toplamSetSayisi.incrementAndGet();
+        System.out.printf("[SET] %d (%d B) -> follower'lara replike ediliyor%n", anahtar, deger.size());
+
+        int replikeSayisi = replikasyonYap(kayitci, kendim, anahtar, deger);
+
+        if (replikeSayisi == QUORUM_YETERSIZ) {
+            return "Not enough followers for write quorum " + writeQuorum;
+        }
+        if (replikeSayisi == 0) {
+            return "No available followers for replication";
+        }
+        if (writeQuorum > 0 && replikeSayisi < writeQuorum) {
+            return "Write quorum not reached (" + replikeSayisi + "/" + writeQuorum + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Akıllı istemci RPC'leri (Put, Locate) için FamilyServiceImpl'e verilen
+     * leader işlemleri. Follower'da leader, keşfedilen leader adresidir.
+     */
+    private static FamilyServiceImpl.ClientRouter istemciYonlendiricisi(NodeRegistry kayitci, NodeInfo kendim) {
+        return new FamilyServiceImpl.ClientRouter() {
+            @Override
+            public boolean liderMiyim() {
+                return liderMiyim;
+            }
+
+            @Override
+            public NodeInfo lider() {
+                return liderUye;
+            }
+
+            @Override
+            public int sanalDugumSayisi() {
+                return halkaYerlesimi ? sanalDugumSayisi : 0;
+            }
+
+            @Override
+            public int replikaSayisi() {
+                return tolerance;
+            }
+
+            @Override
+            public List<NodeInfo> yaz(int anahtar, ByteString deger) throws IOException {
+                String hata = liderSetIsle(anahtar, deger, kayitci, kendim);
+                if (hata != null) {
+                    throw new IOException(hata);
                 }
+                return konumlar(anahtar);
+            }
+
+            @Override
+            public List<NodeInfo> konumlar(int anahtar) {
+                return bilinenReplikalar(kayitci, anahtar);
+            }
+        };
+    }
 
-                return "OK";
+    /**
+     * GET: değer ya da bulunamadıysa null
+     */
+    private static ByteString getIsle(int anahtar, NodeRegistry kayitci, NodeInfo kendim) throws IOException {
+        toplamGetSayisi.incrementAndGet();
+        long baslangic = System.nanoTime();
 
-            } else if (islem.equals("GET")) {
-                toplamGetSayisi.incrementAndGet();
-                long baslangic = System.nanoTime();
+        ByteString deger = null;
 
-                String deger = null;
+        if (liderMiyim) {
+            // LEADER: Doğrudan follower'lardan al, yerel disk/bellek yok
+            deger = digerDugumlerdenAl(kayitci, kendim, anahtar);
+        } else {
+            deger = yereldenAl(anahtar, kayitci, kendim);
+        }
 
-                if (liderMiyim) {
-                    // LEADER: Doğrudan follower'lardan al, yerel disk/bellek yok
-                    deger = digerDugumlerdenAl(kayitci, kendim, anahtar);
-                } else {
-                    // FOLLOWER: Önce yerel bellekte ara
-                    deger = bellek.get(anahtar);
-
-                    // Yerel bellekte yoksa yerel diskten oku
-                    if (deger == null) {
-                        deger = diskIO.read(anahtar);
-                        if (deger != null) {
-                            bellek.put(anahtar, deger);
-                        }
-                    }
+        long okumaSuresi = (System.nanoTime() - baslangic) / 1000;
+        toplamOkumaSuresi.addAndGet(okumaSuresi);
 
-                    // Yerel bulunamadıysa diğer düğümlerden sor
-                    if (deger == null) {
-                        deger = digerDugumlerdenAl(kayitci, kendim, anahtar);
-                        if (deger != null) {
-                            bellek.put(anahtar, deger);
-                        }
-                    }
+        if (deger != null) {
+            System.out.printf("[GET] %d -> found (%d B) %d us%n", anahtar, deger.size(), okumaSuresi);
+        } else {
+            System.out.printf("[GET] %d -> not found %d us%n", anahtar, okumaSuresi);
+        }
+        return deger;
+    }
+
+    /**
+     * FOLLOWER okuması: önce bellek, sonra yerel disk, yerelde yoksa diğer düğümler
+     */
+    private static ByteString yereldenAl(int anahtar, NodeRegistry kayitci, NodeInfo kendim) throws IOException {
+        ByteString onbellekte = bellek.get(anahtar);
+        if (onbellekte != null) {
+            return onbellekte; // Önbellek byte'ları aynen döner: binary değerler bozulmaz
+        }
+
+        byte[] diskteki = diskIO.readBytes(anahtar);
+        ByteString deger = diskteki != null
+                ? UnsafeByteOperations.unsafeWrap(diskteki)
+                : digerDugumlerdenAl(kayitci, kendim, anahtar);
+        if (deger != null) {
+            bellek.put(anahtar, deger);
+        }
+        return deger;
+    }
+
+    private static byte[] yanitSatiri(String yanit) {
+        return (yanit + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * MSET k1 v1 k2 v2 ... - birden çok anahtarı tek komutta yazar.
+     * Değer ya boşluksuz tek bir kelimedir ya da "$<byte uzunluğu> <değer>"
+     * biçimindedir; ikincisinde değer boşluk içerebilir (uzunluk UTF-8 byte).
+     * Yanıt: "OK <yazılan anahtar sayısı>"
+     */
+    private static String msetIsle(String govde, NodeRegistry kayitci, NodeInfo kendim) throws IOException {
+        List<Integer> anahtarListesi = new ArrayList<>();
+        List<ByteString> degerListesi = new ArrayList<>();
+        int i = 0;
+        while (i < govde.length()) {
+            int bosluk = govde.indexOf(' ', i);
+            if (bosluk < 0) {
+                return "ERROR MSET requires key value pairs";
+            }
+            anahtarListesi.add(Integer.parseInt(govde.substring(i, bosluk)));
+            i = bosluk + 1;
+
+            int son;
+            if (govde.startsWith("$", i)) {
+                int uzunlukSonu = govde.indexOf(' ', i);
+                if (uzunlukSonu < 0) {
+                    return "ERROR MSET length prefix requires a value";
+                }
+                int byteUzunlugu = Integer.parseInt(govde.substring(i + 1, uzunlukSonu));
+                son = utf8Sonu(govde, uzunlukSonu + 1, byteUzunlugu);
+                if (son < 0) {
+                    return "ERROR MSET value length mismatch";
+                }
+                degerListesi.add(ByteString.copyFromUtf8(govde.substring(uzunlukSonu + 1, son)));
+                if (son < govde.length() && govde.charAt(son) != ' ') {
+                    return "ERROR MSET value length mismatch";
+                }
+            } else {
+                son = govde.indexOf(' ', i);
+                if (son < 0) {
+                    son = govde.length();
                 }
+                degerListesi.add(ByteString.copyFromUtf8(govde.substring(i, son)));
+            }
+            i = son + 1;
+        }
+        if (anahtarListesi.isEmpty()) {
+            return "ERROR MSET requires key value pairs";
+        }
 
-                long okumaSuresi = (System.nanoTime() - baslangic) / 1000;
-                toplamOkumaSuresi.addAndGet(okumaSuresi);
+        int[] anahtarlar = new int[anahtarListesi.size()];
+        for (int k = 0; k < anahtarlar.length; k++) {
+            anahtarlar[k] = anahtarListesi.get(k);
+        }
+        String hata = msetUygula(anahtarlar, degerListesi.toArray(new ByteString[0]), kayitci, kendim);
+        return hata == null ? "OK " + anahtarlar.length : "ERROR " + hata;
+    }
 
-                if (deger != null) {
-                    System.out.printf("[GET] %d -> found (%d B) %d us%n",
-                            anahtar, deger.length(), okumaSuresi);
-                    return "OK " + deger;
-                } else {
-                    System.out.printf("[GET] %d -> not found %d us%n", anahtar, okumaSuresi);
-                    return "OK";
+    /**
+     * MSET motoru (satır ve RESP protokolleri ortak): leader'da toplu
+     * replikasyon, follower'da yerel disk
+     *
+     * @return hata mesajı, başarılıysa null
+     */
+    private static String msetUygula(int[] anahtarlar, ByteString[] degerler,
+                                     NodeRegistry kayitci, NodeInfo kendim) throws IOException {
+        int adet = anahtarlar.length;
+        toplamSetSayisi.addAndGet(adet);
+
+        if (liderMiyim) {
+            System.out.printf("[MSET] %d anahtar -> follower'lara replike ediliyor%n", adet);
+            int[] onaylar = topluReplikasyonYap(kayitci, kendim, anahtarlar, degerler);
+
+            int basarisiz = 0;
+            int quorumAlti = 0;
+            for (int onay : onaylar) {
+                if (onay == QUORUM_YETERSIZ) {
+                    return "Not enough followers for write quorum " + writeQuorum;
+                }
+                if (onay == 0) {
+                    basarisiz++;
+                } else if (writeQuorum > 0 && onay < writeQuorum) {
+                    quorumAlti++;
+                }
+            }
+            if (basarisiz == adet) {
+                return "No available followers for replication";
+            }
+            if (basarisiz > 0) {
+                return "Replication failed for " + basarisiz + "/" + adet + " keys";
+            }
+            if (quorumAlti > 0) {
+                return "Write quorum not reached for " + quorumAlti + "/" + adet + " keys";
+            }
+        } else {
+            List<StoredMessage> kayitlar = new ArrayList<>(adet);
+            for (int k = 0; k < adet; k++) {
+                kayitlar.add(StoredMessage.newBuilder()
+                        .setId(anahtarlar[k])
+                        .setValue(degerler[k])
+                        .setVersion(yeniSurum())
+                        .build());
+            }
+            long baslangic = System.nanoTime();
+            boolean[] uygulananlar = depolamaServisi.topluUygula(kayitlar, "MSET");
+            long yazmaSuresi = (System.nanoTime() - baslangic) / 1000;
+            toplamYazmaSuresi.addAndGet(yazmaSuresi);
+            System.out.printf("[MSET] %d anahtar disk: %d us%n", adet, yazmaSuresi);
+            int eski = 0;
+            for (boolean uygulandi : uygulananlar) {
+                if (!uygulandi) {
+                    eski++;
                 }
+            }
+            if (eski > 0) {
+                return "Newer version already stored for " + eski + "/" + adet + " keys";
+            }
+        }
+        return null;
+    }
 
+    /**
+     * MGET k1 k2 ... - anahtarları tek komutta okur.
+     * Yanıt tek satırdır: "OK" ardından her anahtar için " $<byte uzunluğu> <değer>",
+     * bulunamayanlar için " $-1" (istek sırasıyla)
+     */
+    private static String mgetIsle(String govde, NodeRegistry kayitci, NodeInfo kendim) throws IOException {
+        String[] alanlar = govde.trim().split(" +");
+        int[] anahtarlar = new int[alanlar.length];
+        for (int i = 0; i < alanlar.length; i++) {
+            anahtarlar[i] = Integer.parseInt(alanlar[i]);
+        }
+
+        ByteString[] degerler = mgetUygula(anahtarlar, kayitci, kendim);
+
+        StringBuilder yanit = new StringBuilder("OK");
+        for (ByteString deger : degerler) {
+            if (deger == null) {
+                yanit.append(" $-1");
             } else {
-                return "ERROR Unknown command: " + islem;
+                yanit.append(" $").append(deger.size()).append(' ').append(deger.toStringUtf8());
+            }
+        }
+        return yanit.toString();
+    }
+
+    /**
+     * MGET motoru (satır ve RESP protokolleri ortak)
+     *
+     * @return anahtar başına değer (bulunamadıysa null), istek sırasıyla
+     */
+    private static ByteString[] mgetUygula(int[] anahtarlar, NodeRegistry kayitci, NodeInfo kendim)
+            throws IOException {
+        toplamGetSayisi.addAndGet(anahtarlar.length);
+        long baslangic = System.nanoTime();
+
+        ByteString[] degerler;
+        if (liderMiyim) {
+            degerler = topluOku(kayitci, kendim, anahtarlar);
+        } else {
+            degerler = new ByteString[anahtarlar.length];
+            for (int i = 0; i < anahtarlar.length; i++) {
+                degerler[i] = yereldenAl(anahtarlar[i], kayitci, kendim);
             }
+        }
 
-        } catch (NumberFormatException e) {
-            return "ERROR Invalid key format";
-        } catch (Exception e) {
-            return "ERROR " + e.getMessage();
+        long okumaSuresi = (System.nanoTime() - baslangic) / 1000;
+        toplamOkumaSuresi.addAndGet(okumaSuresi);
+
+        int bulunan = 0;
+        for (ByteString deger : degerler) {
+            if (deger != null) {
+                bulunan++;
+            }
+        }
+        System.out.printf("[MGET] %d anahtar -> %d bulundu %d us%n", anahtarlar.length, bulunan, okumaSuresi);
+        return degerler;
+    }
+
+    /**
+     * DEL motoru. Leader silmeyi tüm follower'lara gönderir (eski bir SET'in
+     * replikası da kalmasın diye sadece bilinen konumlara değil) ve konumları
+     * unutur; follower yerel diskinden siler.
+     *
+     * @return en az bir düğümde bulunup silinen anahtar sayısı
+     */
+    private static int delUygula(int[] anahtarlar, NodeRegistry kayitci, NodeInfo kendim) throws IOException {
+        boolean[] silindi = new boolean[anahtarlar.length];
+        if (liderMiyim) {
+            List<NodeInfo> uyeler = new ArrayList<>();
+            for (NodeInfo uye : kayitci.snapshot()) {
+                if (!(uye.getHost().equals(kendim.getHost()) && uye.getPort() == kendim.getPort())) {
+                    uyeler.add(uye);
+                }
+            }
+            if (uyeler.isEmpty()) {
+                throw new IOException("No available followers for replication");
+            }
+
+            List<ListenableFuture<StoreAck>> cagrilar = new ArrayList<>();
+            List<Integer> cagriIndeksleri = new ArrayList<>();
+            long[] silmeSurumleri = new long[anahtarlar.length];
+            for (int i = 0; i < anahtarlar.length; i++) {
+                silmeSurumleri[i] = yeniSurum();
+                DeleteRequest istek = DeleteRequest.newBuilder()
+                        .setId(anahtarlar[i])
+                        .setVersion(silmeSurumleri[i])
+                        .build();
+                for (NodeInfo uye : uyeler) {
+                    cagrilar.add(kanalHavuzu.storageFutureStub(uye)
+                            .withDeadlineAfter(REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                            .delete(istek));
+                    cagriIndeksleri.add(i);
+                }
+            }
+
+            List<StoreAck> yanitlar;
+            try {
+                yanitlar = Futures.successfulAsList(cagrilar).get(2 * REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                yanitlar = List.of();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+            int basarili = 0;
+            for (int c = 0; c < yanitlar.size(); c++) {
+                StoreAck yanit = yanitlar.get(c);
+                if (yanit != null) {
+                    basarili++;
+                    silindi[cagriIndeksleri.get(c)] |= yanit.getApplied();
+                }
+            }
+            if (basarili == 0) {
+                throw new IOException("No available followers for replication");
+            }
+            for (int i = 0; i < anahtarlar.length; i++) {
+                // Silme işareti: DEL sırasında kapalı olan follower dönünce anahtar diriltilmez
+                veriKonumlari.sil(anahtarlar[i], silmeSurumleri[i]);
+            }
+        } else {
+            for (int i = 0; i < anahtarlar.length; i++) {
+                silindi[i] = depolamaServisi.surumluSil(anahtarlar[i], yeniSurum());
+            }
+        }
+
+        int adet = 0;
+        for (boolean s : silindi) {
+            if (s) {
+                adet++;
+            }
         }
+        System.out.printf("[DEL] %d anahtar -> %d silindi%n", anahtarlar.length, adet);
+        return adet;
+    }
+
+    /**
+     * EXISTS motoru: bulunan anahtar sayısı (tekrarlanan anahtar tekrar sayılır)
+     */
+    private static int existsUygula(int[] anahtarlar, NodeRegistry kayitci, NodeInfo kendim) {
+        ByteString[] degerler = liderMiyim ? topluOku(kayitci, kendim, anahtarlar) : null;
+        int adet = 0;
+        for (int i = 0; i < anahtarlar.length; i++) {
+            boolean var = liderMiyim
+                    ? degerler[i] != null
+                    : diskIO.exists(anahtarlar[i]) || digerDugumlerdenAl(kayitci, kendim, anahtarlar[i]) != null;
+            if (var) {
+                adet++;
+            }
+        }
+        return adet;
+    }
+
+    /**
+     * baslangic'tan itibaren tam byteUzunlugu UTF-8 byte tutan karakterlerin
+     * bittiği indeksi döner; uzunluk bir karakterin ortasına düşüyorsa ya da
+     * metin yetmiyorsa -1
+     */
+    private static int utf8Sonu(String metin, int baslangic, int byteUzunlugu) {
+        int i = baslangic;
+        int bayt = 0;
+        while (bayt < byteUzunlugu && i < metin.length()) {
+            char c = metin.charAt(i);
+            if (c < 0x80) {
+                bayt += 1;
+            } else if (c < 0x800) {
+                bayt += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < metin.length()) {
+                bayt += 4;
+                i++;
+            } else {
+                bayt += 3;
+            }
+            i++;
+        }
+        return bayt == byteUzunlugu ? i : -1;
     }
 
     /**
      * Veriyi diğer düğümlere replike eder (tolerance kadar)
-     * En az dolu üyeleri seçer, başarılı replikasyonları veriKonumlari map'ine
-     * kaydeder
+     * En az dolu üyeleri seçer, tüm replikalara aynı anda StorageService.Store gönderir
+     * (--replication=stream ise follower'ın ReplicateStream akışına ekler).
+     * Değer bir kez byte'a çevrilir ve tüm replikalarda aynı ByteString paylaşılır.
+     * writeQuorum kadar replika onay verince döner; kalanlar arka planda tamamlanır.
+     * Yalnızca yazmayı uygulayan (applied) replika onay sayılır; her onayda
+     * veriKonumlari, bu SET'ten yeni bir SET/DEL kaydedilmediyse güncellenir.
+     * Hedef sayısı quorum'a yetmiyorsa hiç yazılmadan döner.
+     *
+     * @return quorum kararı verildiği anda onay veren replika sayısı, hedef
+     * sayısı quorum'dan azsa QUORUM_YETERSIZ
      */
-    private static int replikasyonYap(NodeRegistry kayitci, NodeInfo kendim, int anahtar, String deger) {
-        // En az dolu üyeleri seç (boyut bazlı yük dengeleme)
-        List<NodeInfo> seciliUyeler = enAzDoluUyeleriSec(kayitci, kendim, tolerance);
+    private static int replikasyonYap(NodeRegistry kayitci, NodeInfo kendim, int anahtar, ByteString deger) {
+        List<NodeInfo> seciliUyeler = replikaHedefleriniSec(kayitci, kendim, anahtar);
+        if (seciliUyeler.isEmpty()) {
+            return 0;
+        }
 
-        int replikeSayisi = 0;
-        List<String> basariliUyeler = new ArrayList<>();
+        int gerekliOnay = writeQuorum > 0 ? writeQuorum : seciliUyeler.size();
+        if (gerekliOnay > seciliUyeler.size()) {
+            System.out.printf("[REPLIKASYON] SET %d: %d hedef, quorum %d - yazilmadi%n",
+                    anahtar, seciliUyeler.size(), gerekliOnay);
+            return QUORUM_YETERSIZ;
+        }
+        AtomicInteger onaySayisi = new AtomicInteger(0);
+        AtomicInteger hataSayisi = new AtomicInteger(0);
+        CompletableFuture<Void> quorum = new CompletableFuture<>();
+        // Önceki SET'in konumları, bu SET'in ilk onayı gelene kadar geçerli kalır
+        AtomicInteger yeniMaske = new AtomicInteger();
+
+        StoredMessage mesaj = StoredMessage.newBuilder()
+                .setId(anahtar)
+                .setValue(deger)
+                .setVersion(yeniSurum())
+                .build();
 
         for (NodeInfo uye : seciliUyeler) {
-            ManagedChannel kanal = null;
-            try {
-                kanal = ManagedChannelBuilder
-                        .forAddress(uye.getHost(), uye.getPort())
-                        .usePlaintext()
-                        .build();
+            String uyeAdresi = uye.getHost() + ":" + uye.getPort();
+            int uyeBiti = veriKonumlari.bit(uye);
+            Consumer<Throwable> tamamlandi = hata -> {
+                if (hata == null) {
+                    yeniMaske.accumulateAndGet(uyeBiti, (a, b) -> a | b);
+                    veriKonumlari.onayla(anahtar, uyeBiti, mesaj.getVersion());
+                    basariliReplikasyon.incrementAndGet();
+
+                    long uyeBoyutu = followerBoyutlari.getOrDefault(uyeAdresi, 0L);
+                    System.out.printf("[REPLIKASYON] SET %d (%d B) -> %s (mevcut: %s) basarili%n",
+                            anahtar, deger.size(), uyeAdresi, formatSize(uyeBoyutu));
+
+                    if (onaySayisi.incrementAndGet() >= gerekliOnay) {
+                        quorum.complete(null);
+                    }
+                } else {
+                    System.out.printf("[REPLIKASYON] SET %d -> %s BASARISIZ: %s%n",
+                            anahtar, uyeAdresi, hata.getMessage());
+
+                    // Kalan replikalar quorum'a yetmiyorsa beklemeyi bırak
+                    if (seciliUyeler.size() - hataSayisi.incrementAndGet() < gerekliOnay) {
+                        quorum.complete(null);
+                    }
+                }
+            };
+
+            if (akisliReplikasyon) {
+                // Akışlı: kayıt follower'ın frame kuyruğuna girer, kümülatif onayla tamamlanır
+                replikasyonAkislari
+                        .computeIfAbsent(uye, u -> new ReplicationStream(u, kanalHavuzu, REPLIKASYON_ZAMAN_ASIMI_MS))
+                        .gonder(mesaj)
+                        .whenComplete((uygulandi, hata) -> tamamlandi.accept(
+                                hata != null || uygulandi ? hata : uygulanmadi(mesaj.getVersion())));
+                continue;
+            }
 
-                FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(kanal);
+            ListenableFuture<StoreAck> cevap = kanalHavuzu.storageFutureStub(uye)
+                    .withDeadlineAfter(REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                    .store(mesaj);
 
-                ChatMessage mesaj = ChatMessage.newBuilder()
-                        .setText("SET:" + anahtar + ":" + deger)
-                        .setFromHost(kendim.getHost())
-                        .setFromPort(kendim.getPort())
-                        .setTimestamp(System.currentTimeMillis())
-                        .build();
+            Futures.addCallback(cevap, new FutureCallback<StoreAck>() {
+                @Override
+                public void onSuccess(StoreAck sonuc) {
+                    tamamlandi.accept(sonuc.getApplied() ? null : uygulanmadi(sonuc.getVersion()));
+                }
 
-                stub.receiveChat(mesaj);
-                replikeSayisi++;
+                @Override
+                public void onFailure(Throwable t) {
+                    tamamlandi.accept(t);
+                }
+            }, MoreExecutors.directExecutor());
+        }
 
-                // Başarılı üyeyi kaydet ve o anda ekrana yaz
-                String uyeAdresi = uye.getHost() + ":" + uye.getPort();
-                long uyeBoyutu = followerBoyutlari.getOrDefault(uyeAdresi, 0L);
-                basariliUyeler.add(uyeAdresi);
-                System.out.printf("[REPLIKASYON] SET %d (%d B) -> %s (mevcut: %s) basarili%n",
-                        anahtar, deger.length(), uyeAdresi, formatSize(uyeBoyutu));
+        try {
+            quorum.get(REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Quorum zaman aşımı - aşağıda onay sayısı kontrol edilir
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
 
-            } catch (Exception e) {
-                System.out.printf("[REPLIKASYON] SET %d -> %s:%d BASARISIZ: %s%n",
-                        anahtar, uye.getHost(), uye.getPort(), e.getMessage());
-            } finally {
-                if (kanal != null)
-                    kanal.shutdownNow();
+        int onaylanan = onaySayisi.get();
+        System.out.printf("[KONUM] Anahtar %d -> %s (%d/%d onay, quorum %d)%n",
+                anahtar, konumMetni(yeniMaske.get()), onaylanan, seciliUyeler.size(), gerekliOnay);
+        return onaylanan;
+    }
+
+    /**
+     * MSET için toplu replikasyon. Anahtarlar replika hedeflerine göre gruplanır,
+     * her follower'a kendi anahtarlarıyla tek bir MultiStore gönderilir
+     * (--replication=stream ise kayıtlar follower'ın akışına eklenir).
+     * Her anahtar için quorum kararı ayrı verilir (yalnızca applied onaylar
+     * sayılır); tüm anahtarlar karara bağlanınca ya da zaman aşımında döner.
+     * Hedef sayısı quorum'a yetmeyen anahtar hiç yazılmaz.
+     *
+     * @return anahtar başına karar anındaki onay sayısı (istek sırasıyla), hedef
+     * sayısı quorum'dan az olan anahtar için QUORUM_YETERSIZ
+     */
+    private static int[] topluReplikasyonYap(NodeRegistry kayitci, NodeInfo kendim,
+                                             int[] anahtarlar, ByteString[] degerler) {
+        int adet = anahtarlar.length;
+        int[] gerekliOnay = new int[adet];
+        int[] hedefSayisi = new int[adet];
+        AtomicInteger[] onaySayisi = new AtomicInteger[adet];
+        AtomicInteger[] hataSayisi = new AtomicInteger[adet];
+        AtomicIntegerArray yeniMaskeler = new AtomicIntegerArray(adet);
+        StoredMessage[] mesajlar = new StoredMessage[adet];
+        Map<NodeInfo, List<Integer>> gruplar = new LinkedHashMap<>();
+
+        AtomicInteger kararsiz = new AtomicInteger(adet);
+        CompletableFuture<Void> hepsiKarara = new CompletableFuture<>();
+
+        boolean[] yetersiz = new boolean[adet];
+        for (int i = 0; i < adet; i++) {
+            int anahtar = anahtarlar[i];
+            List<NodeInfo> hedefler = replikaHedefleriniSec(kayitci, kendim, anahtar);
+            hedefSayisi[i] = hedefler.size();
+            gerekliOnay[i] = writeQuorum > 0 ? writeQuorum : hedefler.size();
+            onaySayisi[i] = new AtomicInteger(0);
+            hataSayisi[i] = new AtomicInteger(0);
+            if (gerekliOnay[i] > hedefler.size()) {
+                yetersiz[i] = true; // Quorum'a ulaşamaz: yazılmaz, hemen karara bağlanır
+                hedefler = List.of();
+            }
+            mesajlar[i] = StoredMessage.newBuilder()
+                    .setId(anahtar)
+                    .setValue(degerler[i])
+                    .setVersion(yeniSurum())
+                    .build();
+            for (NodeInfo hedef : hedefler) {
+                gruplar.computeIfAbsent(hedef, h -> new ArrayList<>()).add(i);
+            }
+            if (hedefler.isEmpty() && kararsiz.decrementAndGet() == 0) {
+                hepsiKarara.complete(null);
+            }
+        }
+
+        // Kayıt başına sonuç: onay/hata sayılır, quorum'a ulaşan ya da artık
+        // ulaşamayacak anahtar karara bağlanır
+        for (Map.Entry<NodeInfo, List<Integer>> grup : gruplar.entrySet()) {
+            NodeInfo uye = grup.getKey();
+            List<Integer> indeksler = grup.getValue();
+            String uyeAdresi = uye.getHost() + ":" + uye.getPort();
+            int uyeBiti = veriKonumlari.bit(uye);
+            ObjIntConsumer<Throwable> tamamlandi = (hata, i) -> {
+                boolean karar;
+                if (hata == null) {
+                    yeniMaskeler.accumulateAndGet(i, uyeBiti, (a, b) -> a | b);
+                    veriKonumlari.onayla(anahtarlar[i], uyeBiti, mesajlar[i].getVersion());
+                    basariliReplikasyon.incrementAndGet();
+                    karar = onaySayisi[i].incrementAndGet() == gerekliOnay[i];
+                } else {
+                    karar = hedefSayisi[i] - hataSayisi[i].incrementAndGet() == gerekliOnay[i] - 1
+                            && onaySayisi[i].get() < gerekliOnay[i];
+                }
+                if (karar && kararsiz.decrementAndGet() == 0) {
+                    hepsiKarara.complete(null);
+                }
+            };
+
+            if (akisliReplikasyon) {
+                ReplicationStream akis = replikasyonAkislari
+                        .computeIfAbsent(uye, u -> new ReplicationStream(u, kanalHavuzu, REPLIKASYON_ZAMAN_ASIMI_MS));
+                for (int i : indeksler) {
+                    akis.gonder(mesajlar[i]).whenComplete((uygulandi, hata) -> tamamlandi.accept(
+                            hata != null || uygulandi ? hata : uygulanmadi(mesajlar[i].getVersion()), i));
+                }
+                continue;
+            }
+
+            MultiStoreRequest.Builder istek = MultiStoreRequest.newBuilder();
+            for (int i : indeksler) {
+                istek.addEntries(mesajlar[i]);
             }
+            ListenableFuture<MultiStoreResponse> cevap = kanalHavuzu.storageFutureStub(uye)
+                    .withDeadlineAfter(REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                    .multiStore(istek.build());
+
+            Futures.addCallback(cevap, new FutureCallback<MultiStoreResponse>() {
+                @Override
+                public void onSuccess(MultiStoreResponse sonuc) {
+                    System.out.printf("[REPLIKASYON] MSET %d anahtar -> %s basarili%n", indeksler.size(), uyeAdresi);
+                    for (int k = 0; k < indeksler.size(); k++) {
+                        StoreAck onay = sonuc.getAcks(k); // entries ile aynı sırada
+                        tamamlandi.accept(onay.getApplied() ? null : uygulanmadi(onay.getVersion()), indeksler.get(k));
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    System.out.printf("[REPLIKASYON] MSET %d anahtar -> %s BASARISIZ: %s%n",
+                            indeksler.size(), uyeAdresi, t.getMessage());
+                    for (int i : indeksler) {
+                        tamamlandi.accept(t, i);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
         }
 
-        // Veri konumlarını kaydet (sadece leader için)
-        if (!basariliUyeler.isEmpty()) {
-            veriKonumlari.put(anahtar, basariliUyeler);
-            System.out.printf("[KONUM] Anahtar %d -> %s%n", anahtar, basariliUyeler);
+        try {
+            hepsiKarara.get(REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Zaman aşımı - karara bağlanmamış anahtarlar o anki onay sayısıyla döner
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
-        return replikeSayisi;
+        int[] onaylar = new int[adet];
+        for (int i = 0; i < adet; i++) {
+            onaylar[i] = yetersiz[i] ? QUORUM_YETERSIZ : onaySayisi[i].get();
+        }
+        System.out.printf("[KONUM] MSET %d anahtar -> %d follower'a gruplandi%n", adet, gruplar.size());
+        return onaylar;
     }
 
     /**
-     * Yerel bulunamayan veriyi diğer düğümlerden alır
-     * Önce veriKonumlari map'ine bakar, yoksa tüm üyeleri tarar
+     * Bir anahtarın replikalarının tutulacağı 'tolerance' follower.
+     * - --placement=ring (varsayılan): hash halkasında anahtarın konumundan başlayarak
+     * ilk 'tolerance' farklı üye; aynı anahtar üyelik değişmedikçe aynı üyelere gider
+     * - --placement=least-loaded: anahtardan bağımsız olarak en az dolu üyeler
+     */
+    private static List<NodeInfo> replikaHedefleriniSec(NodeRegistry kayitci, NodeInfo kendim, int anahtar) {
+        if (halkaYerlesimi) {
+            return halka(kayitci).replicas(anahtar, tolerance);
+        }
+        return enAzDoluUyeleriSec(kayitci, kendim, tolerance);
+    }
+
+    /**
+     * Üyelik değiştiyse yeniden kurulan, leader hariç tüm üyelerin halkası
      */
-    private static String digerDugumlerdenAl(NodeRegistry kayitci, NodeInfo kendim, int anahtar) {
-        // Önce bilinen konumlara bak (leader için optimize)
-        List<String> bilinenKonumlar = veriKonumlari.get(anahtar);
+    private static HashRing halka(NodeRegistry kayitci) {
+        long surum = kayitci.surum(); // Üyelerden önce okunur: yarış olursa bir sonraki çağrı yeniden kurar
+        if (surum != halkaSurumu) {
+            List<NodeInfo> uyeler = new ArrayList<>(kayitci.snapshot());
+            uyeler.remove(liderUye);
+            halka = new HashRing(uyeler, sanalDugumSayisi);
+            halkaSurumu = surum;
+        }
+        return halka;
+    }
 
-        if (bilinenKonumlar != null && !bilinenKonumlar.isEmpty()) {
-            System.out.printf("[GET] Anahtar %d icin bilinen konumlar: %s%n", anahtar, bilinenKonumlar);
+    /**
+     * Anahtarın okunacağı replikalar: yazmada onaylanan konumlar (veriKonumlari),
+     * yoksa halkanın hesapladığı yerleşim. Leader yeniden başlasa da halka
+     * aynı üyelerle aynı sonucu verdiği için okuma doğrudan replikaya gider.
+     */
+    private static List<NodeInfo> bilinenReplikalar(NodeRegistry kayitci, int anahtar) {
+        int maske = veriKonumlari.maske(anahtar);
+        if (maske != 0) {
+            return maskedenUyeler(maske);
+        }
+        return halkaYerlesimi ? halka(kayitci).replicas(anahtar, tolerance) : List.of();
+    }
 
-            for (String konum : bilinenKonumlar) {
-                String[] parcalar = konum.split(":");
-                String host = parcalar[0];
-                int port = Integer.parseInt(parcalar[1]);
+    /**
+     * Katalog maskesindeki kimliklerin üyeleri (kimlik sırasıyla)
+     */
+    private static List<NodeInfo> maskedenUyeler(int maske) {
+        List<NodeInfo> uyeler = new ArrayList<>(Integer.bitCount(maske));
+        for (int kalan = maske; kalan != 0; kalan &= kalan - 1) {
+            uyeler.add(veriKonumlari.uye(Integer.numberOfTrailingZeros(kalan)));
+        }
+        return uyeler;
+    }
 
-                String sonuc = dugumdenVeriAl(host, port, anahtar);
-                if (sonuc != null) {
-                    return sonuc;
+    private static String konumMetni(int maske) {
+        StringBuilder metin = new StringBuilder("[");
+        for (NodeInfo uye : maskedenUyeler(maske)) {
+            metin.append(metin.length() > 1 ? ", " : "").append(uye.getHost()).append(':').append(uye.getPort());
+        }
+        return metin.append(']').toString();
+    }
+
+    /**
+     * MGET için toplu okuma. Anahtarlar bilinen (veriKonumlari ya da halka) ilk replikaya göre
+     * gruplanır, her follower'a tek bir MultiGet gönderilir; konumu bilinmeyen
+     * anahtarlar tüm follower'lara sorulur (en yüksek sürüm kazanır). Grup
+     * çağrısında bulunamayanlar tek tek digerDugumlerdenAl ile tamamlanır.
+     *
+     * @return anahtar başına değer (bulunamadıysa null), istek sırasıyla
+     */
+    private static ByteString[] topluOku(NodeRegistry kayitci, NodeInfo kendim, int[] anahtarlar) {
+        Map<NodeInfo, List<Integer>> gruplar = new LinkedHashMap<>();
+        List<Integer> konumsuzlar = new ArrayList<>();
+        boolean[] konumsuz = new boolean[anahtarlar.length];
+        for (int i = 0; i < anahtarlar.length; i++) {
+            List<NodeInfo> replikalar = bilinenReplikalar(kayitci, anahtarlar[i]);
+            if (!replikalar.isEmpty()) {
+                gruplar.computeIfAbsent(replikalar.get(0), u -> new ArrayList<>()).add(i);
+            } else {
+                konumsuzlar.add(i);
+                konumsuz[i] = true;
+            }
+        }
+        if (!konumsuzlar.isEmpty()) {
+            for (NodeInfo uye : kayitci.snapshot()) {
+                if (!(uye.getHost().equals(kendim.getHost()) && uye.getPort() == kendim.getPort())) {
+                    gruplar.computeIfAbsent(uye, u -> new ArrayList<>()).addAll(konumsuzlar);
                 }
             }
         }
 
-        // Bilinen konum yoksa veya bulunamadıysa tüm üyeleri tara
-        List<NodeInfo> uyeler = kayitci.snapshot();
+        List<List<Integer>> cagriIndeksleri = new ArrayList<>(gruplar.size());
+        List<ListenableFuture<MultiGetResponse>> cagrilar = new ArrayList<>(gruplar.size());
+        for (Map.Entry<NodeInfo, List<Integer>> grup : gruplar.entrySet()) {
+            MultiGetRequest.Builder istek = MultiGetRequest.newBuilder();
+            for (int i : grup.getValue()) {
+                istek.addKeys(anahtarlar[i]);
+            }
+            cagriIndeksleri.add(grup.getValue());
+            cagrilar.add(kanalHavuzu.storageFutureStub(grup.getKey())
+                    .withDeadlineAfter(OKUMA_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                    .multiGet(istek.build()));
+        }
 
-        for (NodeInfo uye : uyeler) {
-            if (uye.getHost().equals(kendim.getHost()) && uye.getPort() == kendim.getPort()) {
+        ByteString[] degerler = new ByteString[anahtarlar.length];
+        long[] surumler = new long[anahtarlar.length];
+        Arrays.fill(surumler, -1);
+        List<MultiGetResponse> yanitlar;
+        try {
+            // Başarısız çağrılar null döner; her çağrının kendi deadline'ı olduğundan
+            // liste en geç deadline'da tamamlanır
+            yanitlar = Futures.successfulAsList(cagrilar).get(2 * OKUMA_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            yanitlar = List.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return degerler;
+        } finally {
+            for (ListenableFuture<MultiGetResponse> cagri : cagrilar) {
+                cagri.cancel(true);
+            }
+        }
+
+        for (int c = 0; c < yanitlar.size(); c++) {
+            MultiGetResponse yanit = yanitlar.get(c);
+            if (yanit == null) {
                 continue;
             }
+            List<Integer> indeksler = cagriIndeksleri.get(c);
+            for (int k = 0; k < yanit.getValuesCount() && k < indeksler.size(); k++) {
+                RetrieveResponse deger = yanit.getValues(k);
+                int i = indeksler.get(k);
+                if (deger.getFound() && deger.getVersion() > surumler[i]) {
+                    surumler[i] = deger.getVersion();
+                    degerler[i] = deger.getValue();
+                }
+            }
+        }
+
+        // Bilinen replikası yanıt vermeyen ya da bulamayan anahtarlar: hedged tekil okuma
+        for (int i = 0; i < anahtarlar.length; i++) {
+            if (degerler[i] == null && !konumsuz[i]) {
+                degerler[i] = digerDugumlerdenAl(kayitci, kendim, anahtarlar[i]);
+            }
+        }
+        return degerler;
+    }
+
+    /**
+     * Bir sonraki SET sürümü: max(son + 1, şimdiki zaman mikrosaniye)
+     */
+    private static long yeniSurum() {
+        long simdi = System.currentTimeMillis() * 1000;
+        return sonSurum.accumulateAndGet(simdi, (son, zaman) -> Math.max(son + 1, zaman));
+    }
+
+    /**
+     * Replikanın yazmayı uygulamadığı (üyede daha yeni sürüm olduğu) onay: quorum'a
+     * sayılmaz, konum kaydedilmez
+     */
+    private static IllegalStateException uygulanmadi(long uyeSurumu) {
+        return new IllegalStateException("uygulanmadi, uyede daha yeni surum var (v" + uyeSurumu + ")");
+    }
+
+    /**
+     * Yerel bulunamayan veriyi diğer düğümlerden alır
+     * Önce bilinen replikalara (veriKonumlari ya da halka) hedged istek atar (ilki
+     * hemen, diğerleri gözlenen p95 gecikmesi kadar sonra), bulunamazsa kalan
+     * üyelere paralel sorar (ör. üyelik değişmeden önce yazılmış anahtar)
+     */
+    private static ByteString digerDugumlerdenAl(NodeRegistry kayitci, NodeInfo kendim, int anahtar) {
+        List<NodeInfo> replikalar = new ArrayList<>(bilinenReplikalar(kayitci, anahtar));
+        replikalar.remove(kendim); // Follower kendi diskine zaten baktı
 
-            String sonuc = dugumdenVeriAl(uye.getHost(), uye.getPort(), anahtar);
+        if (!replikalar.isEmpty()) {
+            ByteString sonuc = ilkBulunaniAl(replikalar, anahtar, getGecikmeleri.yuzdelikMikro());
             if (sonuc != null) {
                 return sonuc;
             }
         }
 
-        return null;
+        // Bilinen replikalarda yoksa kalan üyelere paralel sor
+        List<NodeInfo> uyeler = new ArrayList<>();
+        for (NodeInfo uye : kayitci.snapshot()) {
+            if (!(uye.getHost().equals(kendim.getHost()) && uye.getPort() == kendim.getPort())
+                    && !replikalar.contains(uye)) {
+                uyeler.add(uye);
+            }
+        }
+        return ilkBulunaniAl(uyeler, anahtar, 0);
     }
 
     /**
-     * Belirli bir düğümden veri almaya çalışır
+     * Hedeflere Retrieve gönderir, found=true dönen ilk yanıtı döner ve
+     * diğer çağrıları iptal eder.
+     * - hedgeGecikmeMikro = 0: tüm hedeflere aynı anda sorulur
+     * - hedgeGecikmeMikro > 0: önce ilk hedefe sorulur, bu süre içinde yanıt
+     * gelmezse (ya da ilk hedef bulamazsa) kalanlara da sorulur
+     * Tüm işlem OKUMA_ZAMAN_ASIMI_MS ile sınırlıdır.
      */
-    private static String dugumdenVeriAl(String host, int port, int anahtar) {
-        ManagedChannel kanal = null;
-        try {
-            kanal = ManagedChannelBuilder
-                    .forAddress(host, port)
-                    .usePlaintext()
-                    .build();
+    private static ByteString ilkBulunaniAl(List<NodeInfo> hedefler, int anahtar, long hedgeGecikmeMikro) {
+        if (hedefler.isEmpty()) {
+            return null;
+        }
 
-            FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(kanal);
+        CompletableFuture<ByteString> sonuc = new CompletableFuture<>();
+        List<ListenableFuture<RetrieveResponse>> cagrilar = new CopyOnWriteArrayList<>();
+        AtomicInteger bekleyen = new AtomicInteger(hedefler.size());
+        AtomicBoolean digerleriGonderildi = new AtomicBoolean(hedgeGecikmeMikro <= 0);
+        KeyRequest istek = KeyRequest.newBuilder().setKey(anahtar).build();
+
+        // Lambda içinden kendini çağırabilmek için dizi içinde tutulur
+        Runnable[] digerleriniGonder = new Runnable[1];
+        Consumer<NodeInfo> gonder = uye -> {
+            long baslangic = System.nanoTime();
+            ListenableFuture<RetrieveResponse> cagri = kanalHavuzu.storageFutureStub(uye)
+                    .withDeadlineAfter(OKUMA_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                    .retrieve(istek);
+            cagrilar.add(cagri);
+
+            Futures.addCallback(cagri, new FutureCallback<RetrieveResponse>() {
+                @Override
+                public void onSuccess(RetrieveResponse yanit) {
+                    getGecikmeleri.kaydet((System.nanoTime() - baslangic) / 1000);
+                    if (yanit.getFound()) {
+                        if (sonuc.complete(yanit.getValue())) {
+                            System.out.printf("[GET] %d -> %s:%d uzerinden bulundu%n",
+                                    anahtar, uye.getHost(), uye.getPort());
+                        }
+                    } else {
+                        bitti();
+                    }
+                }
 
-            KeyRequest istek = KeyRequest.newBuilder()
-                    .setKey(anahtar)
-                    .build();
+                @Override
+                public void onFailure(Throwable t) {
+                    bitti(); // Düğüm erişilemez veya iptal edildi - devam et
+                }
+
+                private void bitti() {
+                    if (bekleyen.decrementAndGet() == 0) {
+                        sonuc.complete(null);
+                    } else {
+                        digerleriniGonder[0].run(); // Hedge süresini beklemeye gerek yok
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        };
 
-            ValueResponse yanit = stub.getValue(istek);
+        List<NodeInfo> kalanlar = hedefler.subList(1, hedefler.size());
+        digerleriniGonder[0] = () -> {
+            if (!sonuc.isDone() && digerleriGonderildi.compareAndSet(false, true)) {
+                kalanlar.forEach(gonder);
+            }
+        };
 
-            if (yanit.getFound()) {
-                System.out.printf("[GET] %d -> %s:%d uzerinden bulundu%n", anahtar, host, port);
-                return yanit.getValue();
+        if (hedgeGecikmeMikro > 0) {
+            gonder.accept(hedefler.get(0));
+            if (!kalanlar.isEmpty()) {
+                hedgeZamanlayici.schedule(digerleriniGonder[0], hedgeGecikmeMikro, TimeUnit.MICROSECONDS);
             }
+        } else {
+            hedefler.forEach(gonder);
+        }
 
-        } catch (Exception e) {
-            // Düğüm erişilemez - devam et
+        try {
+            return sonuc.get(OKUMA_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } finally {
-            if (kanal != null)
-                kanal.shutdownNow();
+            digerleriGonderildi.set(true); // Zamanlanmış hedge artık gönderilmesin
+            for (ListenableFuture<RetrieveResponse> cagri : cagrilar) {
+                cagri.cancel(true);
+            }
         }
-        return null;
     }
 
     private static int bosPortBul(int baslangicPort) {
@@ -654,24 +1873,15 @@ public class NodeMain {
 
     private static void mevcutDugumleriKesifEt(String adres, int benimPort, NodeRegistry kayitci, NodeInfo kendim) {
         for (int port = BASLANGIC_PORT; port < benimPort; port++) {
-            ManagedChannel kanal = null;
+            NodeInfo aday = NodeInfo.newBuilder().setHost(adres).setPort(port).build();
             try {
-                kanal = ManagedChannelBuilder
-                        .forAddress(adres, port)
-                        .usePlaintext()
-                        .build();
-
-                FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(kanal);
-
-                FamilyView gorunum = stub.join(kendim);
+                FamilyView gorunum = kanalHavuzu.blockingStub(aday).join(kendim);
                 kayitci.addAll(gorunum.getMembersList());
 
                 System.out.printf("Joined family: %d members%n", kayitci.snapshot().size());
 
             } catch (Exception ignored) {
-            } finally {
-                if (kanal != null)
-                    kanal.shutdownNow();
+                kanalHavuzu.kapat(aday); // Üye değil - kanalı havuzda tutma
             }
         }
     }
@@ -698,7 +1908,29 @@ public class NodeMain {
             System.out.printf("| Total SET: %-30d|%n", setSayisi);
             System.out.printf("| Total GET: %-30d|%n", getSayisi);
             System.out.printf("| Records in Memory: %-22d|%n", bellek.size());
+            cacheIstatistikleriniYazdir();
             System.out.printf("| Successful Replications: %-16d|%n", replike);
+            System.out.printf("| Placement Catalog: %-22s|%n",
+                    veriKonumlari.size() + " keys, " + formatSize(veriKonumlari.bellekBoyutu()));
+            if (yenidenReplikator != null) {
+                System.out.printf("| Re-replication: %-25s|%n",
+                        yenidenReplikator.ilerlemeMetni());
+            }
+            if (dengeleyici != null) {
+                System.out.printf("| Rebalance: %-30s|%n", dengeleyici.ilerlemeMetni());
+            }
+            System.out.printf("| gRPC Channels: %-26d|%n", kanalHavuzu.boyut());
+            if (tcpSunucusu != null) {
+                System.out.printf("| TCP Connections: %-24d|%n", tcpSunucusu.acikBaglantiSayisi());
+            }
+            if (akisliReplikasyon) {
+                int onaysiz = 0;
+                for (ReplicationStream akis : replikasyonAkislari.values()) {
+                    onaysiz += akis.onaysizKayit();
+                }
+                System.out.printf("| Stream Unacked: %-24s|%n",
+                        onaysiz + " (" + replikasyonAkislari.size() + " streams)");
+            }
             System.out.println("+------------------------------------------+");
             if (setSayisi > 0) {
                 System.out.printf("| Avg Write Time: %-22d us |%n", yazmaSuresi / setSayisi);
@@ -747,6 +1979,7 @@ public class NodeMain {
             System.out.printf("| Files on Disk: %-26d|%n", dosyaSayisi);
             System.out.printf("| Total Size: %-26s|%n", formatSize(toplamBoyut));
             System.out.printf("| Records in Memory: %-22d|%n", bellek.size());
+            cacheIstatistikleriniYazdir();
             System.out.println("+------------------------------------------+");
             System.out.printf("| SET Received: %-27d|%n", setSayisi);
             System.out.printf("| GET Received: %-27d|%n", getSayisi);
@@ -761,6 +1994,13 @@ public class NodeMain {
         }, 3, YAZDIR_ARALIK_SANIYE, TimeUnit.SECONDS);
     }
 
+    private static void cacheIstatistikleriniYazdir() {
+        System.out.printf("| Cache: %-34s|%n",
+                formatSize(bellek.byteSize()) + " / " + formatSize(bellek.maxBytes()));
+        System.out.printf("| Cache Hit/Miss/Evict: %-20s|%n",
+                bellek.hits() + "/" + bellek.misses() + "/" + bellek.evictions());
+    }
+
     private static String formatSize(long bytes) {
         if (bytes < 1024)
             return bytes + " B";
@@ -769,6 +2009,277 @@ public class NodeMain {
         return String.format("%.2f MB", bytes / (1024.0 * 1024));
     }
 
+    /**
+     * Yerleşim günlüğünü periyodik olarak boşaltır, yeterince büyüdüyse sıkıştırır
+     */
+    private static void katalogBakiminiBaslat(NodeRegistry kayitci) {
+        ScheduledExecutorService zamanlayici = Executors.newSingleThreadScheduledExecutor();
+
+        zamanlayici.scheduleWithFixedDelay(() -> {
+            try {
+                if (veriKonumlari.gunlukKayitSayisi() >= PlacementCatalog.SIKISTIRMA_ESIGI) {
+                    long baslangic = System.nanoTime();
+                    veriKonumlari.sikistir(kayitci.snapshot());
+                    System.out.printf("[KATALOG] Sikistirildi: %d anahtar, %d ms%n",
+                            veriKonumlari.size(), (System.nanoTime() - baslangic) / 1_000_000);
+                } else {
+                    veriKonumlari.bosalt();
+                }
+            } catch (IOException e) {
+                System.err.println("Yerlesim katalogu yazilamadi: " + e.getMessage());
+            }
+        }, KATALOG_BOSALTMA_ARALIGI_MS, KATALOG_BOSALTMA_ARALIGI_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leader açılışında geri yüklenen kataloğu follower'ların gerçek içeriğiyle uzlaştırır.
+     * - Katalogda geçen follower'lara ve onların bildiği üyelere Join ile kendini
+     * duyurur (follower'lar leader'ı yeniden tanır, leader da üyeleri listesine ekler)
+     * - Sonra her üye, bu leader'ın ilk kez gördüğü anda bir kez envanteriyle
+     * uzlaştırılır (sonradan yeniden katılan follower'lar dahil), ardından
+     * dengeleyiciye bildirilir (payı eksikse anahtar taşınır)
+     */
+    private static void katalogUzlastirmasiniBaslat(NodeRegistry kayitci, NodeInfo kendim) {
+        ScheduledExecutorService zamanlayici = Executors.newSingleThreadScheduledExecutor();
+        Set<NodeInfo> uzlastirilanlar = new HashSet<>();
+        uzlastirilanlar.add(kendim);
+        AtomicLong gorulenSurum = new AtomicLong(-1);
+
+        zamanlayici.execute(() -> uyeleriYenidenBul(kayitci, kendim));
+        zamanlayici.scheduleWithFixedDelay(() -> {
+            long surum = kayitci.surum();
+            if (surum != gorulenSurum.getAndSet(surum)) {
+                for (NodeInfo uye : kayitci.snapshot()) {
+                    if (!uzlastirilanlar.contains(uye) && uyeEnvanteriniUzlastir(uye)) {
+                        uzlastirilanlar.add(uye);
+                        if (dengeleyici != null) {
+                            dengeleyici.uyeKatildi(uye);
+                        }
+                    }
+                }
+                uzlastirilanlar.retainAll(kayitci.snapshot()); // Çıkan üye geri dönerse yeniden uzlaştırılır
+                uzlastirilanlar.add(kendim);
+            }
+            if (dengeleyici != null) {
+                dengeleyici.devamEt(); // Yarım kalan dengeleme (hata, kesinti) sürdürülür
+            }
+        }, 0, 2, TimeUnit.SECONDS);
+    }
+
+    private static void uyeleriYenidenBul(NodeRegistry kayitci, NodeInfo kendim) {
+        ArrayDeque<NodeInfo> duyurulacaklar = new ArrayDeque<>();
+        Set<NodeInfo> duyurulanlar = new HashSet<>();
+        duyurulanlar.add(kendim);
+        duyurulacaklar.addAll(veriKonumlari.uyeler());
+        while (!duyurulacaklar.isEmpty()) {
+            NodeInfo uye = duyurulacaklar.poll();
+            if (!duyurulanlar.add(uye)) {
+                continue;
+            }
+            try {
+                FamilyView gorunum = kanalHavuzu.blockingStub(uye)
+                        .withDeadlineAfter(SAGLIK_KONTROLU_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                        .join(kendim);
+                kayitci.add(uye);
+                duyurulacaklar.addAll(gorunum.getMembersList());
+            } catch (Exception e) {
+                kanalHavuzu.kapat(uye); // Erişilemez - konumları olduğu gibi kalır
+            }
+        }
+    }
+
+    /**
+     * Üyenin anahtarlarını sürümleriyle ListKeys akışından alır ve katalogla karşılaştırır:
+     * - Sürüm katalogdakiyle aynıysa (ya da katalog anahtarın sürümünü bilmiyorsa)
+     * eksik konum eklenir (ör. boşaltılmadan kaybolan günlük kaydı)
+     * - Katalogdaki SET ya da DEL sürümünden eskiyse kopya bayattır (üye o yazma ya
+     * da silme sırasında kapalıydı): konum eklenmez, kopya kendi sürümüyle koşullu
+     * Delete ile silinir
+     * - Katalogdakinden yeniyse katalog geride kalmıştır: konum bu üyeye geçer, eski
+     * sürümü tutan üyelere katalog sürümüyle koşullu Delete gönderilir
+     * - Katalogda olup üyede olmayan konum çıkarılır
+     * - Üyedeki sürüm 0 ise (sürümsüz eski kayıt) kopyanın yaşı bilinemez: katalog
+     * sürüm biliyorsa kopya bayat sayılmaz, konumu da silinmez
+     * Değişiklikler maske + sürüm CAS'ı ile yapılır: bu sırada gelen SET/DEL'in
+     * yazdığı konumların üzerine yazılmaz.
+     *
+     * @return envanter alınabildiyse true
+     */
+    private static boolean uyeEnvanteriniUzlastir(NodeInfo uye) {
+        long baslangic = System.nanoTime();
+        String uyeAdresi = uye.getHost() + ":" + uye.getPort();
+        int uyeBiti = veriKonumlari.bit(uye);
+        if (uyeBiti == 0) {
+            return true; // Katalog dolu - bu üyenin konumu tutulmuyor
+        }
+        IntLongHashMap anahtarlar = new IntLongHashMap(1024); // anahtar -> üyedeki sürüm
+        try {
+            Iterator<KeyChunk> parcalar = kanalHavuzu.blockingStub(uye)
+                    .withDeadlineAfter(ENVANTER_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                    .listKeys(ListKeysRequest.getDefaultInstance());
+            while (parcalar.hasNext()) {
+                KeyChunk parca = parcalar.next();
+                for (int i = 0; i < parca.getKeysCount(); i++) {
+                    anahtarlar.put(parca.getKeys(i), parca.getBaseVersion() + parca.getVersionDeltas(i));
+                }
+            }
+        } catch (Exception e) {
+            System.out.printf("[KATALOG] %s envanteri alinamadi: %s%n", uyeAdresi, e.getMessage());
+            return false;
+        }
+
+        int[] eklenen = {0};
+        // Bayat kopyalar: üye -> (anahtar -> koşullu silme sürümü)
+        Map<NodeInfo, IntLongHashMap> silinecekler = new LinkedHashMap<>();
+        anahtarlar.forEach((anahtar, uyeSurumu) -> {
+            int maske = veriKonumlari.maske(anahtar);
+            long surum = veriKonumlari.surum(anahtar);
+            long katalogSurumu = Math.abs(surum); // Silme işareti negatif tutulur
+            if (uyeSurumu == 0 && surum != 0) {
+                return;
+            }
+            if (uyeSurumu < katalogSurumu) {
+                if ((maske & uyeBiti) != 0) {
+                    veriKonumlari.degistir(anahtar, maske, surum, maske & ~uyeBiti, surum);
+                }
+                silinecekler.computeIfAbsent(uye, u -> new IntLongHashMap(64)).put(anahtar, uyeSurumu);
+            } else if (uyeSurumu == katalogSurumu || surum == 0) {
+                if ((maske & uyeBiti) == 0
+                        && veriKonumlari.degistir(anahtar, maske, surum, maske | uyeBiti, uyeSurumu)) {
+                    eklenen[0]++;
+                }
+            } else if (veriKonumlari.degistir(anahtar, maske, surum, uyeBiti, uyeSurumu)) {
+                eklenen[0]++;
+                int eskiler = maske & ~uyeBiti;
+                for (int kimlik = 0; eskiler != 0; kimlik++, eskiler >>>= 1) {
+                    if ((eskiler & 1) != 0 && veriKonumlari.uye(kimlik) != null) {
+                        silinecekler.computeIfAbsent(veriKonumlari.uye(kimlik), u -> new IntLongHashMap(64))
+                                .put(anahtar, surum);
+                    }
+                }
+            }
+        });
+        // forEach kilit altında gezer: değiştirilecekler önce toplanır
+        IntIntHashMap eksikler = new IntIntHashMap(1024);
+        veriKonumlari.forEach((anahtar, maske) -> {
+            if ((maske & uyeBiti) != 0 && !anahtarlar.containsKey(anahtar)) {
+                eksikler.put(anahtar, maske);
+            }
+        });
+        int[] cikarilan = {0};
+        eksikler.forEach((anahtar, maske) -> {
+            if (veriKonumlari.degistir(anahtar, maske, maske & ~uyeBiti)) {
+                cikarilan[0]++;
+            }
+        });
+
+        int bayat = 0;
+        for (Map.Entry<NodeInfo, IntLongHashMap> hedef : silinecekler.entrySet()) {
+            bayat += bayatKopyalariSil(hedef.getKey(), hedef.getValue());
+        }
+
+        System.out.printf("[KATALOG] %s uzlastirildi: %d anahtar (+%d konum eklendi, -%d cikarildi, %d bayat kopya silindi), %d ms%n",
+                uyeAdresi, anahtarlar.size(), eklenen[0], cikarilan[0], bayat,
+                (System.nanoTime() - baslangic) / 1_000_000);
+        return true;
+    }
+
+    /**
+     * Üyedeki bayat kopyaları sürüm koşullu Delete ile siler: üyede bu arada daha
+     * yeni bir sürüm yazıldıysa silme yok sayılır. Çağrılar UZLASTIRMA_PARTISI'lik
+     * gruplar halinde gönderilir.
+     *
+     * @return silinen kopya sayısı
+     */
+    private static int bayatKopyalariSil(NodeInfo uye, IntLongHashMap anahtarSurumleri) {
+        List<ListenableFuture<StoreAck>> cagrilar = new ArrayList<>();
+        int[] silinen = {0};
+        Runnable bekle = () -> {
+            try {
+                for (StoreAck yanit : Futures.successfulAsList(cagrilar)
+                        .get(2 * REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)) {
+                    if (yanit != null && yanit.getApplied()) {
+                        silinen[0]++;
+                    }
+                }
+            } catch (TimeoutException | ExecutionException e) {
+                // Silinemeyenler bir sonraki uzlaştırmada yeniden bulunur
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            cagrilar.clear();
+        };
+        anahtarSurumleri.forEach((anahtar, surum) -> {
+            cagrilar.add(kanalHavuzu.storageFutureStub(uye)
+                    .withDeadlineAfter(REPLIKASYON_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                    .delete(DeleteRequest.newBuilder().setId(anahtar).setVersion(surum).build()));
+            if (cagrilar.size() == UZLASTIRMA_PARTISI) {
+                bekle.run();
+            }
+        });
+        bekle.run();
+        return silinen[0];
+    }
+
+    /**
+     * Follower kümeden çıkarılınca (sağlık kontrolü) eksik kalan replikaları
+     * tamamlayan motoru kurar. Yeni hedefler halka yerleşiminde halkanın sıradaki
+     * üyeleri, aksi halde en az dolu üyelerdir.
+     */
+    private static void yenidenReplikasyonuBaslat(NodeRegistry kayitci, NodeInfo kendim) {
+        yenidenReplikator = new ReReplicator(veriKonumlari, kanalHavuzu, new ReReplicator.Kume() {
+            @Override
+            public int canliMaske() {
+                return canliFollowerMaskesi(kayitci, kendim);
+            }
+
+            @Override
+            public List<NodeInfo> hedefSec(int anahtar, int haricMaske, int adet) {
+                List<NodeInfo> adaylar = halkaYerlesimi
+                        ? halka(kayitci).replicas(anahtar, kayitci.boyut())
+                        : enAzDoluUyeleriSec(kayitci, kendim, kayitci.boyut());
+                List<NodeInfo> hedefler = new ArrayList<>(adet);
+                for (NodeInfo aday : adaylar) {
+                    if (hedefler.size() < adet && (veriKonumlari.bit(aday) & haricMaske) == 0) {
+                        hedefler.add(aday);
+                    }
+                }
+                return hedefler;
+            }
+
+            @Override
+            public void kopyalandi(NodeInfo hedef, int bayt) {
+                // Sonraki boyut güncellemesine kadar yük tahmini: hedefler tek üyeye yığılmaz
+                followerBoyutlari.merge(hedef.getHost() + ":" + hedef.getPort(), (long) bayt, Long::sum);
+            }
+        }, tolerance, onarimBantGenisligi, onarimEszamanliligi, REPLIKASYON_ZAMAN_ASIMI_MS);
+        kayitci.cikisDinleyicisiEkle(yenidenReplikator::uyeCikti);
+    }
+
+    /**
+     * Kayıtlı (canlı) follower'ların katalog bitleri
+     */
+    private static int canliFollowerMaskesi(NodeRegistry kayitci, NodeInfo kendim) {
+        int maske = 0;
+        for (NodeInfo uye : kayitci.snapshot()) {
+            if (!uye.equals(kendim)) {
+                maske |= veriKonumlari.bit(uye);
+            }
+        }
+        return maske;
+    }
+
+    /**
+     * Anahtarın halkadaki replikalarının katalog bitleri
+     */
+    private static int halkaMaskesi(NodeRegistry kayitci, int anahtar) {
+        int maske = 0;
+        for (NodeInfo uye : halka(kayitci).replicas(anahtar, tolerance)) {
+            maske |= veriKonumlari.bit(uye);
+        }
+        return maske;
+    }
+
     /**
      * Follower boyutlarını periyodik olarak cache'ler (yük dengeleme için)
      */
@@ -783,15 +2294,10 @@ public class NodeMain {
                     continue;
                 }
 
-                ManagedChannel kanal = null;
                 try {
-                    kanal = ManagedChannelBuilder
-                            .forAddress(uye.getHost(), uye.getPort())
-                            .usePlaintext()
-                            .build();
-
-                    FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(kanal);
-                    family.StorageInfo bilgi = stub.getStorageInfo(Empty.newBuilder().build());
+                    family.StorageInfo bilgi = kanalHavuzu.blockingStub(uye)
+                            .withDeadlineAfter(SAGLIK_KONTROLU_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                            .getStorageInfo(Empty.newBuilder().build());
 
                     String uyeAdresi = uye.getHost() + ":" + uye.getPort();
                     followerBoyutlari.put(uyeAdresi, bilgi.getTotalBytes());
@@ -800,9 +2306,6 @@ public class NodeMain {
                     // Düğüm erişilemez - cache'den çıkartma
                     String uyeAdresi = uye.getHost() + ":" + uye.getPort();
                     followerBoyutlari.remove(uyeAdresi);
-                } finally {
-                    if (kanal != null)
-                        kanal.shutdownNow();
                 }
             }
 
@@ -844,24 +2347,27 @@ public class NodeMain {
                     continue;
                 }
 
-                ManagedChannel kanal = null;
                 try {
-                    kanal = ManagedChannelBuilder
-                            .forAddress(uye.getHost(), uye.getPort())
-                            .usePlaintext()
-                            .build();
-
-                    FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(kanal);
-
-                    stub.getFamily(Empty.newBuilder().build());
+                    kanalHavuzu.blockingStub(uye)
+                            .withDeadlineAfter(SAGLIK_KONTROLU_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                            .getFamily(Empty.newBuilder().build());
 
                 } catch (Exception e) {
                     System.out.printf("! Dugum erislemez: %s:%d%n", uye.getHost(), uye.getPort());
-                    kayitci.remove(uye);
-                } finally {
-                    if (kanal != null) {
-                        kanal.shutdownNow();
-                    }
+                    kayitci.remove(uye); // Kanal, NodeRegistry dinleyicisi ile havuzdan çıkar
+                }
+            }
+
+            // Follower leader'ı kaybettiyse (ör. leader yeniden başladı) yeniden katılmayı dener
+            if (!liderMiyim && !kayitci.icerir(liderUye)) {
+                try {
+                    FamilyView gorunum = kanalHavuzu.blockingStub(liderUye)
+                            .withDeadlineAfter(SAGLIK_KONTROLU_ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                            .join(kendim);
+                    kayitci.addAll(gorunum.getMembersList());
+                    System.out.printf("Lidere yeniden katilindi: %d uye%n", kayitci.boyut());
+                } catch (Exception e) {
+                    kanalHavuzu.kapat(liderUye); // Leader hâlâ yok - sonraki turda tekrar
                 }
             }
 
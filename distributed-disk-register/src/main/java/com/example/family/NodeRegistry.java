@@ -6,17 +6,34 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class NodeRegistry {
 
     private final Set<NodeInfo> dugumler = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<NodeInfo>> cikisDinleyicileri = new CopyOnWriteArrayList<>();
+    // Üyelik her değiştiğinde artar - üyelikten türetilen yapılar (ör. HashRing) önbelleği için
+    private final AtomicLong surum = new AtomicLong();
+
+    /**
+     * Bir düğüm kayıttan çıkarıldığında çağrılacak dinleyiciyi ekler
+     */
+    public void cikisDinleyicisiEkle(Consumer<NodeInfo> dinleyici) {
+        cikisDinleyicileri.add(dinleyici);
+    }
 
     public void add(NodeInfo dugum) {
-        dugumler.add(dugum);
+        if (dugumler.add(dugum)) {
+            surum.incrementAndGet();
+        }
     }
 
     public void addAll(Collection<NodeInfo> digerler) {
-        dugumler.addAll(digerler);
+        if (dugumler.addAll(digerler)) {
+            surum.incrementAndGet();
+        }
     }
 
     public List<NodeInfo> snapshot() {
@@ -24,7 +41,14 @@ public class NodeRegistry {
     }
 
     public void remove(NodeInfo dugum) {
-        dugumler.remove(dugum);
+        if (dugumler.remove(dugum)) {
+            surum.incrementAndGet();
+            cikisDinleyicileri.forEach(d -> d.accept(dugum));
+        }
+    }
+
+    public long surum() {
+        return surum.get();
     }
 
     public int boyut() {
@@ -36,6 +60,8 @@ public class NodeRegistry {
     }
 
     public void temizle() {
-        dugumler.clear();
+        for (NodeInfo dugum : List.copyOf(dugumler)) {
+            remove(dugum);
+        }
     }
 }
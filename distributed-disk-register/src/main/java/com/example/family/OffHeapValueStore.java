@@ -0,0 +1,336 @@
+package com.example.family;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Heap dışı (off-heap) int -> byte değer deposu.
+ * - Değerler ham byte olarak saklanır: okumada tek bir byte[] kopyası sarılarak
+ * döner, yazmada ByteString doğrudan slab'a kopyalanır (String/kodlama yok)
+ * - Değerler 1 MB'lık direct ByteBuffer slab'larında tutulur (GC bunları taramaz)
+ * - Her slab bir boyut sınıfına (16 B, 32 B, ... 1 MB) ayrılır ve eşit parçalara bölünür
+ * - Anahtar -> handle indeksi IntIntHashMap'tir, handle bilgileri düz int/long
+ * dizilerindedir: kayıt başına Integer/String/Entry nesnesi yoktur
+ * - Bütçe dolunca sınıf içinde CLOCK (ikinci şans) ile kayıt atılır; sınıfın hiç
+ * slab'ı yoksa en çok slab'ı olan sınıftan bir slab boşaltılıp devredilir
+ *
+ * Not: Büyük bütçelerde JVM'e -XX:MaxDirectMemorySize verilmelidir.
+ */
+public class OffHeapValueStore implements ValueCache {
+
+    static final int SLAB_BOYUTU = 1 << 20; // 1 MB
+    private static final int MIN_SINIF_USSU = 4; // 16 byte
+    private static final int MAX_SINIF_USSU = 20; // 1 MB
+    private static final int SINIF_SAYISI = MAX_SINIF_USSU - MIN_SINIF_USSU + 1;
+
+    private final long maxBayt;
+    private final int maxSlab;
+    private final ReentrantLock kilit = new ReentrantLock();
+
+    // Slab tabloları
+    private final ByteBuffer[] slablar;
+    private final int[][] parcaSahibi; // slab -> parça -> handle, -1 = boş
+    private int ayrilanSlab;
+
+    // Boyut sınıfı tabloları
+    private final int[][] sinifSlablari = new int[SINIF_SAYISI][4];
+    private final int[] sinifSlabSayisi = new int[SINIF_SAYISI];
+    private final long[][] bosParcalar = new long[SINIF_SAYISI][16]; // (slab << 32) | parça
+    private final int[] bosParcaSayisi = new int[SINIF_SAYISI];
+    private final int[] saatSlab = new int[SINIF_SAYISI];
+    private final int[] saatParca = new int[SINIF_SAYISI];
+
+    // Handle tabloları
+    private final IntIntHashMap indeks = new IntIntHashMap(1024);
+    private int[] hAnahtar = new int[1024];
+    private long[] hAdres = new long[1024];
+    private int[] hUzunluk = new int[1024];
+    private boolean[] hReferans = new boolean[1024];
+    private int[] bosHandlelar = new int[1024];
+    private int bosHandleSayisi;
+    private int handleSayisi;
+
+    private long canliBayt;
+
+    private final LongAdder isabet = new LongAdder();
+    private final LongAdder iska = new LongAdder();
+    private final LongAdder tahliye = new LongAdder();
+
+    public OffHeapValueStore(long maxBayt) {
+        this.maxBayt = maxBayt;
+        this.maxSlab = (int) Math.max(1, maxBayt / SLAB_BOYUTU);
+        this.slablar = new ByteBuffer[maxSlab];
+        this.parcaSahibi = new int[maxSlab][];
+    }
+
+    @Override
+    public ByteString get(int anahtar) {
+        byte[] veri;
+        kilit.lock();
+        try {
+            int h = indeks.get(anahtar);
+            if (h == IntIntHashMap.YOK) {
+                iska.increment();
+                return null;
+            }
+            hReferans[h] = true;
+            veri = new byte[hUzunluk[h]];
+            long adres = hAdres[h];
+            slablar[slab(adres)].get(offset(adres, sinif(veri.length)), veri);
+        } finally {
+            kilit.unlock();
+        }
+        isabet.increment();
+        // veri bu metoda özel kopyadır, tekrar kopyalamadan sarılabilir
+        return UnsafeByteOperations.unsafeWrap(veri);
+    }
+
+    @Override
+    public void put(int anahtar, ByteString deger) {
+        int uzunluk = deger.size();
+        kilit.lock();
+        try {
+            int eski = indeks.remove(anahtar);
+            if (eski != IntIntHashMap.YOK) {
+                serbestBirak(eski);
+            }
+            if (uzunluk > SLAB_BOYUTU) {
+                return; // Slab'dan büyük değer önbelleğe alınmaz
+            }
+
+            int sinif = sinif(uzunluk);
+            long adres = parcaAyir(sinif);
+            if (adres < 0) {
+                return;
+            }
+
+            int h = handleAl();
+            hAnahtar[h] = anahtar;
+            hAdres[h] = adres;
+            hUzunluk[h] = uzunluk;
+            hReferans[h] = false;
+            parcaSahibi[slab(adres)][parca(adres)] = h;
+            ByteBuffer hedef = slablar[slab(adres)].duplicate();
+            hedef.position(offset(adres, sinif));
+            deger.copyTo(hedef);
+            indeks.put(anahtar, h);
+            canliBayt += uzunluk;
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public void remove(int anahtar) {
+        kilit.lock();
+        try {
+            int h = indeks.remove(anahtar);
+            if (h != IntIntHashMap.YOK) {
+                serbestBirak(h);
+            }
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    /**
+     * Sınıftan bir parça ayırır: boş parça -> yeni slab -> CLOCK tahliyesi ->
+     * başka sınıftan slab devri sırasıyla denenir
+     */
+    private long parcaAyir(int sinif) {
+        if (bosParcaSayisi[sinif] == 0) {
+            if (ayrilanSlab < maxSlab) {
+                int slab = ayrilanSlab++;
+                slablar[slab] = ByteBuffer.allocateDirect(SLAB_BOYUTU);
+                slabAta(slab, sinif);
+            } else if (sinifSlabSayisi[sinif] > 0) {
+                saatIleTahliye(sinif);
+            } else if (!slabDevret(sinif)) {
+                return -1;
+            }
+        }
+        return bosParcalar[sinif][--bosParcaSayisi[sinif]];
+    }
+
+    private void slabAta(int slab, int sinif) {
+        int parcaSayisi = SLAB_BOYUTU >> (sinif + MIN_SINIF_USSU);
+        parcaSahibi[slab] = new int[parcaSayisi];
+        Arrays.fill(parcaSahibi[slab], -1);
+
+        if (sinifSlabSayisi[sinif] == sinifSlablari[sinif].length) {
+            sinifSlablari[sinif] = Arrays.copyOf(sinifSlablari[sinif], sinifSlablari[sinif].length * 2);
+        }
+        sinifSlablari[sinif][sinifSlabSayisi[sinif]++] = slab;
+
+        // Ters sırada eklenir ki ilk ayrılan parça 0 olsun
+        for (int p = parcaSayisi - 1; p >= 0; p--) {
+            bosParcaEkle(sinif, ((long) slab << 32) | p);
+        }
+    }
+
+    /**
+     * CLOCK (ikinci şans): referans biti set olanın biti silinip geçilir,
+     * olmayan ilk kayıt atılır
+     */
+    private void saatIleTahliye(int sinif) {
+        int parcaSayisi = SLAB_BOYUTU >> (sinif + MIN_SINIF_USSU);
+        while (true) {
+            int slabIdx = saatSlab[sinif] % sinifSlabSayisi[sinif];
+            int p = saatParca[sinif];
+            if (++saatParca[sinif] == parcaSayisi) {
+                saatParca[sinif] = 0;
+                saatSlab[sinif] = (slabIdx + 1) % sinifSlabSayisi[sinif];
+            }
+
+            int h = parcaSahibi[sinifSlablari[sinif][slabIdx]][p];
+            if (h < 0) {
+                continue;
+            }
+            if (hReferans[h]) {
+                hReferans[h] = false;
+                continue;
+            }
+            tahliyeEt(h);
+            return;
+        }
+    }
+
+    /**
+     * En çok slab'ı olan sınıfın son slab'ını boşaltıp istenen sınıfa verir
+     */
+    private boolean slabDevret(int sinif) {
+        int kurban = -1;
+        for (int s = 0; s < SINIF_SAYISI; s++) {
+            if (s != sinif && sinifSlabSayisi[s] > 0
+                    && (kurban < 0 || sinifSlabSayisi[s] > sinifSlabSayisi[kurban])) {
+                kurban = s;
+            }
+        }
+        if (kurban < 0) {
+            return false;
+        }
+
+        int slab = sinifSlablari[kurban][--sinifSlabSayisi[kurban]];
+        for (int h : parcaSahibi[slab]) {
+            if (h >= 0) {
+                tahliyeEt(h);
+            }
+        }
+
+        // Kurban sınıfın boş parça listesinden bu slab'ın parçalarını çıkar
+        int yeniSayi = 0;
+        for (int i = 0; i < bosParcaSayisi[kurban]; i++) {
+            long adres = bosParcalar[kurban][i];
+            if (slab(adres) != slab) {
+                bosParcalar[kurban][yeniSayi++] = adres;
+            }
+        }
+        bosParcaSayisi[kurban] = yeniSayi;
+        saatSlab[kurban] = 0;
+        saatParca[kurban] = 0;
+
+        slabAta(slab, sinif);
+        return true;
+    }
+
+    private void tahliyeEt(int h) {
+        indeks.remove(hAnahtar[h]);
+        serbestBirak(h);
+        tahliye.increment();
+    }
+
+    private void serbestBirak(int h) {
+        long adres = hAdres[h];
+        parcaSahibi[slab(adres)][parca(adres)] = -1;
+        bosParcaEkle(sinif(hUzunluk[h]), adres);
+        canliBayt -= hUzunluk[h];
+
+        if (bosHandleSayisi == bosHandlelar.length) {
+            bosHandlelar = Arrays.copyOf(bosHandlelar, bosHandlelar.length * 2);
+        }
+        bosHandlelar[bosHandleSayisi++] = h;
+    }
+
+    private void bosParcaEkle(int sinif, long adres) {
+        if (bosParcaSayisi[sinif] == bosParcalar[sinif].length) {
+            bosParcalar[sinif] = Arrays.copyOf(bosParcalar[sinif], bosParcalar[sinif].length * 2);
+        }
+        bosParcalar[sinif][bosParcaSayisi[sinif]++] = adres;
+    }
+
+    private int handleAl() {
+        if (bosHandleSayisi > 0) {
+            return bosHandlelar[--bosHandleSayisi];
+        }
+        if (handleSayisi == hAnahtar.length) {
+            int yeni = hAnahtar.length * 2;
+            hAnahtar = Arrays.copyOf(hAnahtar, yeni);
+            hAdres = Arrays.copyOf(hAdres, yeni);
+            hUzunluk = Arrays.copyOf(hUzunluk, yeni);
+            hReferans = Arrays.copyOf(hReferans, yeni);
+        }
+        return handleSayisi++;
+    }
+
+    private static int sinif(int uzunluk) {
+        int uss = 32 - Integer.numberOfLeadingZeros(Math.max(1, uzunluk) - 1); // ceil(log2)
+        return Math.max(uss, MIN_SINIF_USSU) - MIN_SINIF_USSU;
+    }
+
+    private static int slab(long adres) {
+        return (int) (adres >>> 32);
+    }
+
+    private static int parca(long adres) {
+        return (int) adres;
+    }
+
+    private static int offset(long adres, int sinif) {
+        return parca(adres) << (sinif + MIN_SINIF_USSU);
+    }
+
+    @Override
+    public int size() {
+        kilit.lock();
+        try {
+            return indeks.size();
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public long byteSize() {
+        kilit.lock();
+        try {
+            return canliBayt;
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public long maxBytes() {
+        return maxBayt;
+    }
+
+    @Override
+    public long hits() {
+        return isabet.sum();
+    }
+
+    @Override
+    public long misses() {
+        return iska.sum();
+    }
+
+    @Override
+    public long evictions() {
+        return tahliye.sum();
+    }
+}
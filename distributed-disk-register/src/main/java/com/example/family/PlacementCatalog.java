@@ -0,0 +1,704 @@
+package com.example.family;
+
+import family.NodeInfo;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Leader'ın kalıcı yerleşim kataloğu: anahtar -> replikaların bitmask'i.
+ * - Üyeler küçük tamsayı kimliklere (0..MAX_UYE-1) çevrilir (interning); bir
+ * anahtarın replikaları bu kimliklerin bitmask'idir. Anahtar başına tek int:
+ * boxing, liste ya da "host:port" String'i tutulmaz
+ * - Harita SERIT_SAYISI adet IntIntHashMap'e bölünmüştür, her şeridin kendi
+ * kilidi vardır; okuma (maske) nesne ayırmaz
+ * - Anahtarın son bilinen sürümü de tutulur: SET sürümü pozitif, DEL sürümü
+ * negatif (silme işareti) saklanır. Açılış uzlaştırması bununla eski replikayı
+ * ya da DEL sırasında kapalı olan follower'daki anahtarı ayırt eder. Silme
+ * işaretleri MEZAR_OMRU_US kadar tutulur, sonra sıkıştırmada atılır
+ * - placement.log: her değişiklik sona eklenir. Anahtar kaydı (anahtar, maske,
+ * sürüm; maske 0 ise replikası yok) ve yeni kimlik verildiğinde üye kaydı
+ * (kimlik, adres)
+ * - placement.snap: üye sözlüğü + kataloğun tamamının sıkıştırılmış anlık görüntüsü
+ * - Kümeden çıkan üyenin kimliği sıkıştırmada emekliye ayrılır (yeni bit verilmez,
+ * maskelerdeki biti hâlâ çözülür); sonraki bir sıkıştırmada hiçbir maskede biti
+ * kalmadıysa kimlik boşaltılır ve yeni üyelere yeniden verilir
+ * - Sıkıştırmada günlük önce placement.log.old'a döndürülür, görüntü yazarlar
+ * beklemeden alınır, sonra eski günlük silinir; açılışta snap + old + log sırasıyla
+ * oynatılır, bu adımların herhangi birinde çökmek kayıp yaratmaz
+ * - Günlük tamponludur, periyodik olarak boşaltılır (fsync yok): çökmede kaybolan
+ * son değişiklikler açılıştaki follower envanteri uzlaştırmasıyla geri gelir
+ * - Bir anahtarın harita ve günlük güncellemesi şeridin kilidi altında yapılır:
+ * aynı anahtar için günlük sırası harita sırasıyla aynıdır
+ */
+class PlacementCatalog {
+
+    // 32. bit kullanılmaz: tek başına IntIntHashMap.YOK ile aynı değeri verir
+    static final int MAX_UYE = 31;
+    static final int SIKISTIRMA_ESIGI = 1_000_000; // Bu kadar günlük kaydından sonra sıkıştırılır
+
+    static final long MEZAR_OMRU_US = 7L * 24 * 3600 * 1_000_000; // Silme işaretlerinin tutulduğu süre
+
+    private static final String SNAPSHOT_DOSYASI = "placement.snap";
+    private static final String GUNLUK_DOSYASI = "placement.log";
+    private static final String ESKI_GUNLUK_DOSYASI = "placement.log.old";
+    private static final int SNAPSHOT_SIHIRLI_SAYI = 0x504C4333; // "PLC3": kayıtlar sürümlü
+    private static final int SURUMSUZ_SNAPSHOT_SIHIRLI_SAYI = 0x504C4332; // "PLC2"
+    private static final byte KAYIT_ANAHTAR = 1; // Sürümsüz, eski günlüklerde
+    private static final byte KAYIT_UYE = 2;
+    private static final byte KAYIT_SURUMLU_ANAHTAR = 3;
+    private static final int SERIT_SAYISI = 64;
+    private static final int ANAHTAR_KAYIT_BOYUTU = 9; // tür + anahtar + maske
+    private static final int SURUMLU_KAYIT_BOYUTU = 17; // tür + anahtar + maske + sürüm
+
+    private final File klasor;
+    private final IntIntHashMap[] seritler = new IntIntHashMap[SERIT_SAYISI];
+    private final IntLongHashMap[] surumSeritleri = new IntLongHashMap[SERIT_SAYISI]; // Aynı şerit kilidiyle
+    private final StampedLock[] seritKilitleri = new StampedLock[SERIT_SAYISI];
+
+    // Üye sözlüğü: kimlik -> üye ve tersi. Boş kimlikte uyeler[kimlik] null'dır.
+    private final NodeInfo[] uyeler = new NodeInfo[MAX_UYE];
+    private final ConcurrentHashMap<NodeInfo, Integer> kimlikler = new ConcurrentHashMap<>();
+    private volatile int uyeSayisi; // Verilmiş en büyük kimlik + 1
+    private int emekliler; // Emekli kimliklerin bitleri (gunlukKilidi ile): kimlikler'de yoktur
+    private volatile boolean doluUyarisiVerildi;
+
+    private DataOutputStream gunluk;
+    private volatile int gunlukKayitSayisi;
+    // Günlük akışını, kimlik vermeyi ve sıkıştırmadaki döndürmeyi sıralar; şerit kilidi
+    // tutulurken de alınır (kayıt başına kısa bir tampon yazması)
+    private final ReentrantLock gunlukKilidi = new ReentrantLock();
+
+    PlacementCatalog(File klasor) {
+        this.klasor = klasor;
+        for (int i = 0; i < SERIT_SAYISI; i++) {
+            seritler[i] = new IntIntHashMap(1024);
+            surumSeritleri[i] = new IntLongHashMap(1024);
+            seritKilitleri[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Görüntüyü ve günlükleri oynatır, günlüğü eklemeye açar. Yarım kalmış son
+     * günlük kaydı kesilip atılır.
+     *
+     * @return yüklenen anahtar sayısı
+     */
+    int yukle() throws IOException {
+        gunlukKilidi.lock();
+        try {
+            File snapshot = new File(klasor, SNAPSHOT_DOSYASI);
+            if (snapshot.exists()) {
+                try {
+                    snapshotOku(snapshot);
+                } catch (IOException e) {
+                    // Görüntü bozuk - günlükler ve follower envanterleri ile devam
+                    System.err.println("Yerlesim katalogu goruntusu okunamadi: " + e.getMessage());
+                    for (int i = 0; i < SERIT_SAYISI; i++) {
+                        seritler[i].clear();
+                        surumSeritleri[i].clear();
+                    }
+                }
+            }
+            gunlukOku(new File(klasor, ESKI_GUNLUK_DOSYASI));
+            File gunlukDosyasi = new File(klasor, GUNLUK_DOSYASI);
+            long gecerliSon = gunlukOku(gunlukDosyasi);
+            if (gecerliSon < gunlukDosyasi.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(gunlukDosyasi, "rw")) {
+                    raf.setLength(gecerliSon);
+                }
+            }
+            gunluk = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(gunlukDosyasi, true), 1 << 16));
+            return size();
+        } finally {
+            gunlukKilidi.unlock();
+        }
+    }
+
+    /**
+     * Üyenin kimlik biti (1 << kimlik). İlk görülen üyeye yeni kimlik verilir ve
+     * günlüğe yazılır. MAX_UYE dolduysa 0: konum kaydedilmez (okuma hash
+     * halkasına ya da tüm üyelere sormaya düşer).
+     */
+    int bit(NodeInfo uye) {
+        Integer kimlik = kimlikler.get(uye);
+        if (kimlik == null) {
+            kimlik = kimlikVer(uye);
+            if (kimlik < 0) {
+                return 0;
+            }
+        }
+        return 1 << kimlik;
+    }
+
+    private int kimlikVer(NodeInfo uye) {
+        gunlukKilidi.lock();
+        try {
+            Integer mevcut = kimlikler.get(uye);
+            if (mevcut != null) {
+                return mevcut;
+            }
+            // Geri dönen üye emekli kimliğini geri alır: maskelerdeki biti hâlâ onundur
+            for (int kalan = emekliler; kalan != 0; kalan &= kalan - 1) {
+                int emekli = Integer.numberOfTrailingZeros(kalan);
+                if (uye.equals(uyeler[emekli])) {
+                    emekliler &= ~(1 << emekli);
+                    kimlikler.put(uye, emekli);
+                    return emekli;
+                }
+            }
+            int kimlik = bosKimlik();
+            if (kimlik < 0) {
+                if (!doluUyarisiVerildi) {
+                    doluUyarisiVerildi = true;
+                    System.err.printf("Yerlesim katalogu %d uyeyle dolu, %s:%d icin konum tutulmayacak%n",
+                            MAX_UYE, uye.getHost(), uye.getPort());
+                }
+                return -1;
+            }
+            uyeKaydet(kimlik, uye);
+            if (gunluk != null) {
+                try {
+                    uyeKaydiYaz(gunluk, kimlik, uye);
+                    gunlukKayitSayisi++;
+                } catch (IOException e) {
+                    System.err.println("Yerlesim gunlugu yazilamadi: " + e.getMessage());
+                }
+            }
+            return kimlik;
+        } finally {
+            gunlukKilidi.unlock();
+        }
+    }
+
+    /**
+     * Boşaltılmış en küçük kimlik, yoksa sıradaki yeni kimlik; ikisi de yoksa -1
+     */
+    private int bosKimlik() {
+        for (int i = 0; i < uyeSayisi; i++) {
+            if (uyeler[i] == null) {
+                return i;
+            }
+        }
+        return uyeSayisi < MAX_UYE ? uyeSayisi : -1;
+    }
+
+    private void uyeKaydet(int kimlik, NodeInfo uye) {
+        NodeInfo onceki = uyeler[kimlik];
+        if (onceki != null && !onceki.equals(uye)) {
+            kimlikler.remove(onceki, kimlik); // Boşaltılıp yeniden verilmiş kimlik
+        }
+        uyeler[kimlik] = uye;
+        kimlikler.put(uye, kimlik);
+        emekliler &= ~(1 << kimlik);
+        uyeSayisi = Math.max(uyeSayisi, kimlik + 1);
+    }
+
+    /**
+     * Kimliğe karşılık gelen üye (maskedeki bitlerden liste kurmak için)
+     */
+    NodeInfo uye(int kimlik) {
+        return uyeler[kimlik];
+    }
+
+    /**
+     * Katalogun tanıdığı tüm üyeler (leader yeniden başladığında follower'ları
+     * yeniden bulmak için)
+     */
+    List<NodeInfo> uyeler() {
+        List<NodeInfo> liste = new ArrayList<>(uyeSayisi);
+        for (int i = 0; i < uyeSayisi; i++) {
+            if (uyeler[i] != null) {
+                liste.add(uyeler[i]);
+            }
+        }
+        return liste;
+    }
+
+    /**
+     * Anahtarın replika maskesi, anahtar katalogda yoksa 0. Nesne ayırmaz.
+     */
+    int maske(int anahtar) {
+        int s = serit(anahtar);
+        StampedLock kilit = seritKilitleri[s];
+        long damga = kilit.readLock();
+        try {
+            int maske = seritler[s].get(anahtar);
+            return maske == IntIntHashMap.YOK ? 0 : maske;
+        } finally {
+            kilit.unlockRead(damga);
+        }
+    }
+
+    /**
+     * Anahtarın katalogdaki son sürümü: SET sürümü (> 0), DEL sürümünün eksisi
+     * (< 0, silme işareti) ya da bilinmiyorsa 0
+     */
+    long surum(int anahtar) {
+        int s = serit(anahtar);
+        StampedLock kilit = seritKilitleri[s];
+        long damga = kilit.readLock();
+        try {
+            long surum = surumSeritleri[s].get(anahtar);
+            return surum == IntLongHashMap.YOK ? 0 : surum;
+        } finally {
+            kilit.unlockRead(damga);
+        }
+    }
+
+    int size() {
+        int toplam = 0;
+        for (int s = 0; s < SERIT_SAYISI; s++) {
+            long damga = seritKilitleri[s].readLock();
+            try {
+                toplam += seritler[s].size();
+            } finally {
+                seritKilitleri[s].unlockRead(damga);
+            }
+        }
+        return toplam;
+    }
+
+    /**
+     * Şerit tablolarının heap üzerindeki yaklaşık boyutu (byte)
+     */
+    long bellekBoyutu() {
+        long toplam = 0;
+        for (int s = 0; s < SERIT_SAYISI; s++) {
+            long damga = seritKilitleri[s].readLock();
+            try {
+                toplam += seritler[s].bellekBoyutu() + surumSeritleri[s].bellekBoyutu();
+            } finally {
+                seritKilitleri[s].unlockRead(damga);
+            }
+        }
+        return toplam;
+    }
+
+    /**
+     * Her (anahtar, maske) için ziyaretçiyi çağırır; şeritler sırayla, her biri
+     * kendi okuma kilidi altında gezilir (ziyaretçi kataloğu değiştirmemelidir)
+     */
+    void forEach(IntIntHashMap.Ziyaretci ziyaretci) {
+        for (int s = 0; s < SERIT_SAYISI; s++) {
+            long damga = seritKilitleri[s].readLock();
+            try {
+                seritler[s].forEach(ziyaretci);
+            } finally {
+                seritKilitleri[s].unlockRead(damga);
+            }
+        }
+    }
+
+    /**
+     * Anahtarın replika maskesini ve sürümünü yazar (maske 0 ise replikası yok)
+     */
+    void put(int anahtar, int maske, long surum) {
+        int s = serit(anahtar);
+        long damga = seritKilitleri[s].writeLock();
+        try {
+            yaz(s, anahtar, maske, surum);
+        } finally {
+            seritKilitleri[s].unlockWrite(damga);
+        }
+    }
+
+    /**
+     * SET onayı: sürüm katalogdakinden yeniyse konumlar onaylayan üyeyle baştan
+     * kurulur, aynıysa üye eklenir. Daha yeni bir SET ya da DEL kaydedildiyse geç
+     * gelen onay yok sayılır, yeni yerleşimin üzerine yazılmaz.
+     *
+     * @return onay kataloğa işlendiyse true
+     */
+    boolean onayla(int anahtar, int bit, long surum) {
+        int s = serit(anahtar);
+        long damga = seritKilitleri[s].writeLock();
+        try {
+            long mevcutSurum = surumSeritleri[s].get(anahtar);
+            long katalogSurumu = mevcutSurum == IntLongHashMap.YOK ? 0 : Math.abs(mevcutSurum);
+            if (katalogSurumu > surum) {
+                return false;
+            }
+            int maske = seritler[s].get(anahtar);
+            int onceki = katalogSurumu == surum && maske != IntIntHashMap.YOK ? maske : 0;
+            yaz(s, anahtar, onceki | bit, surum);
+            return true;
+        } finally {
+            seritKilitleri[s].unlockWrite(damga);
+        }
+    }
+
+    /**
+     * DEL: konumları unutur, silme sürümünü işaret olarak bırakır
+     */
+    void sil(int anahtar, long surum) {
+        put(anahtar, 0, -surum);
+    }
+
+    /**
+     * Anahtarın maskesi hâlâ beklenen ise yenisiyle değiştirir (0 = yok), sürüm
+     * korunur. Onarım/dengeleme, bu arada gelen bir SET/DEL'in üzerine yazmasın
+     * diye kullanılır.
+     */
+    boolean degistir(int anahtar, int beklenen, int yeni) {
+        int s = serit(anahtar);
+        long damga = seritKilitleri[s].writeLock();
+        try {
+            int mevcut = seritler[s].get(anahtar);
+            if ((mevcut == IntIntHashMap.YOK ? 0 : mevcut) != beklenen) {
+                return false;
+            }
+            long surum = surumSeritleri[s].get(anahtar);
+            yaz(s, anahtar, yeni, surum == IntLongHashMap.YOK ? 0 : surum);
+            return true;
+        } finally {
+            seritKilitleri[s].unlockWrite(damga);
+        }
+    }
+
+    /**
+     * Maske ve sürüm hâlâ beklenen ise ikisini birden değiştirir (uzlaştırma)
+     */
+    boolean degistir(int anahtar, int beklenenMaske, long beklenenSurum, int yeniMaske, long yeniSurum) {
+        int s = serit(anahtar);
+        long damga = seritKilitleri[s].writeLock();
+        try {
+            int maske = seritler[s].get(anahtar);
+            long surum = surumSeritleri[s].get(anahtar);
+            if ((maske == IntIntHashMap.YOK ? 0 : maske) != beklenenMaske
+                    || (surum == IntLongHashMap.YOK ? 0 : surum) != beklenenSurum) {
+                return false;
+            }
+            yaz(s, anahtar, yeniMaske, yeniSurum);
+            return true;
+        } finally {
+            seritKilitleri[s].unlockWrite(damga);
+        }
+    }
+
+    /**
+     * Çağıran şeridin yazma kilidini tutar
+     */
+    private void yaz(int s, int anahtar, int maske, long surum) {
+        if (maske == 0) {
+            seritler[s].remove(anahtar);
+        } else {
+            seritler[s].put(anahtar, maske);
+        }
+        if (surum == 0) {
+            surumSeritleri[s].remove(anahtar);
+        } else {
+            surumSeritleri[s].put(anahtar, surum);
+        }
+        gunlugeYaz(anahtar, maske, surum);
+    }
+
+    int gunlukKayitSayisi() {
+        return gunlukKayitSayisi;
+    }
+
+    /**
+     * Tampondaki günlük kayıtlarını dosyaya yazar
+     */
+    void bosalt() throws IOException {
+        gunlukKilidi.lock();
+        try {
+            if (gunluk != null) {
+                gunluk.flush();
+            }
+        } finally {
+            gunlukKilidi.unlock();
+        }
+    }
+
+    /**
+     * Günlüğü döndürür ve kataloğun görüntüsünü atomik olarak (tmp + rename) yazar.
+     * Görüntü alınırken yazmalar yeni günlüğe devam eder.
+     * - aktifUyeler'de olmayan üyelerin kimlikleri emekliye ayrılır
+     * - Önceki sıkıştırmalardan beri emekli olup görüntüde hiçbir maskede biti
+     * bulunmayan kimlikler boşaltılır. Bir sıkıştırma beklenmesi, emekli olmadan
+     * önce biti alınmış ve onayı yolda olan yazmaların biti geri getirmesini önler.
+     */
+    void sikistir(Collection<NodeInfo> aktifUyeler) throws IOException {
+        File gunlukDosyasi = new File(klasor, GUNLUK_DOSYASI);
+        File eskiGunluk = new File(klasor, ESKI_GUNLUK_DOSYASI);
+        int sozlukBoyutu;
+        int eskiEmekliler;
+        int sozlukEmeklileri;
+        gunlukKilidi.lock();
+        try {
+            gunluk.close();
+            if (eskiGunluk.exists()) {
+                // Önceki sıkıştırma görüntüyü yazamadan kesildi: iki günlük birleştirilir
+                try (FileOutputStream ekle = new FileOutputStream(eskiGunluk, true)) {
+                    Files.copy(gunlukDosyasi.toPath(), ekle);
+                }
+                Files.delete(gunlukDosyasi.toPath());
+            } else {
+                Files.move(gunlukDosyasi.toPath(), eskiGunluk.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            gunluk = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(gunlukDosyasi), 1 << 16));
+            gunlukKayitSayisi = 0;
+            // Döndürmeden sonra verilen kimlikler yeni günlükte kayıtlıdır
+            sozlukBoyutu = uyeSayisi;
+            eskiEmekliler = emekliler;
+            for (int i = 0; i < sozlukBoyutu; i++) {
+                if (uyeler[i] != null && !aktifUyeler.contains(uyeler[i]) && kimlikler.remove(uyeler[i], i)) {
+                    emekliler |= 1 << i;
+                }
+            }
+            sozlukEmeklileri = emekliler;
+        } finally {
+            gunlukKilidi.unlock();
+        }
+
+        File tmp = new File(klasor, SNAPSHOT_DOSYASI + ".tmp");
+        long mezarSiniri = System.currentTimeMillis() * 1000 - MEZAR_OMRU_US; // Sürümler mikrosaniyedir
+        int[] adet = {0};
+        int[] kullanilanBitler = {0};
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+                DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            dos.writeInt(SNAPSHOT_SIHIRLI_SAYI);
+            dos.writeByte(sozlukBoyutu);
+            for (int i = 0; i < sozlukBoyutu; i++) {
+                NodeInfo uye = uyeler[i];
+                boolean emekli = (sozlukEmeklileri & (1 << i)) != 0;
+                // Boş kimlik: port 0, emekli kimlik: negatif port (açılıştan sonra da boşaltılabilsin)
+                dos.writeUTF(uye != null ? uye.getHost() : "");
+                dos.writeInt(uye == null ? 0 : emekli ? -uye.getPort() : uye.getPort());
+            }
+            IOException[] hata = {null};
+            for (int s = 0; s < SERIT_SAYISI; s++) {
+                IntIntHashMap maskeler = seritler[s];
+                IntLongHashMap surumler = surumSeritleri[s];
+                long damga = seritKilitleri[s].readLock();
+                try {
+                    maskeler.forEach((anahtar, maske) -> {
+                        kullanilanBitler[0] |= maske;
+                        long surum = surumler.get(anahtar);
+                        anahtarKaydiYaz(dos, anahtar, maske, surum == IntLongHashMap.YOK ? 0 : surum, adet, hata);
+                    });
+                    // Replikası olmayan sürümler (silme işaretleri): süresi dolanlar atılır
+                    surumler.forEach((anahtar, surum) -> {
+                        if (!maskeler.containsKey(anahtar) && !mezarSuresiDoldu(surum, mezarSiniri)) {
+                            anahtarKaydiYaz(dos, anahtar, 0, surum, adet, hata);
+                        }
+                    });
+                } finally {
+                    seritKilitleri[s].unlockRead(damga);
+                }
+            }
+            if (hata[0] != null) {
+                throw hata[0];
+            }
+            dos.writeInt(0); // Son işareti: maskesiz ve sürümsüz kayıt, ardından kayıt sayısı
+            dos.writeInt(0);
+            dos.writeLong(0);
+            dos.writeInt(adet[0]); // Tam yazılmamış dosya ayırt edilir
+            dos.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), new File(klasor, SNAPSHOT_DOSYASI).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(eskiGunluk.toPath());
+        mezarlariBuda(mezarSiniri);
+        kimlikleriBosalt(eskiEmekliler & ~kullanilanBitler[0]);
+    }
+
+    /**
+     * Emekli ve hiçbir maskede biti olmayan kimlikleri yeni üyelere açar.
+     * Boşaltma günlüğe yazılmaz: kimlik yeniden verildiğinde üye kaydı eskisinin yerine geçer.
+     */
+    private void kimlikleriBosalt(int bitler) {
+        gunlukKilidi.lock();
+        try {
+            bitler &= emekliler; // Bu arada geri dönenler hariç
+            for (int kalan = bitler; kalan != 0; kalan &= kalan - 1) {
+                int kimlik = Integer.numberOfTrailingZeros(kalan);
+                System.out.printf("[KATALOG] Kimlik %d bosaltildi (%s:%d)%n",
+                        kimlik, uyeler[kimlik].getHost(), uyeler[kimlik].getPort());
+                uyeler[kimlik] = null;
+            }
+            emekliler &= ~bitler;
+            if (bitler != 0) {
+                doluUyarisiVerildi = false;
+            }
+        } finally {
+            gunlukKilidi.unlock();
+        }
+    }
+
+    private static void anahtarKaydiYaz(DataOutputStream dos, int anahtar, int maske, long surum,
+                                        int[] adet, IOException[] hata) {
+        if (hata[0] != null) {
+            return;
+        }
+        try {
+            dos.writeInt(anahtar);
+            dos.writeInt(maske);
+            dos.writeLong(surum);
+            adet[0]++;
+        } catch (IOException e) {
+            hata[0] = e;
+        }
+    }
+
+    private static boolean mezarSuresiDoldu(long surum, long mezarSiniri) {
+        return surum < 0 && -surum < mezarSiniri;
+    }
+
+    /**
+     * Süresi dolan silme işaretlerini bellekten atar (görüntüye zaten yazılmadılar)
+     */
+    private void mezarlariBuda(long mezarSiniri) {
+        for (int s = 0; s < SERIT_SAYISI; s++) {
+            IntIntHashMap maskeler = seritler[s];
+            IntLongHashMap surumler = surumSeritleri[s];
+            IntIntHashMap atilacaklar = new IntIntHashMap(16); // Küme olarak: değer kullanılmaz
+            long damga = seritKilitleri[s].writeLock();
+            try {
+                surumler.forEach((anahtar, surum) -> {
+                    if (!maskeler.containsKey(anahtar) && mezarSuresiDoldu(surum, mezarSiniri)) {
+                        atilacaklar.put(anahtar, 1);
+                    }
+                });
+                atilacaklar.forEach((anahtar, bos) -> surumler.remove(anahtar));
+            } finally {
+                seritKilitleri[s].unlockWrite(damga);
+            }
+        }
+    }
+
+    /**
+     * Çağıran anahtarın şerit kilidini tutar
+     */
+    private void gunlugeYaz(int anahtar, int maske, long surum) {
+        gunlukKilidi.lock();
+        try {
+            if (gunluk == null) {
+                return; // yukle() çağrılmadı (follower): katalog sadece bellekte
+            }
+            gunluk.writeByte(KAYIT_SURUMLU_ANAHTAR);
+            gunluk.writeInt(anahtar);
+            gunluk.writeInt(maske);
+            gunluk.writeLong(surum);
+            gunlukKayitSayisi++;
+        } catch (IOException e) {
+            // Katalog bir ipucudur: yazılamayan kayıt açılıştaki uzlaştırmada düzelir
+            System.err.println("Yerlesim gunlugu yazilamadi: " + e.getMessage());
+        } finally {
+            gunlukKilidi.unlock();
+        }
+    }
+
+    private static void uyeKaydiYaz(DataOutputStream dos, int kimlik, NodeInfo uye) throws IOException {
+        dos.writeByte(KAYIT_UYE);
+        dos.writeByte(kimlik);
+        dos.writeUTF(uye.getHost());
+        dos.writeInt(uye.getPort());
+    }
+
+    private static NodeInfo uyeOku(DataInputStream dis) throws IOException {
+        return NodeInfo.newBuilder().setHost(dis.readUTF()).setPort(dis.readInt()).build();
+    }
+
+    private void snapshotOku(File snapshot) throws IOException {
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(snapshot), 1 << 16))) {
+            int sihirliSayi = dis.readInt();
+            boolean surumlu = sihirliSayi == SNAPSHOT_SIHIRLI_SAYI;
+            if (!surumlu && sihirliSayi != SURUMSUZ_SNAPSHOT_SIHIRLI_SAYI) {
+                throw new IOException("Gecersiz katalog dosyasi: " + snapshot);
+            }
+            int sozlukBoyutu = dis.readUnsignedByte();
+            for (int i = 0; i < sozlukBoyutu; i++) {
+                NodeInfo uye = uyeOku(dis);
+                if (uye.getPort() > 0) {
+                    uyeKaydet(i, uye);
+                } else if (uye.getPort() < 0) {
+                    uyeler[i] = uye.toBuilder().setPort(-uye.getPort()).build();
+                    emekliler |= 1 << i;
+                    uyeSayisi = Math.max(uyeSayisi, i + 1);
+                }
+            }
+            int adet = 0;
+            while (true) {
+                int anahtar = dis.readInt();
+                int maske = dis.readInt();
+                long surum = surumlu ? dis.readLong() : 0;
+                if (maske == 0 && surum == 0) {
+                    break; // Son işareti
+                }
+                int s = serit(anahtar);
+                if (maske != 0) {
+                    seritler[s].put(anahtar, maske);
+                }
+                if (surum != 0) {
+                    surumSeritleri[s].put(anahtar, surum);
+                }
+                adet++;
+            }
+            if (dis.readInt() != adet) {
+                throw new IOException("Eksik katalog dosyasi: " + snapshot);
+            }
+        }
+    }
+
+    /**
+     * @return son tam kaydın bittiği byte
+     */
+    private long gunlukOku(File gunlukDosyasi) throws IOException {
+        if (!gunlukDosyasi.exists()) {
+            return 0;
+        }
+        long gecerliSon = 0;
+        int kayit = 0;
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(gunlukDosyasi), 1 << 16))) {
+            while (true) {
+                byte tur = dis.readByte();
+                if (tur == KAYIT_SURUMLU_ANAHTAR || tur == KAYIT_ANAHTAR) {
+                    boolean surumlu = tur == KAYIT_SURUMLU_ANAHTAR;
+                    int anahtar = dis.readInt();
+                    int maske = dis.readInt();
+                    long surum = surumlu ? dis.readLong() : 0;
+                    int s = serit(anahtar);
+                    if (maske == 0) {
+                        seritler[s].remove(anahtar);
+                    } else {
+                        seritler[s].put(anahtar, maske);
+                    }
+                    if (surum == 0) {
+                        surumSeritleri[s].remove(anahtar);
+                    } else {
+                        surumSeritleri[s].put(anahtar, surum);
+                    }
+                    gecerliSon += surumlu ? SURUMLU_KAYIT_BOYUTU : ANAHTAR_KAYIT_BOYUTU;
+                } else if (tur == KAYIT_UYE) {
+                    int kimlik = dis.readUnsignedByte();
+                    NodeInfo uye = uyeOku(dis);
+                    uyeKaydet(kimlik, uye);
+                    gecerliSon += 1 + 1 + 2 + uye.getHost().length() + 4; // Adres ASCII'dir
+                } else {
+                    break; // Tanınmayan tür: yarım/bozuk kuyruk
+                }
+                kayit++;
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            // Son kayıt yarım yazılmış - öncesi geçerli
+        }
+        gunlukKayitSayisi += kayit;
+        return gecerliSon;
+    }
+
+    private static int serit(int anahtar) {
+        int h = anahtar * 0x9E3779B9;
+        return (h >>> 26) & (SERIT_SAYISI - 1); // Üst bitler: şerit içi tablo alt bitleri kullanır
+    }
+}
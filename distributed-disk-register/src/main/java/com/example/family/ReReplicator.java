@@ -0,0 +1,321 @@
+package com.example.family;
+
+import family.DeleteRequest;
+import family.KeyRequest;
+import family.NodeInfo;
+import family.RetrieveResponse;
+import family.StorageServiceGrpc;
+import family.StoredMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leader'da çalışan yeniden replikasyon (re-replication) motoru.
+ * - Bir follower kümeden çıkarılınca tetiklenir: yerleşim kataloğu taranır, canlı
+ * replika sayısı hedefin (tolerance, en fazla canlı follower sayısı) altına düşen
+ * anahtarlar toplanır
+ * - Her anahtar canlı bir replikadan Retrieve ile okunur ve sürümü korunarak
+ * yeni hedeflere Store ile yazılır (follower'daki sürüm kontrolü eski kopyanın
+ * yeni yazmanın üzerine gelmesini engeller)
+ * - Katalog anahtar başına CAS ile güncellenir: ölü üyenin biti çıkar, yeni
+ * hedeflerin biti eklenir. Bu sırada anahtar SET/DEL ile değiştiyse katalog
+ * ona bırakılır ve hedeflere yazılan eski kopya aynı sürümle silinir
+ * - Eşzamanlı kopya sayısı iş parçacığı sayısıyla, aktarım hızı byte/saniye
+ * ile sınırlanır; istemci trafiğinin bant genişliği korunur
+ * - Kopyalanamayan anahtarlar için tarama periyodik olarak tekrarlanır
+ */
+class ReReplicator {
+
+    static final long VARSAYILAN_BANT_GENISLIGI = 16L * 1024 * 1024; // byte/saniye
+    static final int VARSAYILAN_ESZAMANLILIK = 4;
+
+    private static final long TEKRAR_TARAMA_SANIYE = 30;
+    private static final int KUYRUK_CARPANI = 4; // Havuz başına sırada bekleyebilecek anahtar
+
+    /**
+     * Motorun küme hakkında bilmesi gerekenler (NodeMain sağlar)
+     */
+    interface Kume {
+        /**
+         * Kayıtlı (canlı) follower'ların katalog bitleri
+         */
+        int canliMaske();
+
+        /**
+         * Anahtarın eksik replikaları için en fazla adet yeni hedef; haricMaske'deki
+         * üyeler seçilmez
+         */
+        List<NodeInfo> hedefSec(int anahtar, int haricMaske, int adet);
+
+        /**
+         * Hedefe bayt kadar veri kopyalandı (yük tahmini için)
+         */
+        void kopyalandi(NodeInfo hedef, int bayt);
+    }
+
+    private final PlacementCatalog katalog;
+    private final ChannelPool kanalHavuzu;
+    private final Kume kume;
+    private final int tolerance;
+    private final long zamanAsimiMs;
+
+    private final ScheduledExecutorService tarayici;
+    private final ExecutorService isciler;
+    private final Semaphore kuyruk;
+    private final int eszamanlilik;
+
+    private final TokenBucket hizSiniri; // byte/saniye, null = sınırsız
+
+    private final AtomicBoolean kirli = new AtomicBoolean(); // Tekrar taranmalı
+    private volatile boolean calisiyor;
+
+    // İlerleme (son tarama ve toplam)
+    private volatile int turAnahtari;
+    private final AtomicInteger turTamamlanan = new AtomicInteger();
+    private final AtomicLong tamamlanan = new AtomicLong();
+    private final AtomicLong basarisiz = new AtomicLong();
+    private final AtomicLong kopyalananBayt = new AtomicLong();
+    private volatile int kayipAnahtar; // Canlı replikası kalmayanlar
+
+    ReReplicator(PlacementCatalog katalog, ChannelPool kanalHavuzu, Kume kume, int tolerance,
+                 long bantGenisligi, int eszamanlilik, long zamanAsimiMs) {
+        this.katalog = katalog;
+        this.kanalHavuzu = kanalHavuzu;
+        this.kume = kume;
+        this.tolerance = tolerance;
+        this.zamanAsimiMs = zamanAsimiMs;
+        this.eszamanlilik = Math.max(1, eszamanlilik);
+        this.hizSiniri = bantGenisligi > 0 ? new TokenBucket(bantGenisligi) : null;
+        this.kuyruk = new Semaphore(this.eszamanlilik * KUYRUK_CARPANI);
+        this.tarayici = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "re-replication");
+            t.setDaemon(true);
+            return t;
+        });
+        this.isciler = Executors.newFixedThreadPool(this.eszamanlilik, r -> {
+            Thread t = new Thread(r, "re-replication-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        tarayici.scheduleWithFixedDelay(() -> {
+            if (kirli.get()) {
+                tara();
+            }
+        }, TEKRAR_TARAMA_SANIYE, TEKRAR_TARAMA_SANIYE, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Üye kümeden çıkarıldı: anahtarları bir tarama ile yeniden replike edilir.
+     * Art arda çıkan üyeler tek taramada toplanır.
+     */
+    void uyeCikti(NodeInfo uye) {
+        kirli.set(true);
+        tarayici.execute(() -> {
+            if (kirli.get()) {
+                tara();
+            }
+        });
+    }
+
+    boolean calisiyor() {
+        return calisiyor;
+    }
+
+    /**
+     * İstatistik satırı, ör. "120/500 keys, 1.2 MB"
+     */
+    String ilerlemeMetni() {
+        StringBuilder metin = new StringBuilder();
+        if (calisiyor) {
+            metin.append(turTamamlanan.get()).append('/').append(turAnahtari).append(" keys");
+        } else {
+            metin.append(tamamlanan.get()).append(" keys");
+        }
+        long bayt = kopyalananBayt.get();
+        metin.append(", ").append(bayt < 1024 * 1024 ? bayt / 1024 + " KB" : bayt / (1024 * 1024) + " MB");
+        if (basarisiz.get() > 0) {
+            metin.append(", ").append(basarisiz.get()).append(" failed");
+        }
+        if (kayipAnahtar > 0) {
+            metin.append(", ").append(kayipAnahtar).append(" lost");
+        }
+        return metin.toString();
+    }
+
+    private void tara() {
+        kirli.set(false);
+        int canli = kume.canliMaske();
+        if (canli == 0) {
+            kirli.set(true); // Follower yok - biri katılınca tekrar denenir
+            return;
+        }
+        int hedefSayisi = Math.min(tolerance, Integer.bitCount(canli));
+
+        // forEach kilit altında gezer: işlenecekler önce toplanır
+        IntIntHashMap isler = new IntIntHashMap(1024);
+        int[] kayip = {0};
+        katalog.forEach((anahtar, maske) -> {
+            int canliKopya = maske & canli;
+            if (canliKopya == 0) {
+                kayip[0]++;
+            } else if ((maske & ~canli) != 0 || Integer.bitCount(canliKopya) < hedefSayisi) {
+                isler.put(anahtar, maske);
+            }
+        });
+        kayipAnahtar = kayip[0];
+        if (isler.size() == 0) {
+            if (kayip[0] > 0) {
+                System.out.printf("[ONARIM] %d anahtarin canli replikasi yok%n", kayip[0]);
+            }
+            return;
+        }
+
+        long baslangic = System.nanoTime();
+        long baslangicBayt = kopyalananBayt.get();
+        long baslangicHata = basarisiz.get();
+        turAnahtari = isler.size();
+        turTamamlanan.set(0);
+        calisiyor = true;
+        System.out.printf("[ONARIM] %d anahtar eksik replikali, yeniden replike ediliyor (%d is parcacigi)%n",
+                isler.size(), eszamanlilik);
+
+        isler.forEach((anahtar, maske) -> {
+            kuyruk.acquireUninterruptibly();
+            isciler.execute(() -> {
+                try {
+                    onar(anahtar, canli, hedefSayisi);
+                } finally {
+                    turTamamlanan.incrementAndGet();
+                    kuyruk.release();
+                }
+            });
+        });
+        // Tüm işlerin bitmesi beklenir
+        kuyruk.acquireUninterruptibly(eszamanlilik * KUYRUK_CARPANI);
+        kuyruk.release(eszamanlilik * KUYRUK_CARPANI);
+        calisiyor = false;
+
+        long hata = basarisiz.get() - baslangicHata;
+        if (hata > 0) {
+            kirli.set(true);
+        }
+        System.out.printf("[ONARIM] Tamamlandi: %d anahtar, %d KB, %d hata, %d ms%n",
+                isler.size(), (kopyalananBayt.get() - baslangicBayt) / 1024, hata,
+                (System.nanoTime() - baslangic) / 1_000_000);
+    }
+
+    /**
+     * Tek anahtarı hedef replika sayısına tamamlar
+     */
+    private void onar(int anahtar, int canli, int hedefSayisi) {
+        int maske = katalog.maske(anahtar);
+        int canliKopya = maske & canli;
+        if (maske == 0 || canliKopya == 0) {
+            return; // Bu arada silindi ya da kaybedildi
+        }
+        int eksik = hedefSayisi - Integer.bitCount(canliKopya);
+        if (eksik <= 0) {
+            // Yeterli canlı kopya var: yalnızca çıkan üyenin biti temizlenir
+            if (katalog.degistir(anahtar, maske, canliKopya)) {
+                tamamlanan.incrementAndGet();
+            }
+            return;
+        }
+
+        RetrieveResponse kaynak = canliKopyaOku(anahtar, canliKopya);
+        if (kaynak == null) {
+            basarisiz.incrementAndGet();
+            return;
+        }
+        StoredMessage kayit = StoredMessage.newBuilder()
+                .setId(anahtar)
+                .setValue(kaynak.getValue())
+                .setVersion(kaynak.getVersion())
+                .build();
+        int boyut = kaynak.getValue().size();
+
+        int eklenen = 0;
+        List<NodeInfo> yazilanlar = new ArrayList<>();
+        for (NodeInfo hedef : kume.hedefSec(anahtar, maske | ~canli, eksik)) {
+            int hedefBiti = katalog.bit(hedef);
+            if (hedefBiti == 0) {
+                continue; // Katalog dolu - konum kaydedilemez
+            }
+            if (hizSiniri != null) {
+                hizSiniri.al(Math.max(1, boyut));
+            }
+            try {
+                if (!storageStub(hedef).store(kayit).getApplied()) {
+                    continue; // Hedefte daha yeni sürüm var: bu arada SET geldi, konumu o belirler
+                }
+                eklenen |= hedefBiti;
+                yazilanlar.add(hedef);
+                kopyalananBayt.addAndGet(boyut);
+                kume.kopyalandi(hedef, boyut);
+            } catch (Exception e) {
+                System.out.printf("[ONARIM] %d -> %s:%d BASARISIZ: %s%n",
+                        anahtar, hedef.getHost(), hedef.getPort(), e.getMessage());
+            }
+        }
+        if (eklenen == 0) {
+            basarisiz.incrementAndGet();
+            return;
+        }
+
+        if (katalog.degistir(anahtar, maske, canliKopya | eklenen)) {
+            tamamlanan.incrementAndGet();
+            if (Integer.bitCount(canliKopya | eklenen) < hedefSayisi) {
+                basarisiz.incrementAndGet(); // Kısmi: sonraki taramada tamamlanır
+            }
+            return;
+        }
+
+        // Anahtar bu arada SET/DEL ile değişti: yeni konumlar geçerlidir, yeni
+        // konumda olmayan hedeflerdeki eski kopya silinir (sürüm kontrollü, yeni
+        // sürüm yazıldıysa silinmez)
+        int guncel = katalog.maske(anahtar);
+        DeleteRequest silme = DeleteRequest.newBuilder().setId(anahtar).setVersion(kayit.getVersion()).build();
+        for (NodeInfo hedef : yazilanlar) {
+            if ((guncel & katalog.bit(hedef)) == 0) {
+                try {
+                    storageStub(hedef).delete(silme);
+                } catch (Exception e) {
+                    // Erişilemez - kopya sahipsiz kalır, okumada en yüksek sürüm kazanır
+                }
+            }
+        }
+    }
+
+    /**
+     * Canlı replikalardan sırayla okur; ilk bulunan
+     */
+    private RetrieveResponse canliKopyaOku(int anahtar, int canliKopya) {
+        KeyRequest istek = KeyRequest.newBuilder().setKey(anahtar).build();
+        for (int kalan = canliKopya; kalan != 0; kalan &= kalan - 1) {
+            NodeInfo kaynak = katalog.uye(Integer.numberOfTrailingZeros(kalan));
+            try {
+                RetrieveResponse yanit = storageStub(kaynak).retrieve(istek);
+                if (yanit.getFound()) {
+                    return yanit;
+                }
+            } catch (Exception e) {
+                // Kaynak erişilemez - sıradaki replika denenir
+            }
+        }
+        return null;
+    }
+
+    private StorageServiceGrpc.StorageServiceBlockingStub storageStub(NodeInfo uye) {
+        return StorageServiceGrpc.newBlockingStub(kanalHavuzu.kanal(uye))
+                .withDeadlineAfter(zamanAsimiMs, TimeUnit.MILLISECONDS);
+    }
+}
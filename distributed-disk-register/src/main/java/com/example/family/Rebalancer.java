@@ -0,0 +1,477 @@
+package com.example.family;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import family.DeleteRequest;
+import family.MultiGetRequest;
+import family.MultiGetResponse;
+import family.NodeInfo;
+import family.RetrieveResponse;
+import family.StorageServiceGrpc;
+import family.StoreAck;
+import family.StoredMessage;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Kümeye katılan follower'a mevcut anahtarlardan payını taşıyan dengeleyici (leader'da).
+ * - Üye envanteriyle uzlaştırıldıktan sonra çalışır; payı (katalogdaki kopya
+ * sayısı) ortalamanın DENGE_ESIGI altındaysa taşıma planlanır
+ * - Halka yerleşiminde pay, halkanın o üyeye verdiği anahtarlardır: replikaları
+ * arasında üye olup kopyası olmayan anahtar, halkada artık yeri olmayan bir
+ * sahibinden taşınır. En az dolu yerleşiminde en kalabalık sahiplerden,
+ * üye ortalamaya ulaşana kadar taşınır
+ * - Taşıma toplu ve akışlıdır: parti anahtarları kaynak başına tek MultiGet ile
+ * okunur, yeni üyeye ayrı bir ReplicateStream ile (sürümleri korunarak) yazılır
+ * - Katalog anahtar başına CAS ile güncellenir (yeni üye eklenir, eski sahip
+ * çıkar), sonra eski sahipteki kopya aynı sürümle silinir (sürüm kontrollü:
+ * bu arada gelen yeni yazma silinmez). Anahtar bu arada SET/DEL ile değiştiyse
+ * katalog ona bırakılır, yeni konumda olmayan kopyalar silinir
+ * - Fazla kopyalar (ör. çökmeden önce silinemeyen eski sahip) aynı şekilde silinir
+ * - Aktarım byte/saniye ile sınırlıdır. Her partiden sonra ilerleme
+ * rebalance.cursor dosyasına yazılır; leader yeniden başlarsa ya da üye
+ * erişilemez olursa kalan anahtarlardan devam edilir
+ * - Çağrılar tek thread'den (katalog uzlaştırma zamanlayıcısı) gelir: dengeleme
+ * ve uzlaştırma aynı anda çalışmaz
+ */
+class Rebalancer {
+
+    static final long VARSAYILAN_BANT_GENISLIGI = 8L * 1024 * 1024; // byte/saniye
+    static final int PARTI_BOYUTU = 256;
+
+    private static final String IMLEC_DOSYASI = "rebalance.cursor";
+    private static final double DENGE_ESIGI = 0.9; // Ortalamanın bu oranının altındaki üye dengelenir
+    private static final long TEKRAR_DENEME_MS = 30_000;
+
+    // Plan değeri: kopya bayrağı | (çıkarılacak sahibin kimliği + 1), 0 = çıkarılacak yok
+    private static final int KOPYALA = 0x100;
+
+    private final PlacementCatalog katalog;
+    private final ChannelPool kanalHavuzu;
+    private final IntSupplier canliMaske; // Kayıtlı follower'ların katalog bitleri
+    private final IntUnaryOperator halkaMaskesi; // Anahtarın halkadaki replikaları, en az dolu yerleşimde null
+    private final int tolerance;
+    private final TokenBucket hizSiniri; // null = sınırsız
+    private final long zamanAsimiMs;
+    private final File imlecDosyasi;
+
+    // Yarım kalan dengeleme: üye ve işlenen son anahtar
+    private volatile NodeInfo bekleyenUye;
+    private long imlec = Long.MIN_VALUE;
+    private long sonDeneme;
+
+    // İlerleme
+    private volatile NodeInfo aktifUye;
+    private volatile int turAnahtari;
+    private volatile int turTamamlanan;
+    private final AtomicLong tasinan = new AtomicLong();
+    private final AtomicLong silinen = new AtomicLong();
+    private final AtomicLong tasinanBayt = new AtomicLong();
+
+    Rebalancer(PlacementCatalog katalog, ChannelPool kanalHavuzu, IntSupplier canliMaske,
+               IntUnaryOperator halkaMaskesi, int tolerance, long bantGenisligi, long zamanAsimiMs, File klasor) {
+        this.katalog = katalog;
+        this.kanalHavuzu = kanalHavuzu;
+        this.canliMaske = canliMaske;
+        this.halkaMaskesi = halkaMaskesi;
+        this.tolerance = tolerance;
+        this.hizSiniri = bantGenisligi > 0 ? new TokenBucket(bantGenisligi) : null;
+        this.zamanAsimiMs = zamanAsimiMs;
+        this.imlecDosyasi = new File(klasor, IMLEC_DOSYASI);
+        imleciOku();
+    }
+
+    /**
+     * Üye envanteriyle uzlaştırıldı: yarım kalan dengelemesi varsa sürdürülür,
+     * payı ortalamanın altındaysa yeni dengeleme başlar
+     */
+    void uyeKatildi(NodeInfo uye) {
+        if (uye.equals(bekleyenUye)) {
+            dengele(uye);
+            return;
+        }
+        if (bekleyenUye != null || katalog.bit(uye) == 0 || !payiEksik(uye)) {
+            return; // Aynı anda tek dengeleme; bekleyen bitince payı yeniden değerlendirilir
+        }
+        bekleyenUye = uye;
+        imlec = Long.MIN_VALUE;
+        dengele(uye);
+    }
+
+    /**
+     * Hata ya da kesinti nedeniyle yarım kalan dengelemeyi belirli aralıklarla sürdürür
+     */
+    void devamEt() {
+        NodeInfo uye = bekleyenUye;
+        if (uye != null && System.currentTimeMillis() - sonDeneme >= TEKRAR_DENEME_MS
+                && (canliMaske.getAsInt() & katalog.bit(uye)) != 0) {
+            dengele(uye);
+        }
+    }
+
+    /**
+     * İstatistik satırı, ör. "120/500 keys -> 10.0.0.5:5559" ya da toplamlar
+     */
+    String ilerlemeMetni() {
+        NodeInfo uye = aktifUye;
+        if (uye != null) {
+            return turTamamlanan + "/" + turAnahtari + " keys -> " + uye.getHost() + ":" + uye.getPort();
+        }
+        long bayt = tasinanBayt.get();
+        return tasinan.get() + " moved, " + silinen.get() + " dedup, "
+                + (bayt < 1024 * 1024 ? bayt / 1024 + " KB" : bayt / (1024 * 1024) + " MB")
+                + (bekleyenUye != null ? ", pending" : "");
+    }
+
+    /**
+     * Katalogdaki kopya sayısı, canlı follower başına ortalamanın DENGE_ESIGI altında mı
+     */
+    private boolean payiEksik(NodeInfo uye) {
+        int canli = canliMaske.getAsInt();
+        int[] sayilar = kopyaSayilari(canli);
+        int uyeKimligi = Integer.numberOfTrailingZeros(katalog.bit(uye));
+        long toplam = 0;
+        for (int sayi : sayilar) {
+            toplam += sayi;
+        }
+        return sayilar[uyeKimligi] < DENGE_ESIGI * toplam / Integer.bitCount(canli);
+    }
+
+    /**
+     * Canlı üye kimliği başına katalogdaki kopya sayısı
+     */
+    private int[] kopyaSayilari(int canli) {
+        int[] sayilar = new int[PlacementCatalog.MAX_UYE];
+        katalog.forEach((anahtar, maske) -> {
+            for (int kalan = maske & canli; kalan != 0; kalan &= kalan - 1) {
+                sayilar[Integer.numberOfTrailingZeros(kalan)]++;
+            }
+        });
+        return sayilar;
+    }
+
+    private void dengele(NodeInfo uye) {
+        sonDeneme = System.currentTimeMillis();
+        int uyeBiti = katalog.bit(uye);
+        int canli = canliMaske.getAsInt();
+        if ((canli & uyeBiti) == 0) {
+            return; // Üye erişilemez - yeniden katılınca devam edilir
+        }
+
+        long baslangic = System.nanoTime();
+        IntIntHashMap plan = halkaMaskesi != null ? halkaPlani(uyeBiti, canli) : yukPlani(uyeBiti, canli);
+        int[] anahtarlar = new int[plan.size()];
+        int[] sira = {0};
+        plan.forEach((anahtar, islem) -> anahtarlar[sira[0]++] = anahtar);
+        Arrays.sort(anahtarlar); // İmleç anahtar sırasıyla ilerler
+        if (anahtarlar.length == 0) {
+            bekleyenUye = null; // Üyenin payı zaten yerinde
+            imlec = Long.MIN_VALUE;
+            imlecDosyasi.delete();
+            return;
+        }
+        String uyeAdresi = uye.getHost() + ":" + uye.getPort();
+        System.out.printf("[DENGELEME] %s: %d anahtar planlandi%s%n", uyeAdresi, anahtarlar.length,
+                imlec != Long.MIN_VALUE ? " (imlec " + imlec + " sonrasindan devam)" : "");
+
+        aktifUye = uye;
+        turAnahtari = anahtarlar.length;
+        turTamamlanan = 0;
+        long baslangicBayt = tasinanBayt.get();
+        int hata = 0;
+        boolean kesildi = false;
+        ReplicationStream akis = new ReplicationStream(uye, kanalHavuzu, zamanAsimiMs);
+        try {
+            for (int bas = 0; bas < anahtarlar.length; bas += PARTI_BOYUTU) {
+                if ((canliMaske.getAsInt() & uyeBiti) == 0) {
+                    kesildi = true; // Üye çıkarıldı - imleçten devam edilecek
+                    break;
+                }
+                int son = Math.min(bas + PARTI_BOYUTU, anahtarlar.length);
+                hata += partiyiTasi(Arrays.copyOfRange(anahtarlar, bas, son), plan, uye, uyeBiti, akis);
+                imlec = anahtarlar[son - 1];
+                imleciYaz(uye);
+                turTamamlanan = son;
+            }
+        } finally {
+            akis.kapat();
+            aktifUye = null;
+        }
+
+        if (kesildi) {
+            System.out.printf("[DENGELEME] %s erisilemez, %d/%d anahtarda durduruldu%n",
+                    uyeAdresi, turTamamlanan, anahtarlar.length);
+            return;
+        }
+        // Tur bitti: hatalı anahtarlar sonraki denemede baştan planlanır (taşınanlar plana girmez)
+        imlec = Long.MIN_VALUE;
+        if (hata == 0) {
+            bekleyenUye = null;
+            imlecDosyasi.delete();
+        } else {
+            imleciYaz(uye);
+        }
+        System.out.printf("[DENGELEME] %s tamamlandi: %d anahtar, %d KB, %d hata, %d ms%n",
+                uyeAdresi, anahtarlar.length, (tasinanBayt.get() - baslangicBayt) / 1024, hata,
+                (System.nanoTime() - baslangic) / 1_000_000);
+    }
+
+    /**
+     * Halka yerleşimi: halkada üyenin replikası olduğu halde kopyası olmayan anahtarlar
+     * (halkada yeri olmayan bir sahipten taşınır) ve üyenin de tuttuğu fazla kopyalı anahtarlar
+     */
+    private IntIntHashMap halkaPlani(int uyeBiti, int canli) {
+        IntIntHashMap plan = new IntIntHashMap(1024);
+        katalog.forEach((anahtar, maske) -> {
+            int canliKopya = maske & canli;
+            if (anahtar <= imlec || canliKopya == 0) {
+                return;
+            }
+            boolean uyede = (canliKopya & uyeBiti) != 0;
+            boolean fazla = uyede && Integer.bitCount(canliKopya) > tolerance;
+            if (uyede && !fazla) {
+                return;
+            }
+            int ideal = halkaMaskesi.applyAsInt(anahtar);
+            int yersiz = canliKopya & ~ideal; // Halkada artık yeri olmayan sahipler
+            if (!uyede && (ideal & uyeBiti) != 0) {
+                boolean cikar = yersiz != 0 && Integer.bitCount(canliKopya) >= tolerance;
+                plan.put(anahtar, KOPYALA | (cikar ? Integer.numberOfTrailingZeros(yersiz) + 1 : 0));
+            } else if (fazla && yersiz != 0) {
+                plan.put(anahtar, Integer.numberOfTrailingZeros(yersiz) + 1);
+            }
+        });
+        return plan;
+    }
+
+    /**
+     * En az dolu yerleşimi: üye ortalama kopya sayısına ulaşana kadar ortalamanın
+     * üstündeki en kalabalık sahiplerden anahtar alınır; üyenin de tuttuğu fazla
+     * kopyalı anahtarların en kalabalık diğer sahibi çıkarılır
+     */
+    private IntIntHashMap yukPlani(int uyeBiti, int canli) {
+        int[] sayilar = kopyaSayilari(canli);
+        long toplam = 0;
+        for (int sayi : sayilar) {
+            toplam += sayi;
+        }
+        int hedef = (int) (toplam / Integer.bitCount(canli));
+        int uyeKimligi = Integer.numberOfTrailingZeros(uyeBiti);
+
+        IntIntHashMap plan = new IntIntHashMap(1024);
+        katalog.forEach((anahtar, maske) -> {
+            int canliKopya = maske & canli;
+            if (anahtar <= imlec || canliKopya == 0) {
+                return;
+            }
+            boolean uyede = (canliKopya & uyeBiti) != 0;
+            if (uyede && Integer.bitCount(canliKopya) > tolerance) {
+                int sahip = enKalabalik(canliKopya & ~uyeBiti, sayilar);
+                sayilar[sahip]--;
+                plan.put(anahtar, sahip + 1);
+            } else if (!uyede && sayilar[uyeKimligi] < hedef) {
+                int sahip = enKalabalik(canliKopya, sayilar);
+                if (sayilar[sahip] > hedef) {
+                    sayilar[sahip]--;
+                    sayilar[uyeKimligi]++;
+                    plan.put(anahtar, KOPYALA | (sahip + 1));
+                }
+            }
+        });
+        return plan;
+    }
+
+    private static int enKalabalik(int maske, int[] sayilar) {
+        int enIyi = Integer.numberOfTrailingZeros(maske);
+        for (int kalan = maske & (maske - 1); kalan != 0; kalan &= kalan - 1) {
+            int kimlik = Integer.numberOfTrailingZeros(kalan);
+            if (sayilar[kimlik] > sayilar[enIyi]) {
+                enIyi = kimlik;
+            }
+        }
+        return enIyi;
+    }
+
+    /**
+     * Bir partiyi taşır: kaynak başına MultiGet, yeni üyeye akış, anahtar başına
+     * CAS, eski sahiplerde sürümlü silme
+     *
+     * @return taşınamayan anahtar sayısı
+     */
+    private int partiyiTasi(int[] anahtarlar, IntIntHashMap plan, NodeInfo uye, int uyeBiti,
+                            ReplicationStream akis) {
+        int adet = anahtarlar.length;
+        int[] maskeler = new int[adet];
+        int[] cikanBitler = new int[adet];
+        boolean[] kopyala = new boolean[adet];
+        boolean[] atla = new boolean[adet];
+        RetrieveResponse[] kayitlar = new RetrieveResponse[adet];
+
+        // Okunacak kopyanın kaynağı: çıkarılacak sahip (yoksa herhangi bir sahip)
+        Map<NodeInfo, List<Integer>> kaynaklar = new LinkedHashMap<>();
+        int canli = canliMaske.getAsInt();
+        for (int i = 0; i < adet; i++) {
+            int islem = plan.get(anahtarlar[i]);
+            maskeler[i] = katalog.maske(anahtarlar[i]);
+            cikanBitler[i] = (islem & 0xFF) != 0 ? 1 << ((islem & 0xFF) - 1) : 0;
+            kopyala[i] = (islem & KOPYALA) != 0 && (maskeler[i] & uyeBiti) == 0;
+            int kaynakBitleri = maskeler[i] & canli & ~uyeBiti;
+            if ((cikanBitler[i] != 0 && (maskeler[i] & cikanBitler[i]) == 0)
+                    || (!kopyala[i] && cikanBitler[i] == 0) || kaynakBitleri == 0) {
+                atla[i] = true; // Plandan sonra değişti - sonraki turda yeniden değerlendirilir
+                continue;
+            }
+            int kaynak = (kaynakBitleri & cikanBitler[i]) != 0 ? cikanBitler[i] : Integer.lowestOneBit(kaynakBitleri);
+            kaynaklar.computeIfAbsent(katalog.uye(Integer.numberOfTrailingZeros(kaynak)), k -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<NodeInfo, List<Integer>> grup : kaynaklar.entrySet()) {
+            MultiGetRequest.Builder istek = MultiGetRequest.newBuilder();
+            for (int i : grup.getValue()) {
+                istek.addKeys(anahtarlar[i]);
+            }
+            try {
+                MultiGetResponse yanit = storageStub(grup.getKey()).multiGet(istek.build());
+                for (int k = 0; k < grup.getValue().size(); k++) {
+                    if (yanit.getValues(k).getFound()) {
+                        kayitlar[grup.getValue().get(k)] = yanit.getValues(k);
+                    }
+                }
+            } catch (Exception e) {
+                System.out.printf("[DENGELEME] %s:%d okunamadi: %s%n",
+                        grup.getKey().getHost(), grup.getKey().getPort(), e.getMessage());
+            }
+        }
+
+        // Yeni üyeye akış: kayıtlar frame'lerde toplanır, kümülatif onaylanır
+        List<CompletableFuture<Boolean>> yazmalar = new ArrayList<>();
+        List<Integer> yazilanlar = new ArrayList<>();
+        for (int i = 0; i < adet; i++) {
+            if (kopyala[i] && kayitlar[i] != null) {
+                StoredMessage kayit = StoredMessage.newBuilder()
+                        .setId(anahtarlar[i])
+                        .setValue(kayitlar[i].getValue())
+                        .setVersion(kayitlar[i].getVersion())
+                        .build();
+                if (hizSiniri != null) {
+                    hizSiniri.al(Math.max(1, kayit.getSerializedSize()));
+                }
+                yazmalar.add(akis.gonder(kayit));
+                yazilanlar.add(i);
+            }
+        }
+        boolean[] yazildi = new boolean[adet];
+        for (int k = 0; k < yazmalar.size(); k++) {
+            try {
+                if (!yazmalar.get(k).get(zamanAsimiMs, TimeUnit.MILLISECONDS)) {
+                    continue; // Üyede daha yeni sürüm var: bu arada SET geldi, sonraki turda bakılır
+                }
+                int i = yazilanlar.get(k);
+                yazildi[i] = true;
+                tasinanBayt.addAndGet(kayitlar[i].getValue().size());
+            } catch (Exception e) {
+                // Yazılamadı - anahtar taşınmamış sayılır
+            }
+        }
+
+        // Anahtar başına yerleşim: CAS, sonra silinecek kopyalar
+        int hata = 0;
+        List<ListenableFuture<StoreAck>> silmeler = new ArrayList<>();
+        for (int i = 0; i < adet; i++) {
+            if (atla[i]) {
+                continue;
+            }
+            if (kayitlar[i] == null || (kopyala[i] && !yazildi[i])) {
+                hata++;
+                continue;
+            }
+            int yeniMaske = (maskeler[i] | (kopyala[i] ? uyeBiti : 0)) & ~cikanBitler[i];
+            DeleteRequest silme = DeleteRequest.newBuilder()
+                    .setId(anahtarlar[i])
+                    .setVersion(kayitlar[i].getVersion())
+                    .build();
+            if (katalog.degistir(anahtarlar[i], maskeler[i], yeniMaske)) {
+                if (kopyala[i]) {
+                    tasinan.incrementAndGet();
+                } else {
+                    silinen.incrementAndGet();
+                }
+                if (cikanBitler[i] != 0) {
+                    silmeler.add(silmeIstegi(cikanBitler[i], silme));
+                }
+                continue;
+            }
+            // Bu arada SET/DEL geldi: yeni konumda olmayan kopyalar silinir
+            int guncel = katalog.maske(anahtarlar[i]);
+            for (int bit : new int[]{kopyala[i] ? uyeBiti : 0, cikanBitler[i]}) {
+                if (bit != 0 && (guncel & bit) == 0) {
+                    silmeler.add(silmeIstegi(bit, silme));
+                }
+            }
+        }
+        try {
+            Futures.successfulAsList(silmeler).get(zamanAsimiMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Silinemeyen kopya sahipsiz kalır; okumada en yüksek sürüm kazanır
+        }
+        return hata;
+    }
+
+    private ListenableFuture<StoreAck> silmeIstegi(int bit, DeleteRequest silme) {
+        return StorageServiceGrpc.newFutureStub(kanalHavuzu.kanal(katalog.uye(Integer.numberOfTrailingZeros(bit))))
+                .withDeadlineAfter(zamanAsimiMs, TimeUnit.MILLISECONDS)
+                .delete(silme);
+    }
+
+    private StorageServiceGrpc.StorageServiceBlockingStub storageStub(NodeInfo uye) {
+        return StorageServiceGrpc.newBlockingStub(kanalHavuzu.kanal(uye))
+                .withDeadlineAfter(zamanAsimiMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * İmleç dosyası: üye adresi ve işlenen son anahtar. Yazma atomiktir (tmp + rename).
+     */
+    private void imleciYaz(NodeInfo uye) {
+        File tmp = new File(imlecDosyasi.getPath() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(tmp))) {
+            dos.writeUTF(uye.getHost());
+            dos.writeInt(uye.getPort());
+            dos.writeLong(imlec);
+        } catch (IOException e) {
+            System.err.println("Dengeleme imleci yazilamadi: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), imlecDosyasi.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Dengeleme imleci yazilamadi: " + e.getMessage());
+        }
+    }
+
+    private void imleciOku() {
+        if (!imlecDosyasi.exists()) {
+            return;
+        }
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(imlecDosyasi))) {
+            bekleyenUye = NodeInfo.newBuilder().setHost(dis.readUTF()).setPort(dis.readInt()).build();
+            imlec = dis.readLong();
+            System.out.printf("Rebalance cursor: %s:%d, resuming after key %s%n", bekleyenUye.getHost(),
+                    bekleyenUye.getPort(), imlec == Long.MIN_VALUE ? "-" : String.valueOf(imlec));
+        } catch (IOException e) {
+            System.err.println("Dengeleme imleci okunamadi, yok sayiliyor: " + e.getMessage());
+            bekleyenUye = null;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.family;
+
+import family.NodeInfo;
+import family.ReplicationAck;
+import family.ReplicationFrame;
+import family.StoredMessage;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Leader'dan tek bir follower'a uzun ömürlü ReplicateStream akışı.
+ * - Bekleyen yazmalar kayıt/byte sınırı dolana ya da kısa bekleme süresi
+ * bitene kadar tek bir frame'de toplanır, bir gönderici thread yollar
+ * - Follower her frame'i uyguladıktan sonra kümülatif seq ile onaylar;
+ * seq'e kadar olan tüm kayıtların future'ları tamamlanır. Sürümü eski olduğu
+ * için uygulanmayan kayıtlar onayda ayrıca bildirilir, future'ları false döner
+ * - Onaylanmamış kayıtlar kayıt ve byte penceresiyle sınırlıdır: pencere
+ * doluysa yazan thread bekler (backpressure), bellek sınırsız büyümez
+ * - gRPC akışı hazır değilse (HTTP/2 penceresi dolu) frame gönderilmez
+ * - Akış koparsa onaylanmamış kayıtlar hata ile tamamlanır, sonraki yazma
+ * yeni bir akış açar
+ */
+class ReplicationStream {
+
+    static final int MAX_FRAME_KAYIT = 256;
+    static final int MAX_FRAME_BAYT = 256 * 1024;
+    static final long FRAME_BEKLEME_MIKRO = 200;
+    static final int PENCERE_KAYIT = 4096;
+    static final long PENCERE_BAYT = 16L * 1024 * 1024;
+
+    private static final class Bekleyen {
+        final long seq;
+        final StoredMessage kayit;
+        final int boyut;
+        final CompletableFuture<Boolean> sonuc = new CompletableFuture<>();
+
+        Bekleyen(long seq, StoredMessage kayit, int boyut) {
+            this.seq = seq;
+            this.kayit = kayit;
+            this.boyut = boyut;
+        }
+    }
+
+    /**
+     * Açık bir gRPC akışı. Kopan akıştan geç gelen onaylar yeni akışı etkilemesin
+     * diye her akış ayrı nesnedir.
+     */
+    private final class Akis implements ClientResponseObserver<ReplicationFrame, ReplicationAck> {
+        ClientCallStreamObserver<ReplicationFrame> istekGozlemci;
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<ReplicationFrame> gozlemci) {
+            istekGozlemci = gozlemci;
+            gozlemci.setOnReadyHandler(() -> sinyalVer(gonderilecekVar));
+        }
+
+        @Override
+        public void onNext(ReplicationAck onay) {
+            onayla(this, onay.getSeq(), onay.getSkippedSeqsList());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            koptu(this, t);
+        }
+
+        @Override
+        public void onCompleted() {
+            koptu(this, new IOException("Replikasyon akisi kapandi"));
+        }
+    }
+
+    private final NodeInfo uye;
+    private final String adres;
+    private final ChannelPool kanalHavuzu;
+    private final long zamanAsimiMs;
+
+    private final ReentrantLock kilit = new ReentrantLock();
+    private final Condition yerAcildi = kilit.newCondition();
+    private final Condition gonderilecekVar = kilit.newCondition();
+    private final ArrayDeque<Bekleyen> gonderilecek = new ArrayDeque<>();
+    private final ArrayDeque<Bekleyen> onaysiz = new ArrayDeque<>(); // seq sırasıyla, gönderilecekleri de içerir
+    private long sonSeq;
+    private long onaysizBayt;
+    private long gonderilecekBayt;
+    private Akis akis;
+    private boolean kapali;
+
+    private final Thread gonderici;
+
+    ReplicationStream(NodeInfo uye, ChannelPool kanalHavuzu, long zamanAsimiMs) {
+        this.uye = uye;
+        this.adres = uye.getHost() + ":" + uye.getPort();
+        this.kanalHavuzu = kanalHavuzu;
+        this.zamanAsimiMs = zamanAsimiMs;
+        this.gonderici = new Thread(this::gondericiDongusu, "ReplicationStream-" + adres);
+        this.gonderici.setDaemon(true);
+        this.gonderici.start();
+    }
+
+    /**
+     * Kaydı akışa ekler. Pencere doluysa yer açılana kadar (en fazla zaman aşımı
+     * kadar) bekler. Dönen future follower kaydı işlediğinde tamamlanır: uygulandıysa
+     * true, follower'da daha yeni sürüm olduğu için atlandıysa false.
+     */
+    CompletableFuture<Boolean> gonder(StoredMessage kayit) {
+        int boyut = kayit.getSerializedSize();
+        kilit.lock();
+        try {
+            long kalanNano = TimeUnit.MILLISECONDS.toNanos(zamanAsimiMs);
+            while (!kapali && (onaysiz.size() >= PENCERE_KAYIT
+                    || (onaysizBayt > 0 && onaysizBayt + boyut > PENCERE_BAYT))) {
+                if (kalanNano <= 0) {
+                    return CompletableFuture.failedFuture(
+                            new TimeoutException("Replikasyon penceresi dolu: " + adres));
+                }
+                kalanNano = yerAcildi.awaitNanos(kalanNano);
+            }
+            if (kapali) {
+                return CompletableFuture.failedFuture(new IOException("Replikasyon akisi kapali: " + adres));
+            }
+
+            Bekleyen bekleyen = new Bekleyen(++sonSeq, kayit, boyut);
+            onaysiz.add(bekleyen);
+            onaysizBayt += boyut;
+            gonderilecek.add(bekleyen);
+            gonderilecekBayt += boyut;
+            // Gönderici boş kuyrukta ya da frame dolmasını bekliyor olabilir
+            if (gonderilecek.size() == 1 || frameDolu()) {
+                gonderilecekVar.signal();
+            }
+            return bekleyen.sonuc;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    /**
+     * Akışı kapatır; onaylanmamış kayıtlar hata ile tamamlanır
+     */
+    void kapat() {
+        List<Bekleyen> dusenler;
+        kilit.lock();
+        try {
+            kapali = true;
+            dusenler = hepsiniDusur();
+            gonderilecekVar.signalAll();
+            yerAcildi.signalAll();
+        } finally {
+            kilit.unlock();
+        }
+        hataylaTamamla(dusenler, new IOException("Replikasyon akisi kapatildi: " + adres));
+    }
+
+    int onaysizKayit() {
+        kilit.lock();
+        try {
+            return onaysiz.size();
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    private void gondericiDongusu() {
+        Akis sonAkis = null;
+        while (true) {
+            Akis hedef;
+            ReplicationFrame frame;
+            kilit.lock();
+            try {
+                while (!kapali && gonderilecek.isEmpty()) {
+                    gonderilecekVar.await();
+                }
+                if (kapali) {
+                    break;
+                }
+
+                // Frame dolana ya da bekleme süresi bitene kadar kayıt topla
+                long kalanNano = TimeUnit.MICROSECONDS.toNanos(FRAME_BEKLEME_MIKRO);
+                while (!kapali && !frameDolu() && kalanNano > 0) {
+                    kalanNano = gonderilecekVar.awaitNanos(kalanNano);
+                }
+
+                if (akis == null) {
+                    Akis yeni = new Akis();
+                    try {
+                        kanalHavuzu.storageAsyncStub(uye).replicateStream(yeni);
+                    } catch (RuntimeException e) {
+                        hataylaTamamla(hepsiniDusur(), e); // Kanal kapatılmış olabilir
+                        continue;
+                    }
+                    akis = yeni;
+                }
+                hedef = akis;
+
+                // HTTP/2 akış kontrolü: follower okumuyorsa üst üste frame yığılmasın
+                while (!kapali && akis == hedef && !hedef.istekGozlemci.isReady()) {
+                    gonderilecekVar.await(100, TimeUnit.MILLISECONDS);
+                }
+                if (kapali || akis != hedef || gonderilecek.isEmpty()) {
+                    continue;
+                }
+
+                frame = frameOlustur();
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                kilit.unlock();
+            }
+
+            sonAkis = hedef;
+            try {
+                hedef.istekGozlemci.onNext(frame);
+            } catch (RuntimeException e) {
+                koptu(hedef, e);
+            }
+        }
+
+        if (sonAkis != null) {
+            try {
+                sonAkis.istekGozlemci.onCompleted();
+            } catch (RuntimeException ignored) {
+                // Akış zaten kopmuş
+            }
+        }
+    }
+
+    private boolean frameDolu() {
+        return gonderilecek.size() >= MAX_FRAME_KAYIT || gonderilecekBayt >= MAX_FRAME_BAYT;
+    }
+
+    private ReplicationFrame frameOlustur() {
+        ReplicationFrame.Builder frame = ReplicationFrame.newBuilder();
+        int frameBayt = 0;
+        long seq = 0;
+        while (!gonderilecek.isEmpty() && frame.getEntriesCount() < MAX_FRAME_KAYIT
+                && (frameBayt == 0 || frameBayt + gonderilecek.peek().boyut <= MAX_FRAME_BAYT)) {
+            Bekleyen bekleyen = gonderilecek.poll();
+            gonderilecekBayt -= bekleyen.boyut;
+            frameBayt += bekleyen.boyut;
+            seq = bekleyen.seq;
+            frame.addEntries(bekleyen.kayit);
+        }
+        return frame.setSeq(seq).build();
+    }
+
+    private void onayla(Akis kaynak, long seq, List<Long> atlananlar) {
+        List<Bekleyen> tamamlananlar = new ArrayList<>();
+        kilit.lock();
+        try {
+            if (akis != kaynak) {
+                return;
+            }
+            while (!onaysiz.isEmpty() && onaysiz.peek().seq <= seq) {
+                Bekleyen bekleyen = onaysiz.poll();
+                onaysizBayt -= bekleyen.boyut;
+                tamamlananlar.add(bekleyen);
+            }
+            yerAcildi.signalAll();
+        } finally {
+            kilit.unlock();
+        }
+        for (Bekleyen bekleyen : tamamlananlar) {
+            bekleyen.sonuc.complete(!atlananlar.contains(bekleyen.seq)); // Liste kısadır, genelde boş
+        }
+    }
+
+    private void koptu(Akis kaynak, Throwable sebep) {
+        List<Bekleyen> dusenler;
+        kilit.lock();
+        try {
+            if (akis != kaynak) {
+                return;
+            }
+            akis = null;
+            dusenler = hepsiniDusur();
+            yerAcildi.signalAll();
+            gonderilecekVar.signalAll();
+        } finally {
+            kilit.unlock();
+        }
+        if (!dusenler.isEmpty()) {
+            System.out.printf("[REPLIKASYON] %s akisi koptu, %d kayit onaysiz: %s%n",
+                    adres, dusenler.size(), sebep.getMessage());
+        }
+        hataylaTamamla(dusenler, sebep);
+    }
+
+    private List<Bekleyen> hepsiniDusur() {
+        List<Bekleyen> dusenler = new ArrayList<>(onaysiz);
+        onaysiz.clear();
+        gonderilecek.clear();
+        onaysizBayt = 0;
+        gonderilecekBayt = 0;
+        return dusenler;
+    }
+
+    private static void hataylaTamamla(List<Bekleyen> bekleyenler, Throwable sebep) {
+        for (Bekleyen bekleyen : bekleyenler) {
+            bekleyen.sonuc.completeExceptionally(sebep);
+        }
+    }
+
+    private void sinyalVer(Condition kosul) {
+        kilit.lock();
+        try {
+            kosul.signalAll();
+        } finally {
+            kilit.unlock();
+        }
+    }
+}
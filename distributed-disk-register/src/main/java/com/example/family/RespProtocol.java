@@ -0,0 +1,234 @@
+package com.example.family;
+
+import com.google.protobuf.ByteString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Redis RESP2 uyumlu istemci protokolü (redis-cli, redis-benchmark ve Redis
+ * istemci kütüphaneleri için).
+ * - Bağlantının ilk byte'ı '*' ise bağlantı RESP moduna geçer (satır protokolü
+ * komutları harfle, ikili protokol SIHIRLI_BYTE ile başlar)
+ * - İstek: bulk string dizisi, "*<n>\r\n" ardından n kez "$<uzunluk>\r\n<byte>\r\n".
+ * Inline (dizi olmayan) komutlar desteklenmez
+ * - Argümanlar binary-safe'tir: değer newline içerebilir, taranmaz
+ * - Yanıtlar istek sırasıyla yazılır (Redis pipelining'i ile aynı)
+ * - Anahtar uzayı int32'dir; sayı olmayan anahtarlar hata ile reddedilir
+ */
+final class RespProtocol {
+
+    static final int DIZI_ISARETI = '*';
+
+    static final int MAX_ARGUMAN_SAYISI = 1024 * 1024;
+    static final int MAX_BULK_BOYUTU = BinaryProtocol.MAX_DEGER_BOYUTU;
+    static final int MAX_KOMUT_BOYUTU = 2 * MAX_BULK_BOYUTU; // Tek bir komutun tamponda birikebilecek boyutu
+    private static final int MAX_SAYI_SATIRI = 20;
+
+    static final byte[] OK = ascii("+OK\r\n");
+    static final byte[] PONG = ascii("+PONG\r\n");
+    static final byte[] BOS_DIZI = ascii("*0\r\n");
+    static final byte[] BOS_BULK = ascii("$-1\r\n");
+
+    private RespProtocol() {
+    }
+
+    /**
+     * tampon[konum[0], son) aralığından bir komut okur. Komut henüz tamamlanmadıysa
+     * null döner ve konum değişmez; tamamlandıysa konum komutun sonuna ilerler.
+     * Tamamlanma önce kopyasız kontrol edilir: büyük bir komut parça parça gelirken
+     * her okumada argümanlar yeniden kopyalanmaz.
+     */
+    static byte[][] komutOku(byte[] tampon, int[] konum, int son) throws IOException {
+        int bas = konum[0];
+        int komutSonu = tara(tampon, bas, son, null);
+        if (komutSonu < 0) {
+            return null;
+        }
+        byte[][] argumanlar = new byte[(int) sayiOku(tampon, bas + 1, satirSonu(tampon, bas + 1, son))][];
+        tara(tampon, bas, son, argumanlar);
+        konum[0] = komutSonu;
+        return argumanlar;
+    }
+
+    /**
+     * Bloklayan okuyucudan bir komut okur; komut sınırında bağlantı kapandıysa null
+     */
+    static byte[][] komutOku(LineReader okuyucu) throws IOException {
+        byte[] baslik = okuyucu.satirOku();
+        if (baslik == null) {
+            return null;
+        }
+        byte[][] argumanlar = new byte[(int) uzunlukAyristir(baslik, DIZI_ISARETI, 1, MAX_ARGUMAN_SAYISI)][];
+        for (int i = 0; i < argumanlar.length; i++) {
+            byte[] bulkBaslik = okuyucu.satirOku();
+            if (bulkBaslik == null) {
+                throw new IOException("RESP: komut ortasinda baglanti kapandi");
+            }
+            argumanlar[i] = new byte[(int) uzunlukAyristir(bulkBaslik, '$', 0, MAX_BULK_BOYUTU)];
+            okuyucu.tamOku(argumanlar[i]);
+            if (okuyucu.bak() != '\r') {
+                throw new IOException("RESP: bulk sonunda CRLF bekleniyordu");
+            }
+            okuyucu.atla();
+            if (okuyucu.bak() != '\n') {
+                throw new IOException("RESP: bulk sonunda CRLF bekleniyordu");
+            }
+            okuyucu.atla();
+        }
+        return argumanlar;
+    }
+
+    /**
+     * Komutun şeridi (bkz. CommandPipeline): tek anahtarlı komutlar anahtarın
+     * şeridinde, çok anahtarlılar tüm şeritlerin bariyeri olarak çalışır
+     */
+    static int seritIndeksi(byte[][] argumanlar) {
+        int tur = CommandParser.komutTuru(argumanlar[0], 0, argumanlar[0].length);
+        if (CommandParser.cokAnahtarli(tur)) {
+            return -1;
+        }
+        if ((tur == CommandParser.SET || tur == CommandParser.GET) && argumanlar.length > 1) {
+            long anahtar = CommandParser.intAyristir(argumanlar[1], 0, argumanlar[1].length);
+            if (anahtar != CommandParser.GECERSIZ_ANAHTAR) {
+                return CommandPipeline.anahtarSeridi((int) anahtar);
+            }
+        }
+        return 0;
+    }
+
+    static byte[] hata(String mesaj) {
+        // Hata satırı CR/LF içeremez
+        return ascii("-ERR " + String.valueOf(mesaj).replace('\r', ' ').replace('\n', ' ') + "\r\n");
+    }
+
+    static byte[] tamsayi(long deger) {
+        return ascii(":" + deger + "\r\n");
+    }
+
+    /**
+     * Bulk string; deger null ise "$-1" (nil)
+     */
+    static byte[] bulk(ByteString deger) {
+        if (deger == null) {
+            return BOS_BULK;
+        }
+        byte[] baslik = ascii("$" + deger.size() + "\r\n");
+        byte[] yanit = Arrays.copyOf(baslik, baslik.length + deger.size() + 2);
+        deger.copyTo(yanit, baslik.length);
+        yanit[yanit.length - 2] = '\r';
+        yanit[yanit.length - 1] = '\n';
+        return yanit;
+    }
+
+    /**
+     * Bulk string dizisi; null elemanlar nil olarak yazılır
+     */
+    static byte[] dizi(ByteString[] degerler) {
+        ByteArrayOutputStream yanit = new ByteArrayOutputStream();
+        yanit.writeBytes(ascii("*" + degerler.length + "\r\n"));
+        for (ByteString deger : degerler) {
+            yanit.writeBytes(bulk(deger));
+        }
+        return yanit.toByteArray();
+    }
+
+    /**
+     * Komutu bas'tan itibaren tarar; argumanlar null değilse bulk'ları ona kopyalar.
+     *
+     * @return komutun bittiği indeks, komut henüz tamamlanmadıysa -1
+     */
+    private static int tara(byte[] tampon, int bas, int son, byte[][] argumanlar) throws IOException {
+        if (bas >= son) {
+            return -1;
+        }
+        if (tampon[bas] != DIZI_ISARETI) {
+            throw new IOException("RESP: dizi bekleniyordu");
+        }
+        int satirSonu = satirSonu(tampon, bas + 1, son);
+        if (satirSonu < 0) {
+            return -1;
+        }
+        long adet = sayiOku(tampon, bas + 1, satirSonu);
+        if (adet < 1 || adet > MAX_ARGUMAN_SAYISI) {
+            throw new IOException("RESP: gecersiz arguman sayisi: " + adet);
+        }
+
+        int i = satirSonu + 2;
+        for (int k = 0; k < adet; k++) {
+            if (i >= son) {
+                return -1;
+            }
+            if (tampon[i] != '$') {
+                throw new IOException("RESP: bulk string bekleniyordu");
+            }
+            satirSonu = satirSonu(tampon, i + 1, son);
+            if (satirSonu < 0) {
+                return -1;
+            }
+            long uzunluk = sayiOku(tampon, i + 1, satirSonu);
+            if (uzunluk < 0 || uzunluk > MAX_BULK_BOYUTU) {
+                throw new IOException("RESP: gecersiz bulk uzunlugu: " + uzunluk);
+            }
+            i = satirSonu + 2;
+            if (son - i < uzunluk + 2) {
+                return -1;
+            }
+            int bulkSonu = i + (int) uzunluk;
+            if (tampon[bulkSonu] != '\r' || tampon[bulkSonu + 1] != '\n') {
+                throw new IOException("RESP: bulk sonunda CRLF bekleniyordu");
+            }
+            if (argumanlar != null) {
+                argumanlar[k] = Arrays.copyOfRange(tampon, i, bulkSonu);
+            }
+            i = bulkSonu + 2;
+        }
+        return i;
+    }
+
+    /**
+     * bas'tan sonraki "\r\n"in "\r" indeksi; satır henüz tamamlanmadıysa -1
+     */
+    private static int satirSonu(byte[] tampon, int bas, int son) throws IOException {
+        for (int i = bas; i + 1 < son; i++) {
+            if (tampon[i] == '\r' && tampon[i + 1] == '\n') {
+                return i;
+            }
+            if (i - bas > MAX_SAYI_SATIRI) {
+                break;
+            }
+        }
+        if (son - bas > MAX_SAYI_SATIRI + 2) {
+            throw new IOException("RESP: uzunluk satiri cok uzun");
+        }
+        return -1;
+    }
+
+    private static long sayiOku(byte[] tampon, int bas, int son) throws IOException {
+        long sayi = CommandParser.intAyristir(tampon, bas, son);
+        if (sayi == CommandParser.GECERSIZ_ANAHTAR) {
+            throw new IOException("RESP: gecersiz uzunluk");
+        }
+        return sayi;
+    }
+
+    /**
+     * LineReader'ın kırpılmış satırından "<isaret><sayi>" ayrıştırır
+     */
+    private static long uzunlukAyristir(byte[] satir, int isaret, long min, long max) throws IOException {
+        if (satir.length < 2 || satir[0] != isaret) {
+            throw new IOException("RESP: '" + (char) isaret + "' bekleniyordu");
+        }
+        long sayi = sayiOku(satir, 1, satir.length);
+        if (sayi < min || sayi > max) {
+            throw new IOException("RESP: gecersiz uzunluk: " + sayi);
+        }
+        return sayi;
+    }
+
+    private static byte[] ascii(String metin) {
+        return metin.getBytes(StandardCharsets.US_ASCII);
+    }
+}
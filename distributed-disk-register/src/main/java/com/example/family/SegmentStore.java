@@ -0,0 +1,587 @@
+package com.example.family;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured (append-only) segment deposu.
+ * - Her SET, aktif segment dosyasının sonuna tek bir kayıt olarak eklenir
+ * - Kayıt formatı: [anahtar:int32][surum:int64][uzunluk:int32][deger:bytes][crc32:int32]
+ * - Silme, uzunluğu KeyIndex.SILINDI olan değersiz bir kayıttır (tombstone)
+ * - Değer ByteBuffer olarak alınır; büyük değerler kayıt tamponuna kopyalanmadan
+ * doğrudan dosyaya yazılır
+ * - Segment belirli bir boyuta ulaşınca yeni segment açılır (rolling)
+ * - Anahtar -> (segment, offset) indeksi KeyIndex'te tutulur, okuma tek bir
+ * positioned read'dir
+ * - Her segment geçişinde indeksin checkpoint'i alınır; açılışta sadece
+ * checkpoint'ten sonraki segmentler taranır
+ * - Arka planda ölü byte oranı SIKISTIRMA_ORANI'nı geçen kapalı segmentler
+ * sıkıştırılır: canlı kayıtlar aktif segmente yeniden yazılır, dosya silinir
+ */
+class SegmentStore {
+
+    static final long VARSAYILAN_SEGMENT_BOYUTU = 64L * 1024 * 1024; // 64 MB
+    private static final String SEGMENT_UZANTISI = ".seg";
+    private static final int BASLIK_BOYUTU = 16; // anahtar + sürüm + uzunluk
+    private static final int CRC_BOYUTU = 4;
+    private static final int BUYUK_DEGER_ESIGI = 64 * 1024; // Bu boyuttan itibaren değer ayrı yazılır
+    static final double SIKISTIRMA_ORANI = 0.5; // Kapalı segmentte ölü byte oranı bunu geçince sıkıştırılır
+    private static final long SIKISTIRMA_ARALIGI_SN = 60;
+    private static final int SIKISTIRMA_PARTISI = 256; // Yazma kilidi bu kadar kayıtta bir bırakılır
+
+    private final File klasor;
+    private final long maxSegmentBoyutu;
+    private final KeyIndex indeks;
+    private final ConcurrentHashMap<Integer, FileChannel> segmentler = new ConcurrentHashMap<>();
+    private final ExecutorService checkpointYurutucu = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "IndexCheckpoint");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService sikistirici = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SegmentCompactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Sadece yazma kilidi altında değişir. synchronized değil: yazma + fsync
+    // sırasında virtual thread carrier'ı pinlenmez
+    private final ReentrantLock yazmaKilidi = new ReentrantLock();
+    private int aktifSegment;
+    private FileChannel aktifKanal;
+    private long aktifBoyut;
+    private int bekleyenCheckpoint = -1;
+
+    SegmentStore(File klasor, long maxSegmentBoyutu) throws IOException {
+        this.klasor = klasor;
+        this.maxSegmentBoyutu = maxSegmentBoyutu;
+        this.indeks = new KeyIndex(klasor, false);
+        kurtar();
+        sikistirici.scheduleWithFixedDelay(this::sikistirmaTuru,
+                SIKISTIRMA_ARALIGI_SN, SIKISTIRMA_ARALIGI_SN, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Açılışta checkpoint'i yükler, sonrasındaki segmentleri sırayla tarayıp
+     * indeksi tamamlar. Yarım kalmış (torn) kayıt varsa oradan kesilir.
+     */
+    private void kurtar() throws IOException {
+        int sinir = indeks.yukle(); // Checkpoint yoksa veya bozuksa -1: tüm segmentler taranır
+
+        List<Integer> idler = segmentIdleri();
+        for (int id : idler) {
+            FileChannel kanal = kanalAc(id);
+            segmentler.put(id, kanal);
+            if (id < sinir) {
+                continue; // Checkpoint bu segmenti zaten kapsıyor
+            }
+            long gecerliSon = segmentiTara(id, kanal.size());
+            if (gecerliSon < kanal.size()) {
+                System.err.printf("Segment %d: %d byte bozuk kuyruk kesildi%n", id, kanal.size() - gecerliSon);
+                kanal.truncate(gecerliSon);
+            }
+        }
+        if (sinir >= 0) {
+            gecersizGirdileriDusur();
+        }
+
+        if (idler.isEmpty()) {
+            yeniSegmentAc(1);
+        } else {
+            aktifSegment = idler.get(idler.size() - 1);
+            aktifKanal = segmentler.get(aktifSegment);
+            aktifBoyut = aktifKanal.size();
+        }
+    }
+
+    /**
+     * Checkpoint arka planda alınırken aktif segmentin henüz fsync edilmemiş
+     * kayıtlarını da görmüş olabilir. Çökmeden sonra bu kayıtlar kesilen kuyrukta
+     * kaldıysa (ya da segment artık yoksa) girdi düşürülür: okuma bozuk kayıt
+     * hatası yerine "yok" döner.
+     */
+    private void gecersizGirdileriDusur() throws IOException {
+        Map<Integer, Long> sonlar = new HashMap<>();
+        for (Map.Entry<Integer, FileChannel> e : segmentler.entrySet()) {
+            sonlar.put(e.getKey(), e.getValue().size());
+        }
+        List<Integer> dusulecekler = new ArrayList<>();
+        indeks.forEach((anahtar, konum) -> {
+            Long son = sonlar.get(konum.segment);
+            if (son == null || konum.offset + BASLIK_BOYUTU + konum.uzunluk + CRC_BOYUTU > son) {
+                dusulecekler.add(anahtar);
+            }
+        });
+        for (int anahtar : dusulecekler) {
+            indeks.dusur(anahtar);
+        }
+        if (!dusulecekler.isEmpty()) {
+            System.err.printf("Checkpoint'te diskte olmayan %d kayit indeksten cikarildi%n", dusulecekler.size());
+        }
+    }
+
+    private long segmentiTara(int id, long boyut) throws IOException {
+        long pozisyon = 0;
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(segmentDosyasi(id)), 1 << 16))) {
+            while (pozisyon + BASLIK_BOYUTU + CRC_BOYUTU <= boyut) {
+                int anahtar = dis.readInt();
+                long surum = dis.readLong();
+                int uzunluk = dis.readInt();
+                if (uzunluk == KeyIndex.SILINDI) {
+                    if (dis.readInt() != (int) baslikCrc(anahtar, surum).getValue()) {
+                        break;
+                    }
+                    indeks.sil(anahtar, surum);
+                    pozisyon += BASLIK_BOYUTU + CRC_BOYUTU;
+                    continue;
+                }
+                if (uzunluk < 0 || pozisyon + BASLIK_BOYUTU + uzunluk + CRC_BOYUTU > boyut) {
+                    break;
+                }
+                byte[] deger = new byte[uzunluk];
+                dis.readFully(deger);
+                int crc = dis.readInt();
+                if (crc != crcHesapla(anahtar, surum, deger, uzunluk)) {
+                    break;
+                }
+                indeks.guncelle(anahtar, new KeyIndex.Konum(id, pozisyon, uzunluk, surum));
+                pozisyon += BASLIK_BOYUTU + uzunluk + CRC_BOYUTU;
+            }
+        } catch (EOFException e) {
+            // Yarım kayıt - geçerli son pozisyon zaten biliniyor
+        }
+        return pozisyon;
+    }
+
+    /**
+     * Kaydı aktif segmentin sonuna ekler
+     */
+    void ekle(int anahtar, ByteBuffer deger, long surum) throws IOException {
+        yazmaKilidi.lock();
+        try {
+            indeks.guncelle(anahtar, kayitYaz(anahtar, deger, surum));
+            checkpointBaslat();
+        } finally {
+            yazmaKilidi.unlock();
+        }
+    }
+
+    /**
+     * Grup commit: tüm kayıtları sırayla ekler, tek bir fsync yapar.
+     * İndeks ancak kayıtlar diske kalıcı olarak yazıldıktan sonra güncellenir.
+     */
+    void topluEkle(int[] anahtarlar, ByteBuffer[] degerler, long[] surumler, int adet) throws IOException {
+        yazmaKilidi.lock();
+        try {
+            KeyIndex.Konum[] konumlar = new KeyIndex.Konum[adet];
+            for (int i = 0; i < adet; i++) {
+                konumlar[i] = kayitYaz(anahtarlar[i], degerler[i], surumler[i]);
+            }
+            aktifKanal.force(false);
+
+            for (int i = 0; i < adet; i++) {
+                indeks.guncelle(anahtarlar[i], konumlar[i]);
+            }
+            checkpointBaslat();
+        } finally {
+            yazmaKilidi.unlock();
+        }
+    }
+
+    /**
+     * Anahtar için silme kaydı (tombstone) ekler ve anahtarı indeksten çıkarır.
+     * kalici ise kayıt fsync ile diske indirilir (grup commit modu).
+     */
+    void sil(int anahtar, long surum, boolean kalici) throws IOException {
+        yazmaKilidi.lock();
+        try {
+            silmeKaydiYaz(anahtar, surum);
+            if (kalici) {
+                aktifKanal.force(false);
+            }
+            indeks.sil(anahtar, surum);
+            checkpointBaslat();
+        } finally {
+            yazmaKilidi.unlock();
+        }
+    }
+
+    /**
+     * Segment geçişi olduysa, eski segmentlerin tüm kayıtları indekse girdikten
+     * sonra checkpoint'i arka planda alır
+     */
+    private void checkpointBaslat() {
+        if (bekleyenCheckpoint < 0) {
+            return;
+        }
+        int sinir = bekleyenCheckpoint;
+        bekleyenCheckpoint = -1;
+        checkpointYurutucu.submit(() -> {
+            try {
+                indeks.checkpoint(sinir);
+            } catch (IOException e) {
+                System.err.println("Indeks checkpoint hatasi: " + e.getMessage());
+            }
+        });
+    }
+
+    private void silmeKaydiYaz(int anahtar, long surum) throws IOException {
+        segmentGecisiGerekirse(BASLIK_BOYUTU + CRC_BOYUTU);
+        ByteBuffer kayit = ByteBuffer.allocate(BASLIK_BOYUTU + CRC_BOYUTU);
+        kayit.putInt(anahtar);
+        kayit.putLong(surum);
+        kayit.putInt(KeyIndex.SILINDI);
+        kayit.putInt((int) baslikCrc(anahtar, surum).getValue());
+        kayit.flip();
+        tamYaz(kayit, aktifBoyut);
+        aktifBoyut += BASLIK_BOYUTU + CRC_BOYUTU;
+    }
+
+    private KeyIndex.Konum kayitYaz(int anahtar, ByteBuffer deger, long surum) throws IOException {
+        int uzunluk = deger.remaining();
+        int kayitBoyutu = BASLIK_BOYUTU + uzunluk + CRC_BOYUTU;
+        segmentGecisiGerekirse(kayitBoyutu);
+
+        int crc = crcHesapla(anahtar, surum, deger.duplicate());
+        long offset = aktifBoyut;
+        if (uzunluk < BUYUK_DEGER_ESIGI) {
+            ByteBuffer kayit = ByteBuffer.allocate(kayitBoyutu);
+            kayit.putInt(anahtar);
+            kayit.putLong(surum);
+            kayit.putInt(uzunluk);
+            kayit.put(deger.duplicate());
+            kayit.putInt(crc);
+            kayit.flip();
+            tamYaz(kayit, offset);
+        } else {
+            // Büyük değer: başlık, değer ve CRC ayrı positioned write, değer kopyalanmaz
+            ByteBuffer baslik = ByteBuffer.allocate(BASLIK_BOYUTU);
+            baslik.putInt(anahtar);
+            baslik.putLong(surum);
+            baslik.putInt(uzunluk);
+            baslik.flip();
+            tamYaz(baslik, offset);
+            tamYaz(deger.duplicate(), offset + BASLIK_BOYUTU);
+            ByteBuffer crcTamponu = ByteBuffer.allocate(CRC_BOYUTU);
+            crcTamponu.putInt(crc);
+            crcTamponu.flip();
+            tamYaz(crcTamponu, offset + BASLIK_BOYUTU + uzunluk);
+        }
+        aktifBoyut += kayitBoyutu;
+
+        return new KeyIndex.Konum(aktifSegment, offset, uzunluk, surum);
+    }
+
+    private void segmentGecisiGerekirse(int kayitBoyutu) throws IOException {
+        if (aktifBoyut > 0 && aktifBoyut + kayitBoyutu > maxSegmentBoyutu) {
+            aktifKanal.force(false); // Kapanan segmentteki kayıtlar da kalıcı olmalı
+            yeniSegmentAc(aktifSegment + 1);
+            bekleyenCheckpoint = aktifSegment;
+        }
+    }
+
+    private void tamYaz(ByteBuffer tampon, long konum) throws IOException {
+        long yazilan = 0;
+        while (tampon.hasRemaining()) {
+            yazilan += aktifKanal.write(tampon, konum + yazilan);
+        }
+    }
+
+    /**
+     * İndekse bakıp kaydı tek bir positioned read ile okur. Kayıt okunurken
+     * sıkıştırma ile taşındıysa (segment kapandı/silindi) yeni konumdan okunur.
+     */
+    byte[] oku(int anahtar) throws IOException {
+        while (true) {
+            KeyIndex.Konum konum = indeks.get(anahtar);
+            if (konum == null) {
+                return null;
+            }
+            FileChannel kanal = segmentler.get(konum.segment);
+            try {
+                if (kanal != null) {
+                    return kayitOku(anahtar, konum, kanal);
+                }
+            } catch (ClosedChannelException e) {
+                // Sıkıştırıcı segmenti kapattı - indeks kaydın yeni konumunu gösterir
+            }
+            if (indeks.get(anahtar) == konum) {
+                throw new IOException("Segment " + konum.segment + " bulunamadi: anahtar " + anahtar);
+            }
+        }
+    }
+
+    private byte[] kayitOku(int anahtar, KeyIndex.Konum konum, FileChannel kanal) throws IOException {
+        ByteBuffer kayit = ByteBuffer.allocate(BASLIK_BOYUTU + konum.uzunluk + CRC_BOYUTU);
+        while (kayit.hasRemaining()) {
+            if (kanal.read(kayit, konum.offset + kayit.position()) < 0) {
+                throw new EOFException("Segment " + konum.segment + " beklenenden kisa");
+            }
+        }
+        kayit.flip();
+
+        int okunanAnahtar = kayit.getInt();
+        long surum = kayit.getLong();
+        int uzunluk = kayit.getInt();
+        byte[] deger = new byte[uzunluk];
+        kayit.get(deger);
+        int crc = kayit.getInt();
+        if (okunanAnahtar != anahtar || crc != crcHesapla(anahtar, surum, deger, uzunluk)) {
+            throw new IOException("Bozuk kayit: anahtar " + anahtar + ", segment " + konum.segment);
+        }
+        return deger;
+    }
+
+    boolean icerir(int anahtar) {
+        return indeks.icerir(anahtar);
+    }
+
+    /**
+     * Kaydın sürümü, yoksa -1
+     */
+    long surum(int anahtar) {
+        KeyIndex.Konum konum = indeks.get(anahtar);
+        return konum != null ? konum.surum : -1;
+    }
+
+    /**
+     * Anahtarın son silme sürümü, silinmemişse -1
+     */
+    long silmeSurumu(int anahtar) {
+        return indeks.silmeSurumu(anahtar);
+    }
+
+    int kayitSayisi() {
+        return indeks.kayitSayisi();
+    }
+
+    KeyIndex indeks() {
+        return indeks;
+    }
+
+    long toplamBayt() {
+        return indeks.toplamBayt();
+    }
+
+    /**
+     * Ölü byte oranı SIKISTIRMA_ORANI'nı geçen kapalı segmentleri eskiden yeniye
+     * sıkıştırır. Segment başına canlı byte indeksten hesaplanır (dosya okunmaz).
+     */
+    private void sikistirmaTuru() {
+        try {
+            int aktif;
+            yazmaKilidi.lock();
+            try {
+                aktif = aktifSegment;
+            } finally {
+                yazmaKilidi.unlock();
+            }
+            Map<Integer, Long> canliBayt = new HashMap<>();
+            indeks.forEach((anahtar, konum) ->
+                    canliBayt.merge(konum.segment, (long) BASLIK_BOYUTU + konum.uzunluk + CRC_BOYUTU, Long::sum));
+
+            List<Integer> idler = new ArrayList<>(segmentler.keySet());
+            idler.sort(null);
+            for (int id : idler) {
+                if (id >= aktif) {
+                    break;
+                }
+                long boyut = segmentler.get(id).size();
+                if (boyut - canliBayt.getOrDefault(id, 0L) >= boyut * SIKISTIRMA_ORANI) {
+                    sikistir(id, boyut);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Segment sikistirma hatasi: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sıkıştırmada aktif segmente yeniden yazılacak kayıt (deger null ise silme kaydı)
+     */
+    private static final class Tasinacak {
+        final int anahtar;
+        final long surum;
+        final long pozisyon;
+        final byte[] deger;
+
+        Tasinacak(int anahtar, long surum, long pozisyon, byte[] deger) {
+            this.anahtar = anahtar;
+            this.surum = surum;
+            this.pozisyon = pozisyon;
+            this.deger = deger;
+        }
+    }
+
+    /**
+     * Kapalı segmentin canlı kayıtlarını aktif segmente yeniden yazar, sonra dosyayı siler.
+     * - Kayıt, indeks hâlâ bu segmentteki konumunu gösteriyorsa canlıdır; kontrol ve
+     * yeniden yazma yazma kilidi altında yapılır, araya giren SET/DEL ezilmez
+     * - Silme kaydı, anahtar yeniden yazılmadıysa ve daha eski bir segment varsa
+     * taşınır: o segmentteki eski değer checkpoint'siz açılışta dirilmesin
+     * - Kopyalar fsync'lenmeden dosya silinmez; arada çökülürse kayıt iki segmentte
+     * bulunur, taramada sonraki kazanır (aynı sürüm ve değer)
+     */
+    private void sikistir(int id, long boyut) throws IOException {
+        long baslangic = System.nanoTime();
+        boolean dahaEskiVar = false;
+        for (int diger : segmentler.keySet()) {
+            dahaEskiVar |= diger < id;
+        }
+
+        int[] tasinan = {0, 0}; // kayıt, silme kaydı
+        List<Tasinacak> parti = new ArrayList<>(SIKISTIRMA_PARTISI);
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(segmentDosyasi(id)), 1 << 16))) {
+            long pozisyon = 0;
+            while (pozisyon + BASLIK_BOYUTU + CRC_BOYUTU <= boyut) {
+                int anahtar = dis.readInt();
+                long surum = dis.readLong();
+                int uzunluk = dis.readInt();
+                if (uzunluk == KeyIndex.SILINDI) {
+                    dis.readInt();
+                    if (dahaEskiVar) {
+                        parti.add(new Tasinacak(anahtar, surum, pozisyon, null));
+                    }
+                    pozisyon += BASLIK_BOYUTU + CRC_BOYUTU;
+                } else {
+                    KeyIndex.Konum konum = indeks.get(anahtar);
+                    if (konum != null && konum.segment == id && konum.offset == pozisyon) {
+                        byte[] deger = new byte[uzunluk];
+                        dis.readFully(deger);
+                        if (dis.readInt() != crcHesapla(anahtar, surum, deger, uzunluk)) {
+                            throw new IOException("Bozuk kayit: anahtar " + anahtar + ", segment " + id);
+                        }
+                        parti.add(new Tasinacak(anahtar, surum, pozisyon, deger));
+                    } else {
+                        dis.skipNBytes(uzunluk + CRC_BOYUTU); // Ölü kayıt
+                    }
+                    pozisyon += BASLIK_BOYUTU + uzunluk + CRC_BOYUTU;
+                }
+                if (parti.size() == SIKISTIRMA_PARTISI) {
+                    partiyiTasi(id, parti, tasinan);
+                }
+            }
+        }
+        partiyiTasi(id, parti, tasinan);
+
+        int sinir;
+        yazmaKilidi.lock();
+        try {
+            aktifKanal.force(false); // Taşınan kopyalar kalıcı olmadan eski dosya silinmez
+            sinir = aktifSegment;
+        } finally {
+            yazmaKilidi.unlock();
+        }
+        FileChannel eski = segmentler.remove(id);
+        eski.close();
+        Files.deleteIfExists(segmentDosyasi(id).toPath());
+        // Checkpoint silinen segmenti göstermesin: açılışta sadece aktif segment taranır
+        checkpointYurutucu.submit(() -> {
+            try {
+                indeks.checkpoint(sinir);
+            } catch (IOException e) {
+                System.err.println("Indeks checkpoint hatasi: " + e.getMessage());
+            }
+        });
+
+        System.out.printf("[SEGMENT] %d sikistirildi: %d kayit, %d silme kaydi tasindi, %d KB bosaldi, %d ms%n",
+                id, tasinan[0], tasinan[1], boyut / 1024, (System.nanoTime() - baslangic) / 1_000_000);
+    }
+
+    private void partiyiTasi(int id, List<Tasinacak> parti, int[] tasinan) throws IOException {
+        yazmaKilidi.lock();
+        try {
+            for (Tasinacak kayit : parti) {
+                KeyIndex.Konum konum = indeks.get(kayit.anahtar);
+                if (kayit.deger == null) {
+                    if (konum == null) {
+                        silmeKaydiYaz(kayit.anahtar, kayit.surum);
+                        tasinan[1]++;
+                    }
+                } else if (konum != null && konum.segment == id && konum.offset == kayit.pozisyon) {
+                    indeks.guncelle(kayit.anahtar, kayitYaz(kayit.anahtar, ByteBuffer.wrap(kayit.deger), kayit.surum));
+                    tasinan[0]++;
+                }
+            }
+            checkpointBaslat();
+        } finally {
+            yazmaKilidi.unlock();
+        }
+        parti.clear();
+    }
+
+    private void yeniSegmentAc(int id) throws IOException {
+        FileChannel kanal = kanalAc(id);
+        segmentler.put(id, kanal);
+        aktifSegment = id;
+        aktifKanal = kanal;
+        aktifBoyut = kanal.size();
+    }
+
+    private FileChannel kanalAc(int id) throws IOException {
+        return FileChannel.open(segmentDosyasi(id).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private File segmentDosyasi(int id) {
+        return new File(klasor, String.format("%08d%s", id, SEGMENT_UZANTISI));
+    }
+
+    private List<Integer> segmentIdleri() {
+        List<Integer> idler = new ArrayList<>();
+        File[] dosyalar = klasor.listFiles((dir, name) -> name.endsWith(SEGMENT_UZANTISI));
+        if (dosyalar != null) {
+            for (File dosya : dosyalar) {
+                String ad = dosya.getName();
+                try {
+                    idler.add(Integer.parseInt(ad.substring(0, ad.length() - SEGMENT_UZANTISI.length())));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        idler.sort(null);
+        return idler;
+    }
+
+    private static int crcHesapla(int anahtar, long surum, byte[] deger, int uzunluk) {
+        CRC32 crc = baslikCrc(anahtar, surum);
+        crc.update(deger, 0, uzunluk);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Değer tamponunu tüketir (çağıran duplicate vermeli)
+     */
+    private static int crcHesapla(int anahtar, long surum, ByteBuffer deger) {
+        CRC32 crc = baslikCrc(anahtar, surum);
+        crc.update(deger);
+        return (int) crc.getValue();
+    }
+
+    private static CRC32 baslikCrc(int anahtar, long surum) {
+        CRC32 crc = new CRC32();
+        for (int kaydirma = 24; kaydirma >= 0; kaydirma -= 8) {
+            crc.update(anahtar >>> kaydirma);
+        }
+        for (int kaydirma = 56; kaydirma >= 0; kaydirma -= 8) {
+            crc.update((int) (surum >>> kaydirma));
+        }
+        return crc;
+    }
+}
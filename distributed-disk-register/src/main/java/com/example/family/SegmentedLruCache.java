@@ -0,0 +1,186 @@
+package com.example.family;
+
+import com.google.protobuf.ByteString;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Byte bütçeli, segmented LRU (SLRU) önbellek - disk her zaman asıl kaynaktır.
+ * - Yeni kayıtlar "probation" segmentine girer
+ * - Probation'da tekrar erişilen kayıt "protected" segmentine terfi eder
+ * - Protected dolunca en eski kaydı probation'a geri düşer
+ * - Bütçe aşılınca probation'ın en eskisi atılır: tek seferlik taramalar
+ * (scan) sık kullanılan kayıtları önbellekten süremez
+ */
+public class SegmentedLruCache implements ValueCache {
+
+    private static final int KAYIT_EK_YUKU = 64; // Entry + Integer + ByteString başlıkları (tahmini)
+    private static final double PROTECTED_ORANI = 0.8;
+
+    private final long maxBayt;
+    private final long maxProtectedBayt;
+    private final LinkedHashMap<Integer, ByteString> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Integer, ByteString> korunan = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock kilit = new ReentrantLock();
+
+    private long probationBayt;
+    private long korunanBayt;
+
+    private final LongAdder isabet = new LongAdder();
+    private final LongAdder iska = new LongAdder();
+    private final LongAdder tahliye = new LongAdder();
+
+    public SegmentedLruCache(long maxBayt) {
+        this.maxBayt = maxBayt;
+        this.maxProtectedBayt = (long) (maxBayt * PROTECTED_ORANI);
+    }
+
+    @Override
+    public ByteString get(int anahtar) {
+        kilit.lock();
+        try {
+            ByteString deger = korunan.get(anahtar);
+            if (deger != null) {
+                isabet.increment();
+                return deger;
+            }
+
+            deger = probation.remove(anahtar);
+            if (deger == null) {
+                iska.increment();
+                return null;
+            }
+
+            // İkinci erişim: protected segmentine terfi
+            isabet.increment();
+            long boyut = boyut(deger);
+            probationBayt -= boyut;
+            korunan.put(anahtar, deger);
+            korunanBayt += boyut;
+            korunaniDengele();
+            return deger;
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public void put(int anahtar, ByteString deger) {
+        long boyut = boyut(deger);
+        kilit.lock();
+        try {
+            cikar(anahtar);
+            if (boyut > maxBayt) {
+                return; // Bütçeden büyük değer önbelleğe alınmaz
+            }
+            probation.put(anahtar, deger);
+            probationBayt += boyut;
+            butceyiUygula();
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public void remove(int anahtar) {
+        kilit.lock();
+        try {
+            cikar(anahtar);
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    private void cikar(int anahtar) {
+        ByteString eski = probation.remove(anahtar);
+        if (eski != null) {
+            probationBayt -= boyut(eski);
+        }
+        eski = korunan.remove(anahtar);
+        if (eski != null) {
+            korunanBayt -= boyut(eski);
+        }
+    }
+
+    /**
+     * Protected segmenti taşarsa en eski kayıtları probation'a düşürür
+     */
+    private void korunaniDengele() {
+        Iterator<Map.Entry<Integer, ByteString>> it = korunan.entrySet().iterator();
+        while (korunanBayt > maxProtectedBayt && it.hasNext()) {
+            Map.Entry<Integer, ByteString> enEski = it.next();
+            it.remove();
+            long boyut = boyut(enEski.getValue());
+            korunanBayt -= boyut;
+            probation.put(enEski.getKey(), enEski.getValue());
+            probationBayt += boyut;
+        }
+        butceyiUygula();
+    }
+
+    /**
+     * Toplam bütçe aşılırsa önce probation'dan, gerekirse protected'dan atar
+     */
+    private void butceyiUygula() {
+        Iterator<Map.Entry<Integer, ByteString>> it = probation.entrySet().iterator();
+        while (probationBayt + korunanBayt > maxBayt && it.hasNext()) {
+            probationBayt -= boyut(it.next().getValue());
+            it.remove();
+            tahliye.increment();
+        }
+        it = korunan.entrySet().iterator();
+        while (probationBayt + korunanBayt > maxBayt && it.hasNext()) {
+            korunanBayt -= boyut(it.next().getValue());
+            it.remove();
+            tahliye.increment();
+        }
+    }
+
+    private static long boyut(ByteString deger) {
+        return KAYIT_EK_YUKU + deger.size();
+    }
+
+    @Override
+    public int size() {
+        kilit.lock();
+        try {
+            return probation.size() + korunan.size();
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public long byteSize() {
+        kilit.lock();
+        try {
+            return probationBayt + korunanBayt;
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public long maxBytes() {
+        return maxBayt;
+    }
+
+    @Override
+    public long hits() {
+        return isabet.sum();
+    }
+
+    @Override
+    public long misses() {
+        return iska.sum();
+    }
+
+    @Override
+    public long evictions() {
+        return tahliye.sum();
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.family;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import family.DeleteRequest;
+import family.KeyRequest;
+import family.MultiGetRequest;
+import family.MultiGetResponse;
+import family.MultiStoreRequest;
+import family.MultiStoreResponse;
+import family.ReplicationAck;
+import family.ReplicationFrame;
+import family.RetrieveResponse;
+import family.StorageServiceGrpc;
+import family.StoreAck;
+import family.StoredMessage;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tipli depolama servisi - replikasyon yazmaları ve okumaları.
+ * - Değerler bytes olarak taşınır, DiskIO'ya String'e çevrilmeden verilir
+ * - Her yazma bir sürüm taşır; düğümdeki sürümden eski yazma uygulanmaz
+ * (geç gelen eski bir replikasyon yeni değeri ezemez)
+ * - MultiStore/MultiGet: MSET/MGET için follower başına tek çağrıda çok anahtar
+ * - Delete: DEL için; düğümdeki sürümden eski silme uygulanmaz. Silme sürümü
+ * tutulur: ondan eski, geç gelen (yeniden denenen ya da DEL'le yer değiştirmiş)
+ * yazma anahtarı diriltmez
+ * - Follower'a doğrudan gelen SET/MSET/DEL de aynı kilitli sürüm kontrolünden
+ * geçer (surumluYaz, topluUygula, surumluSil)
+ * - ReplicateStream: leader'ın frame'lerini sırayla uygular, her frame'i tek
+ * toplu yazma ile diske verir ve kümülatif seq ile onaylar. Frame uygulanmadan
+ * sonraki istenmediği için yavaş disk, HTTP/2 akış kontrolüyle leader'a yansır.
+ */
+public class StorageServiceImpl extends StorageServiceGrpc.StorageServiceImplBase {
+
+    private static final int KILIT_SAYISI = 64; // Aynı anahtara eşzamanlı yazmalar için şeritli kilit
+    static final long UYGULANMADI = -1; // surumluYaz: düğümde daha yeni sürüm var
+
+    private final DiskIO diskIO;
+    private final ValueCache bellek;
+    private final ReentrantLock[] kilitler = new ReentrantLock[KILIT_SAYISI];
+
+    public StorageServiceImpl(DiskIO diskIO, ValueCache bellek) {
+        this.diskIO = diskIO;
+        this.bellek = bellek;
+        for (int i = 0; i < KILIT_SAYISI; i++) {
+            kilitler[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void store(StoredMessage istek, StreamObserver<StoreAck> cevapGozlemci) {
+        int anahtar = istek.getId();
+        long surum = istek.getVersion();
+        ByteString deger = istek.getValue();
+
+        long yazmaSuresi;
+        try {
+            yazmaSuresi = surumluYaz(anahtar, deger, surum);
+        } catch (Exception e) {
+            System.err.println("Replication error: " + e.getMessage());
+            cevapGozlemci.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+        boolean uygulandi = yazmaSuresi != UYGULANMADI;
+        long guncelSurum = uygulandi ? surum : sonSurum(anahtar);
+
+        if (uygulandi) {
+            System.out.printf("[REPLICATION] STORE %d v%d (%d bytes) -> disk write: %d us%n",
+                    anahtar, surum, deger.size(), yazmaSuresi);
+        } else {
+            System.out.printf("[REPLICATION] STORE %d v%d eski, mevcut v%d korundu%n",
+                    anahtar, surum, guncelSurum);
+        }
+
+        cevapGozlemci.onNext(StoreAck.newBuilder()
+                .setId(anahtar)
+                .setVersion(guncelSurum)
+                .setApplied(uygulandi)
+                .build());
+        cevapGozlemci.onCompleted();
+    }
+
+    @Override
+    public void delete(DeleteRequest istek, StreamObserver<StoreAck> cevapGozlemci) {
+        int anahtar = istek.getId();
+        long surum = istek.getVersion();
+
+        boolean silindi;
+        try {
+            silindi = surumluSil(anahtar, surum);
+        } catch (Exception e) {
+            System.err.println("Replication error: " + e.getMessage());
+            cevapGozlemci.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+        long guncelSurum = silindi ? -1 : diskIO.getVersion(anahtar);
+
+        if (silindi) {
+            System.out.printf("[REPLICATION] DELETE %d v%d%n", anahtar, surum);
+        }
+        cevapGozlemci.onNext(StoreAck.newBuilder()
+                .setId(anahtar)
+                .setVersion(guncelSurum)
+                .setApplied(silindi)
+                .build());
+        cevapGozlemci.onCompleted();
+    }
+
+    /**
+     * Düğümdeki sürümden eski değilse değeri yazar ve önbellekteki eski değeri atar
+     *
+     * @return yazma süresi (mikrosaniye), düğümde daha yeni sürüm varsa UYGULANMADI
+     */
+    long surumluYaz(int anahtar, ByteString deger, long surum) throws IOException {
+        ReentrantLock kilit = kilitler[anahtar & (KILIT_SAYISI - 1)];
+        kilit.lock();
+        try {
+            if (surum < sonSurum(anahtar)) {
+                return UYGULANMADI;
+            }
+            long yazmaSuresi = diskIO.write(anahtar, deger.asReadOnlyByteBuffer(), surum);
+            // Önbellekteki eski değer geçersiz, ilk okumada diskten gelir
+            bellek.remove(anahtar);
+            return yazmaSuresi;
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    /**
+     * Düğümde silme sürümünden yeni bir yazma ya da silme yoksa anahtarı siler.
+     * Kayıt yoksa da silme sürümü tutulur.
+     *
+     * @return kayıt silindiyse true
+     */
+    boolean surumluSil(int anahtar, long surum) throws IOException {
+        ReentrantLock kilit = kilitler[anahtar & (KILIT_SAYISI - 1)];
+        kilit.lock();
+        try {
+            if (surum < diskIO.getVersion(anahtar) || surum <= diskIO.getDeletedVersion(anahtar)) {
+                return false;
+            }
+            bellek.remove(anahtar);
+            return diskIO.delete(anahtar, surum);
+        } finally {
+            kilit.unlock();
+        }
+    }
+
+    @Override
+    public StreamObserver<ReplicationFrame> replicateStream(StreamObserver<ReplicationAck> onayGozlemci) {
+        return new StreamObserver<ReplicationFrame>() {
+            private boolean bitti;
+
+            @Override
+            public void onNext(ReplicationFrame frame) {
+                if (bitti) {
+                    return;
+                }
+                boolean[] uygulananlar;
+                try {
+                    uygulananlar = topluUygula(frame.getEntriesList(), "FRAME seq " + frame.getSeq());
+                } catch (Exception e) {
+                    bitti = true;
+                    System.err.println("Replication stream error: " + e.getMessage());
+                    onayGozlemci.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+                    return;
+                }
+                // Frame'deki kayıtların seq'leri ardışıktır, sonuncusu frame.seq
+                ReplicationAck.Builder onay = ReplicationAck.newBuilder().setSeq(frame.getSeq());
+                long ilkSeq = frame.getSeq() - uygulananlar.length + 1;
+                for (int i = 0; i < uygulananlar.length; i++) {
+                    if (!uygulananlar[i]) {
+                        onay.addSkippedSeqs(ilkSeq + i);
+                    }
+                }
+                onayGozlemci.onNext(onay.build());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                bitti = true; // Leader akışı iptal etti
+            }
+
+            @Override
+            public void onCompleted() {
+                if (!bitti) {
+                    bitti = true;
+                    onayGozlemci.onCompleted();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void multiStore(MultiStoreRequest istek, StreamObserver<MultiStoreResponse> cevapGozlemci) {
+        List<StoredMessage> kayitlar = istek.getEntriesList();
+        boolean[] uygulananlar;
+        try {
+            uygulananlar = topluUygula(kayitlar, "MULTI");
+        } catch (Exception e) {
+            System.err.println("Replication error: " + e.getMessage());
+            cevapGozlemci.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+
+        MultiStoreResponse.Builder yanit = MultiStoreResponse.newBuilder();
+        for (int i = 0; i < kayitlar.size(); i++) {
+            StoredMessage kayit = kayitlar.get(i);
+            yanit.addAcks(StoreAck.newBuilder()
+                    .setId(kayit.getId())
+                    .setVersion(uygulananlar[i] ? kayit.getVersion() : sonSurum(kayit.getId()))
+                    .setApplied(uygulananlar[i]));
+        }
+        cevapGozlemci.onNext(yanit.build());
+        cevapGozlemci.onCompleted();
+    }
+
+    @Override
+    public void multiGet(MultiGetRequest istek, StreamObserver<MultiGetResponse> cevapGozlemci) {
+        MultiGetResponse.Builder yanit = MultiGetResponse.newBuilder();
+        for (int anahtar : istek.getKeysList()) {
+            yanit.addValues(oku(anahtar));
+        }
+        cevapGozlemci.onNext(yanit.build());
+        cevapGozlemci.onCompleted();
+    }
+
+    /**
+     * Kayıtları sürüm kontrolüyle tek bir toplu yazmada uygular.
+     * İlgili anahtar kilitleri sabit sırada alınır, tekil Store ile yarışmaz.
+     *
+     * @return kayıt başına uygulandı mı (eski sürümler atlanır)
+     */
+    boolean[] topluUygula(List<StoredMessage> kayitlar, String etiket) throws IOException {
+        int adet = kayitlar.size();
+        boolean[] uygulananlar = new boolean[adet];
+        int[] anahtarlar = new int[adet];
+        ByteBuffer[] degerler = new ByteBuffer[adet];
+        long[] surumler = new long[adet];
+
+        long kilitMaskesi = 0;
+        for (StoredMessage kayit : kayitlar) {
+            kilitMaskesi |= 1L << (kayit.getId() & (KILIT_SAYISI - 1));
+        }
+        for (int i = 0; i < KILIT_SAYISI; i++) {
+            if ((kilitMaskesi & (1L << i)) != 0) {
+                kilitler[i].lock();
+            }
+        }
+
+        long bayt = 0;
+        long yazmaSuresi;
+        int yazilacak = 0;
+        // Aynı anahtar frame içinde tekrar edebilir; henüz diske inmemiş sürümler burada izlenir
+        Map<Integer, Long> frameSurumleri = new HashMap<>();
+        try {
+            for (int i = 0; i < adet; i++) {
+                StoredMessage kayit = kayitlar.get(i);
+                long guncel = frameSurumleri.getOrDefault(kayit.getId(), sonSurum(kayit.getId()));
+                if (kayit.getVersion() < guncel) {
+                    continue;
+                }
+                frameSurumleri.put(kayit.getId(), kayit.getVersion());
+                uygulananlar[i] = true;
+                anahtarlar[yazilacak] = kayit.getId();
+                degerler[yazilacak] = kayit.getValue().asReadOnlyByteBuffer();
+                surumler[yazilacak] = kayit.getVersion();
+                bayt += degerler[yazilacak].remaining();
+                yazilacak++;
+            }
+            yazmaSuresi = diskIO.writeBatch(anahtarlar, degerler, surumler, yazilacak);
+            for (int i = 0; i < yazilacak; i++) {
+                bellek.remove(anahtarlar[i]);
+            }
+        } finally {
+            for (int i = 0; i < KILIT_SAYISI; i++) {
+                if ((kilitMaskesi & (1L << i)) != 0) {
+                    kilitler[i].unlock();
+                }
+            }
+        }
+
+        System.out.printf("[REPLICATION] %s: %d/%d kayit (%d bytes) -> disk write: %d us%n",
+                etiket, yazilacak, adet, bayt, yazmaSuresi);
+        return uygulananlar;
+    }
+
+    /**
+     * Yazmanın geçmesi gereken sürüm: kaydın sürümü ya da silme sürümü (büyük olanı)
+     */
+    private long sonSurum(int anahtar) {
+        return Math.max(diskIO.getVersion(anahtar), diskIO.getDeletedVersion(anahtar));
+    }
+
+    /**
+     * Önbellekte varsa oradan, yoksa diskten ham byte olarak döner
+     */
+    @Override
+    public void retrieve(KeyRequest istek, StreamObserver<RetrieveResponse> cevapGozlemci) {
+        cevapGozlemci.onNext(oku(istek.getKey()));
+        cevapGozlemci.onCompleted();
+    }
+
+    private RetrieveResponse oku(int anahtar) {
+        RetrieveResponse.Builder yanit = RetrieveResponse.newBuilder().setId(anahtar);
+
+        try {
+            ByteString onbellekte = bellek.get(anahtar);
+            if (onbellekte != null) {
+                yanit.setValue(onbellekte).setFound(true);
+            } else {
+                byte[] veri = diskIO.readBytes(anahtar);
+                if (veri != null) {
+                    // Dizi başka yerde tutulmadığı için kopyalamadan sarılabilir
+                    yanit.setValue(UnsafeByteOperations.unsafeWrap(veri)).setFound(true);
+                }
+            }
+            yanit.setVersion(diskIO.getVersion(anahtar));
+        } catch (Exception e) {
+            System.err.println("Disk okuma hatasi: " + e.getMessage());
+        }
+        return yanit.build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.family;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saniyede sabit sayıda jeton üreten kova (ör. byte/saniye bant genişliği sınırı).
+ * - Kova en fazla bir saniyelik jeton biriktirir: boşta kalan limit kısa bir patlamaya izin verir
+ * - Kovadakinden büyük istek reddedilmez: jeton eksiye düşer (borç), çağıran borcu
+ * ödenene kadar bekler; sonraki çağıranlar da borç kapanana kadar bekler
+ * - Bekleme kilit dışında yapılır ve kesilemez (kesme bayrağı sonunda geri konur)
+ */
+class TokenBucket {
+
+    private final double saniyedeJeton;
+    private final double kapasite;
+    private double jeton;
+    private long sonDolum;
+    private final ReentrantLock kilit = new ReentrantLock();
+
+    TokenBucket(long saniyedeJeton) {
+        if (saniyedeJeton <= 0) {
+            throw new IllegalArgumentException("saniyedeJeton pozitif olmali: " + saniyedeJeton);
+        }
+        this.saniyedeJeton = saniyedeJeton;
+        this.kapasite = saniyedeJeton;
+        this.jeton = kapasite;
+        this.sonDolum = System.nanoTime();
+    }
+
+    /**
+     * 'adet' jeton alır, gerekirse jetonlar birikene kadar bekler
+     */
+    void al(int adet) {
+        long bekleNs;
+        kilit.lock();
+        try {
+            long simdi = System.nanoTime();
+            jeton = Math.min(kapasite, jeton + (simdi - sonDolum) * saniyedeJeton / 1e9);
+            sonDolum = simdi;
+            jeton -= adet;
+            bekleNs = jeton < 0 ? (long) (-jeton * 1e9 / saniyedeJeton) : 0;
+        } finally {
+            kilit.unlock();
+        }
+        if (bekleNs > 0) {
+            bekle(bekleNs);
+        }
+    }
+
+    private static void bekle(long ns) {
+        boolean kesildi = false;
+        long bitis = System.nanoTime() + ns;
+        try {
+            for (long kalan = ns; kalan > 0; kalan = bitis - System.nanoTime()) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(kalan);
+                } catch (InterruptedException e) {
+                    kesildi = true;
+                }
+            }
+        } finally {
+            if (kesildi) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
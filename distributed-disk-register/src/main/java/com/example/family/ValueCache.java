@@ -0,0 +1,32 @@
+package com.example.family;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Düğümün değer önbelleği. Disk her zaman asıl kaynaktır; önbellek byte
+ * bütçesini aşınca kayıt atabilir.
+ * - SegmentedLruCache: heap üzerinde, ByteString değerler
+ * - OffHeapValueStore: heap dışında, ham byte'lar + primitive int indeks
+ * - Değerler byte olarak saklanır ve aynen döner (binary-safe); String'e
+ * çevirme yalnızca metin protokolünün kenarında yapılır
+ */
+public interface ValueCache {
+
+    ByteString get(int anahtar);
+
+    void put(int anahtar, ByteString deger);
+
+    void remove(int anahtar);
+
+    int size();
+
+    long byteSize();
+
+    long maxBytes();
+
+    long hits();
+
+    long misses();
+
+    long evictions();
+}
@@ -0,0 +1,280 @@
+package com.example.family.client;
+
+import com.example.family.ChannelPool;
+import com.example.family.HashRing;
+import com.google.protobuf.ByteString;
+import family.ClusterView;
+import family.Empty;
+import family.FamilyServiceGrpc;
+import family.KeyPlacement;
+import family.KeyRequest;
+import family.LocateRequest;
+import family.LocateResponse;
+import family.NodeInfo;
+import family.PutRequest;
+import family.PutResponse;
+import family.RetrieveResponse;
+import family.RouteStatus;
+import family.StorageServiceGrpc;
+import io.grpc.StatusRuntimeException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Kümeye TCP ön yüzü yerine doğrudan gRPC ile konuşan akıllı istemci.
+ * - Açılışta herhangi bir düğümden küme görünümünü (leader + üyeler) alır
+ * - Yazmalar leader'a Put ile gider; yanıttaki replikalar anahtarın yerleşimi
+ * olarak saklanır
+ * - Okumalar anahtarı tutan bir replikaya doğrudan Retrieve ile gider (leader'ın
+ * proxy adımı yoktur); replikalar arasında sırayla dağıtılır
+ * - Küme hash halkası yerleşimi kullanıyorsa yerleşim istemcide hesaplanır
+ * (leader'a sorulmaz); aksi halde leader'a Locate ile sorulur ve önbelleğe alınır
+ * - NOT_LEADER yanıtında leader güncellenir, erişilemeyen düğümde topoloji
+ * yenilenir; replika anahtarı bulamazsa (taşınmış) yerleşim yeniden sorulur
+ * - Thread-safe'tir, tek örnek paylaşılabilir
+ *
+ * <pre>
+ * try (FamilyClient istemci = new FamilyClient("127.0.0.1", 5555)) {
+ *     istemci.set(1, "ANKARA");
+ *     String deger = istemci.getString(1);
+ * }
+ * </pre>
+ */
+public final class FamilyClient implements AutoCloseable {
+
+    private static final int MAX_DENEME = 3;
+    private static final long ZAMAN_ASIMI_MS = 5000;
+
+    private final ChannelPool kanalHavuzu = new ChannelPool();
+    private final NodeInfo tohum;
+    private final ConcurrentHashMap<Integer, List<NodeInfo>> yerlesim = new ConcurrentHashMap<>();
+    private final AtomicInteger okumaSayaci = new AtomicInteger();
+
+    private volatile NodeInfo lider;
+    private volatile List<NodeInfo> uyeler = List.of();
+    private volatile HashRing halka; // Küme halka kullanmıyorsa null
+    private volatile int replikaSayisi;
+
+    /**
+     * @param host herhangi bir küme düğümünün adresi (gRPC portu)
+     */
+    public FamilyClient(String host, int port) throws IOException {
+        this.tohum = NodeInfo.newBuilder().setHost(host).setPort(port).build();
+        refreshTopology();
+    }
+
+    /**
+     * Küme görünümünü bilinen leader'dan, üyelerden ya da tohum düğümden yeniden alır
+     */
+    public void refreshTopology() throws IOException {
+        List<NodeInfo> adaylar = new ArrayList<>();
+        if (lider != null) {
+            adaylar.add(lider);
+        }
+        adaylar.addAll(uyeler);
+        adaylar.add(tohum);
+
+        StatusRuntimeException sonHata = null;
+        for (NodeInfo aday : adaylar) {
+            try {
+                ClusterView gorunum = familyStub(aday).getClusterView(Empty.getDefaultInstance());
+                if (!aday.equals(gorunum.getLeader())) {
+                    // Follower'ın üye listesi katıldığı andaki görünümdür, tam liste leader'dadır
+                    try {
+                        gorunum = familyStub(gorunum.getLeader()).getClusterView(Empty.getDefaultInstance());
+                    } catch (StatusRuntimeException e) {
+                        // Leader erişilemez - follower'ın görünümüyle devam
+                    }
+                }
+                lider = gorunum.getLeader();
+                uyeler = List.copyOf(gorunum.getMembersList());
+                replikaSayisi = gorunum.getReplicas();
+                if (gorunum.getVirtualNodes() > 0) {
+                    List<NodeInfo> halkaUyeleri = new ArrayList<>(uyeler);
+                    halkaUyeleri.remove(lider); // Leader veri tutmaz, halkada değildir
+                    halka = new HashRing(halkaUyeleri, gorunum.getVirtualNodes());
+                } else {
+                    halka = null;
+                }
+                return;
+            } catch (StatusRuntimeException e) {
+                sonHata = e;
+            }
+        }
+        throw new IOException("No reachable cluster node", sonHata);
+    }
+
+    public void set(int key, String value) throws IOException {
+        set(key, ByteString.copyFromUtf8(value));
+    }
+
+    public void set(int key, byte[] value) throws IOException {
+        set(key, ByteString.copyFrom(value));
+    }
+
+    /**
+     * Değeri leader üzerinden yazar; leader'ın quorum kararıyla döner
+     */
+    public void set(int key, ByteString value) throws IOException {
+        PutRequest istek = PutRequest.newBuilder().setKey(key).setValue(value).build();
+        for (int deneme = 0; deneme < MAX_DENEME; deneme++) {
+            PutResponse yanit;
+            try {
+                yanit = familyStub(lider).put(istek);
+            } catch (StatusRuntimeException e) {
+                refreshTopology();
+                continue;
+            }
+            if (yanit.getStatus() == RouteStatus.NOT_LEADER) {
+                lider = yanit.getLeader();
+                continue;
+            }
+            if (yanit.getStatus() != RouteStatus.OK) {
+                throw new IOException(yanit.getError());
+            }
+            yerlesim.put(key, List.copyOf(yanit.getReplicasList()));
+            return;
+        }
+        throw new IOException("SET " + key + " failed after " + MAX_DENEME + " attempts");
+    }
+
+    public String getString(int key) throws IOException {
+        ByteString deger = get(key);
+        return deger != null ? deger.toString(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Değeri anahtarı tutan bir replikadan okur, bulunamadıysa null
+     */
+    public ByteString get(int key) throws IOException {
+        List<NodeInfo> replikalar = yerlesim.get(key);
+        if (replikalar == null) {
+            HashRing guncelHalka = halka;
+            replikalar = guncelHalka != null ? guncelHalka.replicas(key, replikaSayisi) : locate(key);
+        }
+        ByteString deger = replikalardanOku(key, replikalar);
+        if (deger != null) {
+            return deger;
+        }
+
+        // Bilinen replikalar bulamadı: anahtar taşınmış olabilir, yerleşim yeniden sorulur
+        List<NodeInfo> guncel = locate(key);
+        if (!guncel.equals(replikalar)) {
+            deger = replikalardanOku(key, guncel);
+            if (deger != null) {
+                return deger;
+            }
+        }
+        if (!guncel.isEmpty()) {
+            return null;
+        }
+
+        // Leader da yerini bilmiyor (ör. leader yeniden başladı): tüm follower'lara sorulur
+        return enGuncelOku(key);
+    }
+
+    /**
+     * Anahtarın replikalarını leader'a sorar ve önbelleğe alır
+     */
+    public List<NodeInfo> locate(int key) throws IOException {
+        LocateRequest istek = LocateRequest.newBuilder().addKeys(key).build();
+        for (int deneme = 0; deneme < MAX_DENEME; deneme++) {
+            LocateResponse yanit;
+            try {
+                yanit = familyStub(lider).locate(istek);
+            } catch (StatusRuntimeException e) {
+                refreshTopology();
+                continue;
+            }
+            if (yanit.getStatus() == RouteStatus.NOT_LEADER) {
+                lider = yanit.getLeader();
+                continue;
+            }
+            List<NodeInfo> replikalar = List.of();
+            for (KeyPlacement yer : yanit.getPlacementsList()) {
+                if (yer.getKey() == key) {
+                    replikalar = List.copyOf(yer.getReplicasList());
+                }
+            }
+            if (replikalar.isEmpty()) {
+                yerlesim.remove(key);
+            } else {
+                yerlesim.put(key, replikalar);
+            }
+            return replikalar;
+        }
+        throw new IOException("LOCATE " + key + " failed after " + MAX_DENEME + " attempts");
+    }
+
+    public NodeInfo leader() {
+        return lider;
+    }
+
+    public List<NodeInfo> members() {
+        return uyeler;
+    }
+
+    @Override
+    public void close() {
+        for (NodeInfo uye : uyeler) {
+            kanalHavuzu.kapat(uye);
+        }
+        kanalHavuzu.kapat(tohum);
+        if (lider != null) {
+            kanalHavuzu.kapat(lider);
+        }
+    }
+
+    /**
+     * Replikaları sırayla (okumaSayaci'ndan başlayarak) dener; ilk bulunan değer
+     */
+    private ByteString replikalardanOku(int anahtar, List<NodeInfo> replikalar) {
+        int adet = replikalar.size();
+        int baslangic = Math.floorMod(okumaSayaci.getAndIncrement(), Math.max(adet, 1));
+        for (int i = 0; i < adet; i++) {
+            RetrieveResponse yanit = oku(replikalar.get((baslangic + i) % adet), anahtar);
+            if (yanit != null && yanit.getFound()) {
+                return yanit.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Leader dışındaki tüm üyelere sorar, en yüksek sürümlü değeri döner
+     */
+    private ByteString enGuncelOku(int anahtar) {
+        RetrieveResponse enGuncel = null;
+        for (NodeInfo uye : uyeler) {
+            if (uye.equals(lider)) {
+                continue;
+            }
+            RetrieveResponse yanit = oku(uye, anahtar);
+            if (yanit != null && yanit.getFound()
+                    && (enGuncel == null || yanit.getVersion() > enGuncel.getVersion())) {
+                enGuncel = yanit;
+            }
+        }
+        return enGuncel != null ? enGuncel.getValue() : null;
+    }
+
+    private RetrieveResponse oku(NodeInfo uye, int anahtar) {
+        try {
+            return StorageServiceGrpc.newBlockingStub(kanalHavuzu.kanal(uye))
+                    .withDeadlineAfter(ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS)
+                    .retrieve(KeyRequest.newBuilder().setKey(anahtar).build());
+        } catch (StatusRuntimeException e) {
+            return null; // Replika erişilemez - sıradakine geçilir
+        }
+    }
+
+    private FamilyServiceGrpc.FamilyServiceBlockingStub familyStub(NodeInfo uye) {
+        return kanalHavuzu.blockingStub(uye).withDeadlineAfter(ZAMAN_ASIMI_MS, TimeUnit.MILLISECONDS);
+    }
+}